@@ -0,0 +1,49 @@
+package com.robindrew.trading.igindex.feed.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.jetty.page.FeedPrice;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedPriceBenchmark {
+
+	private InstrumentStats stats;
+
+	@Setup
+	public void setup() {
+		SyntheticTickGenerator generator = new SyntheticTickGenerator(1, 1);
+		stats = new InstrumentStats(generator.getInstruments()[0]);
+		for (Tick tick : generator.next(10000)) {
+			stats.onTick(tick);
+		}
+	}
+
+	@Benchmark
+	public FeedPrice newFeedPrice() {
+		return new FeedPrice(stats);
+	}
+
+	@Benchmark
+	public String toId() {
+		return FeedPrice.toId(stats.getInstrument());
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.robindrew.trading.igindex.feed.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.GsonBuilder;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.jetty.page.FeedPrice;
+import com.robindrew.trading.igindex.feed.jetty.page.PricesJsonWriter;
+
+/**
+ * The work done by the /Prices page on each poll, for increasing numbers of instruments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricesJsonBenchmark {
+
+	@Param({ "10", "50", "100", "500" })
+	private int instruments;
+
+	private InstrumentStatsRegistry registry;
+	private String[] names;
+	private PricesJsonWriter writer;
+
+	@Setup
+	public void setup() {
+		SyntheticTickGenerator generator = new SyntheticTickGenerator(instruments, 1);
+		registry = new InstrumentStatsRegistry();
+		names = generator.getInstruments();
+		for (Tick tick : generator.next(instruments * 100)) {
+			registry.getStats(tick.getInstrument()).onTick(tick);
+		}
+		writer = new PricesJsonWriter();
+	}
+
+	/**
+	 * The previous implementation, pretty printed through Gson, as a baseline.
+	 */
+	@Benchmark
+	public String renderPricesGson() {
+		List<FeedPrice> prices = new ArrayList<>(names.length);
+		for (String name : names) {
+			prices.add(new FeedPrice(registry.getStats(name)));
+		}
+		return new GsonBuilder().setPrettyPrinting().create().toJson(prices);
+	}
+
+	@Benchmark
+	public long renderPrices() {
+		long now = System.currentTimeMillis();
+		writer.begin();
+		for (String name : names) {
+			writer.writePrice(registry.getStats(name), now);
+		}
+		writer.end();
+		return writer.hash();
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.robindrew.trading.igindex.feed.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.price.candle.IPriceCandle;
+import com.robindrew.trading.price.candle.streaming.IPriceCandleSnapshot;
+
+/**
+ * Generates a deterministic random walk of ticks across a number of synthetic instruments.
+ */
+public class SyntheticTickGenerator {
+
+	public static String getInstrument(int index) {
+		return "CS.D.SYN" + index + ".MINI.IP";
+	}
+
+	private final Random random;
+	private final String[] instruments;
+	private final int[] mids;
+	private final int decimalPlaces;
+	private final long interval;
+	private long timestamp;
+	private int next = 0;
+
+	public SyntheticTickGenerator(int instruments, long seed) {
+		this(instruments, seed, System.currentTimeMillis(), 10, 5);
+	}
+
+	public SyntheticTickGenerator(int instruments, long seed, long start, long interval, int decimalPlaces) {
+		this.random = new Random(seed);
+		this.instruments = new String[instruments];
+		this.mids = new int[instruments];
+		this.decimalPlaces = decimalPlaces;
+		this.interval = interval;
+		this.timestamp = start;
+		for (int i = 0; i < instruments; i++) {
+			this.instruments[i] = getInstrument(i);
+			this.mids[i] = 100000 + random.nextInt(100000);
+		}
+	}
+
+	public String[] getInstruments() {
+		return instruments.clone();
+	}
+
+	/**
+	 * Returns the next tick, cycling through the instruments in turn.
+	 */
+	public Tick next() {
+		int index = next;
+		next = (next + 1) % instruments.length;
+
+		int move = random.nextInt(11) - 5;
+		mids[index] += move;
+		int spread = 1 + random.nextInt(3);
+		timestamp += interval;
+
+		int mid = mids[index];
+		return new Tick(instruments[index], timestamp, mid - spread, mid + spread, mid, decimalPlaces, move >= 0, timestamp + random.nextInt(50));
+	}
+
+	public List<Tick> next(int count) {
+		List<Tick> ticks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ticks.add(next());
+		}
+		return ticks;
+	}
+
+	/**
+	 * Returns the next ticks as if streamed, each with a snapshot for the writers that need one.
+	 */
+	public List<Tick> nextStreamed(int count) {
+		List<Tick> ticks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ticks.add(toStreamed(next()));
+		}
+		return ticks;
+	}
+
+	/**
+	 * The snapshot and its latest candle are proxies that answer their price, time and direction getters from the tick.
+	 */
+	private static Tick toStreamed(Tick tick) {
+		IPriceCandle latest = proxy(IPriceCandle.class, tick, null);
+		return Tick.of(tick.getInstrument(), proxy(IPriceCandleSnapshot.class, tick, latest));
+	}
+
+	private static <T> T proxy(Class<T> type, Tick tick, IPriceCandle latest) {
+		InvocationHandler handler = (proxy, method, args) -> {
+			String name = method.getName();
+			Class<?> returnType = method.getReturnType();
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (name.equals("toString")) {
+				return type.getSimpleName() + tick;
+			}
+			if (returnType.equals(IPriceCandle.class)) {
+				return latest;
+			}
+			if (returnType.equals(long.class)) {
+				return tick.getTimestamp();
+			}
+			if (returnType.equals(int.class)) {
+				if (name.contains("DecimalPlaces")) {
+					return tick.getDecimalPlaces();
+				}
+				return name.contains("Bid") ? tick.getBid() : name.contains("Ask") ? tick.getAsk() : tick.getMid();
+			}
+			if (returnType.isEnum()) {
+				return getDirection(returnType, tick.isBuy());
+			}
+			if (returnType.equals(boolean.class)) {
+				return false;
+			}
+			return null;
+		};
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private static Object getDirection(Class<?> type, boolean buy) throws ReflectiveOperationException {
+		for (Object constant : type.getEnumConstants()) {
+			if (Boolean.valueOf(buy).equals(type.getMethod("isBuy").invoke(constant))) {
+				return constant;
+			}
+		}
+		throw new IllegalStateException("No direction in " + type + " for buy=" + buy);
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.robindrew.trading.igindex.feed.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.robindrew.trading.igindex.IgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.analytics.AnalyticsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.board.PriceBoardWriter;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleAggregatorRegistry;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleFileWriter;
+import com.robindrew.trading.igindex.feed.igindex.conflate.ConflationConfig;
+import com.robindrew.trading.igindex.feed.igindex.conflate.ConflationRegistry;
+import com.robindrew.trading.igindex.feed.igindex.fanout.TickFanOutServer;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistoryRegistry;
+import com.robindrew.trading.igindex.feed.igindex.metrics.FeedMetrics;
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.OverflowPolicy;
+import com.robindrew.trading.igindex.feed.igindex.persist.SyncPolicy;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickPersistence;
+import com.robindrew.trading.igindex.feed.igindex.publish.PriceEventPublisher;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
+
+/**
+ * The cost on the streaming thread of fanning a tick out to the feed listeners, registered as
+ * IgIndexComponent.registerListeners does with the price board and fan-out server enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickFanOutBenchmark {
+
+	private static final int TICKS = 1024;
+
+	private File directory;
+	private TickStreamListener listener;
+	private TickPersistence persistence;
+	private ConflationRegistry conflation;
+	private CandleFileWriter candleWriter;
+	private PriceEventPublisher publisher;
+	private PriceBoardWriter priceBoard;
+	private TickFanOutServer fanOut;
+	private List<Tick> ticks;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("tick-fan-out-benchmark").toFile();
+		IgIndexInstrument instrument = IgIndexInstrument.SPOT_EUR_USD;
+		String name = instrument.getName();
+
+		InstrumentStatsRegistry statsRegistry = new InstrumentStatsRegistry();
+		SnapshotHistoryRegistry historyRegistry = new SnapshotHistoryRegistry(100000);
+		persistence = new TickPersistence(new NullTickWriter(), 1024 * 1024, 1024, OverflowPolicy.DROP, SyncPolicy.NONE, 0);
+		persistence.start();
+		FeedMetrics metrics = new FeedMetrics(statsRegistry, persistence);
+		AnalyticsRegistry analyticsRegistry = new AnalyticsRegistry();
+		conflation = new ConflationRegistry(ConflationConfig.parse("none"), Collections.emptyMap());
+		conflation.start(25);
+		candleWriter = new CandleFileWriter(directory);
+		candleWriter.start(1000);
+		CandleAggregatorRegistry candleRegistry = new CandleAggregatorRegistry(candleWriter);
+		publisher = new PriceEventPublisher(250);
+		publisher.start();
+		publisher.setPrecision(name, 5);
+		priceBoard = new PriceBoardWriter(new File(directory, "prices.board"), 1024);
+		fanOut = new TickFanOutServer("127.0.0.1", 0, 8192);
+		fanOut.start();
+
+		listener = new TickStreamListener(instrument);
+		listener.register(metrics.getInstrument(name));
+		listener.register(statsRegistry.getStats(name));
+		listener.register(analyticsRegistry.getAnalytics(name));
+		listener.register(historyRegistry.getHistory(name));
+		listener.register(persistence);
+		listener.register(new StartupTimings());
+		listener.register(priceBoard.getSlot(name));
+
+		TickStreamListener conflated = conflation.getStream(listener);
+		conflated.register(candleRegistry.getAggregator(name));
+		conflated.register(publisher);
+		conflated.register(fanOut);
+
+		ticks = new SyntheticTickGenerator(1, 1).next(TICKS);
+	}
+
+	@TearDown
+	public void tearDown() {
+		fanOut.close();
+		priceBoard.close();
+		publisher.close();
+		candleWriter.close();
+		conflation.close();
+		persistence.close();
+		delete(directory);
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TICKS)
+	public void publish() {
+		for (Tick tick : ticks) {
+			listener.publish(tick);
+		}
+	}
+
+	private static class NullTickWriter implements ITickWriter {
+
+		@Override
+		public void write(Tick tick) {
+		}
+
+		@Override
+		public void flush(boolean sync) {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.robindrew.trading.igindex.feed.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.robindrew.trading.igindex.feed.igindex.journal.TickJournalWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.MirrorTickWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.PriceCandleSinkWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileWriter;
+import com.robindrew.trading.igindex.feed.igindex.subscription.InstrumentLookup;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Tick sink write cost per tick, for each output format, with one flush per batch as done by the writer thread. The
+ * legacy sinks write streamed snapshots on their own threads, so LEGACY measures the line files plus the hand off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickWriterBenchmark {
+
+	private static final int BATCH = 1024;
+
+	@Param({ "LINES", "LEGACY", "JOURNAL" })
+	private String format;
+
+	private File directory;
+	private ITickWriter writer;
+	private List<Tick> ticks;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("tick-writer-benchmark").toFile();
+		SyntheticTickGenerator generator = new SyntheticTickGenerator(12, 1);
+		switch (format) {
+			case "JOURNAL":
+				writer = new TickJournalWriter(directory, 64L * 1024 * 1024);
+				ticks = generator.next(BATCH);
+				break;
+			case "LEGACY":
+				// As created by IgIndexComponent.createTickWriter
+				writer = new MirrorTickWriter(new TickFileWriter(directory), new PriceCandleSinkWriter(directory, new InstrumentLookup()::get));
+				ticks = generator.nextStreamed(BATCH);
+				break;
+			default:
+				writer = new TickFileWriter(directory);
+				ticks = generator.next(BATCH);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		writer.close();
+		delete(directory);
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void writeBatch() throws IOException {
+		for (Tick tick : ticks) {
+			writer.write(tick);
+		}
+		writer.flush(false);
+	}
+
+}
@@ -1,5 +1,16 @@
 package com.robindrew.trading.igindex.feed;
 
+import static com.robindrew.common.dependency.DependencyFactory.setDependency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.mbean.annotated.AnnotatedMBeanRegistry;
 import com.robindrew.common.service.AbstractService;
 import com.robindrew.common.service.component.heartbeat.HeartbeatComponent;
 import com.robindrew.common.service.component.logging.LoggingComponent;
@@ -7,6 +18,8 @@ import com.robindrew.common.service.component.properties.PropertiesComponent;
 import com.robindrew.common.service.component.stats.StatsComponent;
 import com.robindrew.trading.igindex.feed.igindex.IgIndexComponent;
 import com.robindrew.trading.igindex.feed.jetty.JettyComponent;
+import com.robindrew.trading.igindex.feed.startup.IStartupPhase;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
 
 public class IgIndexFeedService extends AbstractService {
 
@@ -24,6 +37,7 @@ public class IgIndexFeedService extends AbstractService {
 	private final LoggingComponent logging = new LoggingComponent();
 	private final StatsComponent stats = new StatsComponent();
 	private final IgIndexComponent igindex = new IgIndexComponent();
+	private final StartupTimings timings = new StartupTimings();
 
 	public IgIndexFeedService(String[] args) {
 		super(args);
@@ -31,16 +45,44 @@ public class IgIndexFeedService extends AbstractService {
 
 	@Override
 	protected void startupService() throws Exception {
-		start(properties);
-		start(logging);
-		start(heartbeat);
-		start(stats);
-		start(jetty);
-		start(igindex);
+		setDependency(StartupTimings.class, timings);
+
+		// Everything else depends on the properties and logging
+		timings.run("properties", () -> start(properties));
+		timings.run("logging", () -> start(logging));
+		new AnnotatedMBeanRegistry().register(timings);
+
+		// The remaining components are independent, jetty serves a warming up state until igindex is ready
+		ExecutorService executor = Executors.newFixedThreadPool(4, new ThreadFactoryBuilder().setNameFormat("Startup-%d").setDaemon(true).build());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			futures.add(submit(executor, "heartbeat", () -> start(heartbeat)));
+			futures.add(submit(executor, "stats", () -> start(stats)));
+			futures.add(submit(executor, "jetty", () -> start(jetty)));
+			futures.add(submit(executor, "igindex", () -> start(igindex)));
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			timings.failed();
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		} finally {
+			executor.shutdown();
+		}
+		timings.ready();
+	}
+
+	private Future<?> submit(ExecutorService executor, String phase, IStartupPhase task) {
+		return executor.submit(() -> {
+			timings.run(phase, task);
+			return null;
+		});
 	}
 
 	@Override
 	protected void shutdownService() throws Exception {
+		// Stop capture first so the queues are drained and the checkpoint saved
+		stop(igindex);
 		stop(jetty);
 		stop(heartbeat);
 	}
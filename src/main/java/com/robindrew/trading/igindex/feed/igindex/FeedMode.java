@@ -0,0 +1,10 @@
+package com.robindrew.trading.igindex.feed.igindex;
+
+public enum FeedMode {
+
+	/** Stream live prices from IG. */
+	LIVE,
+	/** Replay recorded ticks from disk, without connecting to IG. */
+	REPLAY;
+
+}
@@ -4,24 +4,80 @@ import static com.robindrew.common.dependency.DependencyFactory.getDependency;
 import static com.robindrew.common.dependency.DependencyFactory.setDependency;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.robindrew.common.mbean.IMBeanRegistry;
 import com.robindrew.common.mbean.annotated.AnnotatedMBeanRegistry;
+import com.robindrew.common.properties.map.type.BooleanProperty;
+import com.robindrew.common.properties.map.type.DoubleProperty;
 import com.robindrew.common.properties.map.type.EnumProperty;
 import com.robindrew.common.properties.map.type.FileProperty;
 import com.robindrew.common.properties.map.type.IProperty;
+import com.robindrew.common.properties.map.type.IntegerProperty;
+import com.robindrew.common.properties.map.type.LongProperty;
 import com.robindrew.common.properties.map.type.StringProperty;
 import com.robindrew.common.service.component.AbstractIdleComponent;
-import com.robindrew.trading.igindex.IIgIndexInstrument;
-import com.robindrew.trading.igindex.IgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.analytics.AnalyticsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.board.PriceBoardWriter;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleAggregatorRegistry;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleFileWriter;
+import com.robindrew.trading.igindex.feed.igindex.checkpoint.StateCheckpoint;
+import com.robindrew.trading.igindex.feed.igindex.conflate.ConflationConfig;
+import com.robindrew.trading.igindex.feed.igindex.conflate.ConflationRegistry;
 import com.robindrew.trading.igindex.feed.igindex.connection.ConnectionManager;
+import com.robindrew.trading.igindex.feed.igindex.connection.ConnectionSupervisor;
 import com.robindrew.trading.igindex.feed.igindex.connection.IConnectionManager;
+import com.robindrew.trading.igindex.feed.igindex.connection.TimedCaller;
+import com.robindrew.trading.igindex.feed.igindex.fanout.TickFanOutServer;
+import com.robindrew.trading.igindex.feed.igindex.gap.GapBackfiller;
+import com.robindrew.trading.igindex.feed.igindex.gap.GapLog;
+import com.robindrew.trading.igindex.feed.igindex.gap.GapRecorder;
+import com.robindrew.trading.igindex.feed.igindex.gap.MarketHours;
+import com.robindrew.trading.igindex.feed.igindex.gap.RestPriceHistorySource;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistoryRegistry;
+import com.robindrew.trading.igindex.feed.igindex.journal.TickJournalWriter;
+import com.robindrew.trading.igindex.feed.igindex.markets.MarketsCache;
+import com.robindrew.trading.igindex.feed.igindex.metrics.FeedMetrics;
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.MirrorTickWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.OverflowPolicy;
+import com.robindrew.trading.igindex.feed.igindex.persist.PriceCandleSinkWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.SyncPolicy;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickCompactor;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileQuery;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileWriter;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickOutputFormat;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickPersistence;
+import com.robindrew.trading.igindex.feed.igindex.publish.PriceEventPublisher;
+import com.robindrew.trading.igindex.feed.igindex.replay.ReplayTickSource;
 import com.robindrew.trading.igindex.feed.igindex.session.SessionManager;
+import com.robindrew.trading.igindex.feed.igindex.shard.Shard;
+import com.robindrew.trading.igindex.feed.igindex.shard.ShardRegistry;
+import com.robindrew.trading.igindex.feed.igindex.shard.ShardSubscriptions;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ISubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ITickSource;
+import com.robindrew.trading.igindex.feed.igindex.subscription.InstrumentLookup;
+import com.robindrew.trading.igindex.feed.igindex.subscription.Subscription;
+import com.robindrew.trading.igindex.feed.igindex.subscription.SubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+import com.robindrew.trading.igindex.feed.igindex.translog.RotatingTransactionLog;
+import com.robindrew.trading.igindex.feed.igindex.translog.TransactionLogRules;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
 import com.robindrew.trading.igindex.platform.IIgIndexSession;
-import com.robindrew.trading.igindex.platform.IIgIndexTradingPlatform;
 import com.robindrew.trading.igindex.platform.IgIndexCredentials;
 import com.robindrew.trading.igindex.platform.IgIndexEnvironment;
 import com.robindrew.trading.igindex.platform.IgIndexSession;
@@ -30,30 +86,262 @@ import com.robindrew.trading.igindex.platform.rest.IIgIndexRestService;
 import com.robindrew.trading.igindex.platform.rest.IgIndexRestService;
 import com.robindrew.trading.igindex.platform.rest.executor.getmarketnavigation.cache.IMarketNavigationCache;
 import com.robindrew.trading.igindex.platform.streaming.IgIndexStreamingServiceMonitor;
-import com.robindrew.trading.log.FileBackedTransactionLog;
-import com.robindrew.trading.platform.ITradingPlatform;
-import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
-import com.robindrew.trading.platform.streaming.IStreamingService;
-import com.robindrew.trading.price.candle.io.stream.sink.PriceCandleFileSink;
-import com.robindrew.trading.price.precision.PricePrecision;
 
 public class IgIndexComponent extends AbstractIdleComponent {
 
 	private static final Logger log = LoggerFactory.getLogger(IgIndexComponent.class);
 
+	private static final IProperty<FeedMode> propertyFeedMode = new EnumProperty<>(FeedMode.class, "feed.mode").defaultValue(FeedMode.LIVE);
+	private static final IProperty<String> propertyReplayInputDir = new StringProperty("replay.input.dir").defaultValue("");
+	private static final IProperty<String> propertyReplayFrom = new StringProperty("replay.from");
+	private static final IProperty<String> propertyReplayTo = new StringProperty("replay.to").defaultValue("");
+	private static final IProperty<Double> propertyReplaySpeed = new DoubleProperty("replay.speed").defaultValue(1.0);
+	private static final IProperty<Boolean> propertyReplayLoop = new BooleanProperty("replay.loop").defaultValue(false);
 	private static final IProperty<String> propertyApiKey = new StringProperty("igindex.api.key");
 	private static final IProperty<String> propertyUsername = new StringProperty("igindex.username");
 	private static final IProperty<String> propertyPassword = new StringProperty("igindex.password");
 	private static final IProperty<IgIndexEnvironment> propertyEnvironment = new EnumProperty<>(IgIndexEnvironment.class, "igindex.environment");
+	private static final IProperty<Integer> propertyShards = new IntegerProperty("igindex.shards").defaultValue(1);
+	private static final IProperty<Integer> propertyShardVirtualNodes = new IntegerProperty("igindex.shard.virtual.nodes").defaultValue(100);
 	private static final IProperty<String> propertyTickOutputDir = new StringProperty("tick.output.dir");
+	private static final IProperty<TickOutputFormat> propertyTickOutputFormat = new EnumProperty<>(TickOutputFormat.class, "tick.output.format").defaultValue(TickOutputFormat.LINES);
+	private static final IProperty<Long> propertyTickJournalSegmentSize = new LongProperty("tick.journal.segment.size").defaultValue(256L * 1024 * 1024);
 	private static final IProperty<File> propertyTransactionLogDir = new FileProperty("transaction.log.dir");
+	private static final IProperty<String> propertyTransactionLogRules = new StringProperty("transaction.log.rules").defaultValue("getmarkets=0.01");
+	private static final IProperty<Integer> propertyTransactionLogQueueCapacity = new IntegerProperty("transaction.log.queue.capacity").defaultValue(65536);
+	private static final IProperty<Long> propertyTransactionLogSegmentSize = new LongProperty("transaction.log.segment.size").defaultValue(64L * 1024 * 1024);
+	private static final IProperty<Long> propertyTransactionLogSegmentMinutes = new LongProperty("transaction.log.segment.minutes").defaultValue(60L);
+	private static final IProperty<Integer> propertyTransactionLogRetainDays = new IntegerProperty("transaction.log.retain.days").defaultValue(30);
+	private static final IProperty<String> propertySubscriptionsFile = new StringProperty("igindex.subscriptions.file").defaultValue("");
+	private static final IProperty<String> propertySubscriptions = new StringProperty("igindex.subscriptions").defaultValue("");
+	private static final IProperty<Integer> propertySubscribeBatchSize = new IntegerProperty("igindex.subscribe.batch.size").defaultValue(50);
+	private static final IProperty<Integer> propertySubscribeThreads = new IntegerProperty("igindex.subscribe.threads").defaultValue(8);
+	private static final IProperty<Integer> propertyHistoryCapacity = new IntegerProperty("history.capacity").defaultValue(100000);
+	private static final IProperty<Integer> propertyHistoryHeapCapacity = new IntegerProperty("history.heap.capacity").defaultValue(1);
+	private static final IProperty<String> propertyCheckpointFile = new StringProperty("checkpoint.file").defaultValue("");
+	private static final IProperty<Long> propertyCheckpointInterval = new LongProperty("checkpoint.interval.seconds").defaultValue(60L);
+	private static final IProperty<Integer> propertyCheckpointHistorySize = new IntegerProperty("checkpoint.history.size").defaultValue(1000);
+	private static final IProperty<Long> propertyConnectionCheckInterval = new LongProperty("connection.check.interval").defaultValue(5000L);
+	private static final IProperty<Long> propertyConnectionStaleThreshold = new LongProperty("connection.stale.threshold").defaultValue(60000L);
+	private static final IProperty<Long> propertyConnectionBackoffInitial = new LongProperty("connection.backoff.initial").defaultValue(1000L);
+	private static final IProperty<Long> propertyConnectionBackoffMaximum = new LongProperty("connection.backoff.maximum").defaultValue(300000L);
+	private static final IProperty<Integer> propertyGapRetain = new IntegerProperty("gap.retain").defaultValue(1000);
+	private static final IProperty<String> propertyMarketHours = new StringProperty("market.hours").defaultValue("SUN 22:00-FRI 22:00");
+	private static final IProperty<String> propertyMarketHoursInstruments = new StringProperty("market.hours.instruments").defaultValue("");
+	private static final IProperty<Boolean> propertyBackfillEnabled = new BooleanProperty("backfill.enabled").defaultValue(true);
+	private static final IProperty<Integer> propertyBackfillRequestsPerMinute = new IntegerProperty("backfill.requests.per.minute").defaultValue(6);
+	private static final IProperty<Integer> propertyBackfillChunkMinutes = new IntegerProperty("backfill.chunk.minutes").defaultValue(60);
+	private static final IProperty<Long> propertyCandleFlushInterval = new LongProperty("candle.flush.interval").defaultValue(1000L);
+	private static final IProperty<Long> propertyPricesPushInterval = new LongProperty("prices.push.interval").defaultValue(250L);
+	private static final IProperty<Long> propertyMarketsCacheSize = new LongProperty("markets.cache.size").defaultValue(1000L);
+	private static final IProperty<Long> propertyMarketsCacheRefresh = new LongProperty("markets.cache.refresh.seconds").defaultValue(300L);
+	private static final IProperty<Long> propertyMarketsCacheExpiry = new LongProperty("markets.cache.expiry.seconds").defaultValue(900L);
+	private static final IProperty<Long> propertyRestCallTimeout = new LongProperty("rest.call.timeout").defaultValue(10000L);
+	private static final IProperty<Integer> propertyRestCallThreads = new IntegerProperty("rest.call.threads").defaultValue(4);
+	private static final IProperty<Integer> propertyMarketsCacheThreads = new IntegerProperty("markets.cache.threads").defaultValue(4);
+	private static final IProperty<Integer> propertyTickQueueCapacity = new IntegerProperty("tick.queue.capacity").defaultValue(65536);
+	private static final IProperty<Integer> propertyTickBatchSize = new IntegerProperty("tick.batch.size").defaultValue(1024);
+	private static final IProperty<OverflowPolicy> propertyTickOverflowPolicy = new EnumProperty<>(OverflowPolicy.class, "tick.overflow.policy").defaultValue(OverflowPolicy.DROP);
+	private static final IProperty<SyncPolicy> propertyTickSyncPolicy = new EnumProperty<>(SyncPolicy.class, "tick.sync.policy").defaultValue(SyncPolicy.INTERVAL);
+	private static final IProperty<Long> propertyTickSyncInterval = new LongProperty("tick.sync.interval").defaultValue(1000L);
+	private static final IProperty<Long> propertyTickCompactInterval = new LongProperty("tick.compact.interval.minutes").defaultValue(60L);
+	private static final IProperty<String> propertyConflation = new StringProperty("conflation.default").defaultValue("none");
+	private static final IProperty<String> propertyConflationInstruments = new StringProperty("conflation.instruments").defaultValue("");
+	private static final IProperty<Long> propertyConflationFlushInterval = new LongProperty("conflation.flush.interval").defaultValue(25L);
+	private static final IProperty<String> propertyPriceBoardFile = new StringProperty("price.board.file").defaultValue("");
+	private static final IProperty<Integer> propertyPriceBoardSlots = new IntegerProperty("price.board.slots").defaultValue(1024);
+	private static final IProperty<Integer> propertyFanOutPort = new IntegerProperty("fanout.port").defaultValue(0);
+	private static final IProperty<String> propertyFanOutHost = new StringProperty("fanout.host").defaultValue("127.0.0.1");
+	private static final IProperty<Integer> propertyFanOutQueueCapacity = new IntegerProperty("fanout.queue.capacity").defaultValue(8192);
 
-	private volatile IgIndexStreamingServiceMonitor monitor;
+	private volatile ShardRegistry shards;
+	private volatile PriceEventPublisher publisher;
+	private volatile InstrumentStatsRegistry statsRegistry;
+	private volatile SnapshotHistoryRegistry historyRegistry;
+	private volatile AnalyticsRegistry analyticsRegistry;
+	private volatile MarketsCache marketsCache;
+	private volatile TickPersistence persistence;
+	private volatile FeedMetrics metrics;
+	private volatile CandleFileWriter candleWriter;
+	private volatile CandleAggregatorRegistry candleRegistry;
+	private volatile SubscriptionManager subscriptionManager;
+	private volatile TickFanOutServer fanOut;
+	private volatile PriceBoardWriter priceBoard;
+	private volatile ConflationRegistry conflation;
+	private volatile TickCompactor compactor;
+	private volatile StateCheckpoint checkpoint;
+	private volatile ReplayTickSource replay;
+	private volatile IConnectionManager connectionManager;
+	private volatile TimedCaller restCaller;
+	private volatile IIgIndexRestService rest;
+	private volatile GapBackfiller backfiller;
+	private volatile StartupTimings timings;
+	private final List<RotatingTransactionLog> transactionLogs = new CopyOnWriteArrayList<>();
 
 	@Override
 	protected void startupComponent() throws Exception {
 		IMBeanRegistry registry = new AnnotatedMBeanRegistry();
+		timings = getDependency(StartupTimings.class);
 
+		FeedMode mode = propertyFeedMode.get();
+		log.info("Mode: {}", mode);
+		setDependency(FeedMode.class, mode);
+		File outputDir = getOutputDir(mode);
+
+		ITickSource source;
+		Future<Boolean> login = null;
+		ExecutorService startup = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("IgIndexStartup").setDaemon(true).build());
+		if (mode.equals(FeedMode.REPLAY)) {
+			log.info("Creating Replay Source");
+			replay = createReplaySource();
+			registry.register(replay);
+			source = replay;
+		} else {
+			timings.run("igindex.session", () -> startupLive(registry));
+			source = shards;
+
+			// Log in while the local pipeline is built, subscribing waits for both
+			log.info("Logging in ...");
+			login = startup.submit(() -> timings.call("igindex.login", shards::login));
+		}
+
+		log.info("Creating Instrument Stats");
+		statsRegistry = new InstrumentStatsRegistry();
+		setDependency(InstrumentStatsRegistry.class, statsRegistry);
+
+		log.info("Creating Snapshot History");
+		historyRegistry = new SnapshotHistoryRegistry(propertyHistoryCapacity.get());
+		setDependency(SnapshotHistoryRegistry.class, historyRegistry);
+
+		if (mode.equals(FeedMode.LIVE)) {
+			log.info("Restoring Checkpoint");
+			timings.begin("igindex.checkpoint");
+			String checkpointFile = propertyCheckpointFile.get();
+			File file = checkpointFile.isEmpty() ? new File(outputDir, "checkpoint.bin") : new File(checkpointFile);
+			checkpoint = new StateCheckpoint(file, statsRegistry, historyRegistry, propertyCheckpointHistorySize.get());
+			checkpoint.restore();
+			checkpoint.start(propertyCheckpointInterval.get());
+			registry.register(checkpoint);
+			timings.end("igindex.checkpoint");
+		}
+
+		log.info("Creating Tick Persistence");
+		timings.begin("igindex.persistence");
+		TickOutputFormat format = propertyTickOutputFormat.get();
+		if (mode.equals(FeedMode.REPLAY) && format.equals(TickOutputFormat.LEGACY)) {
+			// Replayed ticks were not streamed, so have no snapshot for the legacy sinks
+			log.warn("Tick Output Format {} is not supported in replay, writing {}", format, TickOutputFormat.LINES);
+			format = TickOutputFormat.LINES;
+		}
+		log.info("Tick Output Format: {}", format);
+		TickFileWriter lineWriter = format.hasLineFiles() ? new TickFileWriter(outputDir) : null;
+		ITickWriter writer = createTickWriter(outputDir, format, lineWriter);
+		persistence = new TickPersistence(writer, propertyTickQueueCapacity.get(), propertyTickBatchSize.get(), propertyTickOverflowPolicy.get(), propertyTickSyncPolicy.get(), propertyTickSyncInterval.get());
+		persistence.start();
+		registry.register(persistence);
+		TickFileQuery query = new TickFileQuery(outputDir);
+		setDependency(TickFileQuery.class, query);
+		setDependency(TickOutputFormat.class, format);
+
+		if (lineWriter != null) {
+			log.info("Creating Tick Compactor");
+			compactor = new TickCompactor(outputDir, query, lineWriter);
+			compactor.start(propertyTickCompactInterval.get());
+			registry.register(compactor);
+		}
+		timings.end("igindex.persistence");
+
+		log.info("Creating Metrics");
+		timings.begin("igindex.pipeline");
+		metrics = new FeedMetrics(statsRegistry, persistence);
+		registry.register(metrics);
+		setDependency(FeedMetrics.class, metrics);
+
+		log.info("Creating Analytics");
+		analyticsRegistry = new AnalyticsRegistry();
+		registry.register(analyticsRegistry);
+		setDependency(AnalyticsRegistry.class, analyticsRegistry);
+
+		log.info("Creating Conflation");
+		conflation = new ConflationRegistry(ConflationConfig.parse(propertyConflation.get()), ConflationConfig.parseOverrides(propertyConflationInstruments.get()));
+		conflation.start(propertyConflationFlushInterval.get());
+		registry.register(conflation);
+
+		log.info("Creating Candle Aggregation");
+		candleWriter = new CandleFileWriter(outputDir);
+		candleWriter.start(propertyCandleFlushInterval.get());
+		candleRegistry = new CandleAggregatorRegistry(candleWriter);
+		setDependency(CandleAggregatorRegistry.class, candleRegistry);
+
+		log.info("Creating Price Event Publisher");
+		publisher = new PriceEventPublisher(propertyPricesPushInterval.get());
+		publisher.start();
+		setDependency(PriceEventPublisher.class, publisher);
+
+		String priceBoardFile = propertyPriceBoardFile.get();
+		if (!priceBoardFile.isEmpty()) {
+			log.info("Creating Price Board");
+			priceBoard = new PriceBoardWriter(new File(priceBoardFile), propertyPriceBoardSlots.get());
+			registry.register(priceBoard);
+		}
+
+		int fanOutPort = propertyFanOutPort.get();
+		if (fanOutPort > 0) {
+			log.info("Creating Tick Fan-Out Server");
+			fanOut = new TickFanOutServer(propertyFanOutHost.get(), fanOutPort, propertyFanOutQueueCapacity.get());
+			fanOut.start();
+			registry.register(fanOut);
+		}
+
+		timings.end("igindex.pipeline");
+
+		if (login != null && !login.get()) {
+			log.warn("Login failed, the connection supervisors will retry");
+		}
+		startup.shutdown();
+
+		log.info("Subscribing ...");
+		timings.begin("igindex.subscribe");
+		subscriptionManager = new SubscriptionManager(source, this::registerListeners, propertySubscriptionsFile.get(), propertySubscriptions.get(), propertySubscribeBatchSize.get(), propertySubscribeThreads.get());
+		registry.register(subscriptionManager);
+		setDependency(ISubscriptionManager.class, subscriptionManager);
+		int subscribed = subscriptionManager.subscribeAll(subscriptionManager.loadConfig());
+		log.info("Subscribed to {} instruments", subscribed);
+		timings.end("igindex.subscribe");
+
+		if (mode.equals(FeedMode.REPLAY)) {
+			replay.start();
+			return;
+		}
+
+		log.info("Creating Streaming Service Monitors");
+		for (Shard shard : shards.getShardList()) {
+			shard.startMonitor();
+		}
+
+		log.info("Creating Connection Supervisors");
+		MarketHours marketHours = new MarketHours(propertyMarketHours.get(), propertyMarketHoursInstruments.get());
+		GapLog gapLog = new GapLog(propertyGapRetain.get());
+		gapLog.addListener(new GapRecorder(new File(outputDir, "gaps.csv")));
+		setDependency(GapLog.class, gapLog);
+		if (propertyBackfillEnabled.get()) {
+			log.info("Creating Gap Backfiller");
+			backfiller = new GapBackfiller(new RestPriceHistorySource(rest), marketHours, outputDir, propertyBackfillRequestsPerMinute.get(), propertyBackfillChunkMinutes.get());
+			backfiller.start();
+			gapLog.addListener(backfiller);
+			registry.register(backfiller);
+		}
+		for (Shard shard : shards.getShardList()) {
+			// Each shard is supervised on its own, so a lost connection only affects the instruments on it
+			ShardSubscriptions subscriptions = new ShardSubscriptions(subscriptionManager, shards, shard);
+			ConnectionSupervisor supervisor = new ConnectionSupervisor(shard.getConnectionManager(), subscriptions, statsRegistry, gapLog, marketHours, propertyConnectionStaleThreshold.get(), propertyConnectionBackoffInitial.get(), propertyConnectionBackoffMaximum.get());
+			supervisor.start(propertyConnectionCheckInterval.get());
+			shard.setSupervisor(supervisor);
+		}
+		registry.register(shards.getPrimary().getSupervisor());
+	}
+
+	private void startupLive(IMBeanRegistry registry) throws Exception {
 		String apiKey = propertyApiKey.get();
 		String username = propertyUsername.get();
 		String password = propertyPassword.get();
@@ -73,84 +361,195 @@ public class IgIndexComponent extends AbstractIdleComponent {
 		registry.register(sessionManager);
 
 		log.info("Creating Transaction Log");
-		FileBackedTransactionLog transactionLog = new FileBackedTransactionLog(transactionLogDir);
-		transactionLog.start("IgIndexTransactionLog");
+		RotatingTransactionLog transactionLog = createTransactionLog(transactionLogDir, "IgIndexTransactionLog");
+		registry.register(transactionLog);
 
 		log.info("Creating REST Service");
 		IgIndexRestService rest = new IgIndexRestService(session, transactionLog);
+		this.rest = rest;
 		setDependency(IIgIndexRestService.class, rest);
 		setDependency(IMarketNavigationCache.class, rest.getMarketNavigationCache());
 
-		log.info("Creating Trading Platform");
-		IIgIndexTradingPlatform platform = new IgIndexTradingPlatform(rest);
-		setDependency(IIgIndexTradingPlatform.class, platform);
+		log.info("Creating Markets Cache");
+		marketsCache = new MarketsCache(rest, propertyMarketsCacheSize.get(), propertyMarketsCacheRefresh.get(), propertyMarketsCacheExpiry.get(), propertyMarketsCacheThreads.get());
+		registry.register(marketsCache);
+		setDependency(MarketsCache.class, marketsCache);
 
 		log.info("Creating Connection manager");
-		IConnectionManager connectionManager = new ConnectionManager(rest, platform);
+		restCaller = new TimedCaller("RestCall", propertyRestCallThreads.get(), 64, propertyRestCallTimeout.get());
+		setDependency(TimedCaller.class, restCaller);
+		connectionManager = new ConnectionManager(rest, () -> new IgIndexTradingPlatform(rest), marketsCache, restCaller);
 		registry.register(connectionManager);
 		setDependency(IConnectionManager.class, connectionManager);
 
-		log.info("Logging in ...");
-		connectionManager.login();
+		// The first session is shared with the REST queries, further sessions only stream prices
+		int shardCount = propertyShards.get();
+		log.info("Creating {} Shards", shardCount);
+		List<Shard> shardList = new ArrayList<>();
+		shardList.add(new Shard(0, session, connectionManager, propertyHistoryHeapCapacity.get()));
+		for (int index = 1; index < shardCount; index++) {
+			shardList.add(createShard(index, environment, transactionLogDir));
+		}
+		shards = new ShardRegistry(shardList, propertyShardVirtualNodes.get());
+		registry.register(shards);
+		setDependency(ShardRegistry.class, shards);
+	}
 
-		log.info("Subscribing ...");
-		createStreamingSubscriptions();
+	/**
+	 * Credentials for each additional shard are configured as "igindex.shard.N.username" and so on, defaulting to the
+	 * primary credentials.
+	 */
+	private Shard createShard(int index, IgIndexEnvironment environment, File transactionLogDir) {
+		String prefix = "igindex.shard." + index + ".";
+		String apiKey = new StringProperty(prefix + "api.key").defaultValue(propertyApiKey.get()).get();
+		String username = new StringProperty(prefix + "username").defaultValue(propertyUsername.get()).get();
+		String password = new StringProperty(prefix + "password").defaultValue(propertyPassword.get()).get();
+
+		IgIndexCredentials credentials = new IgIndexCredentials(apiKey, username, password);
+		log.info("Creating Shard #{} Session (User: {})", index, credentials.getUsername());
+		IgIndexSession session = new IgIndexSession(credentials, environment);
+
+		RotatingTransactionLog transactionLog = createTransactionLog(new File(transactionLogDir, "shard-" + index), "IgIndexTransactionLog-" + index);
+
+		IgIndexRestService rest = new IgIndexRestService(session, transactionLog);
+		ConnectionManager connectionManager = new ConnectionManager(rest, () -> new IgIndexTradingPlatform(rest), marketsCache, restCaller);
+		return new Shard(index, session, connectionManager, propertyHistoryHeapCapacity.get());
+	}
 
-		log.info("Creating Streaming Service Monitor");
-		monitor = new IgIndexStreamingServiceMonitor(platform);
-		monitor.start();
+	/**
+	 * REST exchanges are queued and written on a background thread, with rotated segments compressed and expired.
+	 */
+	private RotatingTransactionLog createTransactionLog(File directory, String name) {
+		TransactionLogRules rules = TransactionLogRules.parse(propertyTransactionLogRules.get());
+		long segmentMillis = TimeUnit.MINUTES.toMillis(propertyTransactionLogSegmentMinutes.get());
+		long retainMillis = TimeUnit.DAYS.toMillis(propertyTransactionLogRetainDays.get());
+		RotatingTransactionLog transactionLog = new RotatingTransactionLog(directory, name, rules, propertyTransactionLogQueueCapacity.get(), propertyTransactionLogSegmentSize.get(), segmentMillis, retainMillis);
+		transactionLog.start();
+		transactionLogs.add(transactionLog);
+		return transactionLog;
 	}
 
-	public IgIndexStreamingServiceMonitor getMonitor() {
-		return monitor;
+	/**
+	 * In replay mode ticks are written to a separate directory, so the recorded files being replayed are not modified.
+	 */
+	private File getOutputDir(FeedMode mode) {
+		File directory = new File(propertyTickOutputDir.get());
+		if (mode.equals(FeedMode.REPLAY) && getReplayInputDir().equals(directory)) {
+			directory = new File(directory.getPath() + ".replay");
+			log.info("Replay Output Directory: {}", directory);
+		}
+		return directory;
+	}
+
+	private File getReplayInputDir() {
+		String directory = propertyReplayInputDir.get();
+		return new File(directory.isEmpty() ? propertyTickOutputDir.get() : directory);
 	}
 
-	private void createStreamingSubscriptions() {
-		// createStreamingSubscription(IgInstrument.SUNDAY_DOW_JONES, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SUNDAY_FTSE_100, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SUNDAY_DAX, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SPOT_BITCOIN, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SPOT_ETHER, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SPOT_RIPPLE, new PricePrecision(2));
-		// createStreamingSubscription(IgInstrument.SPOT_LITECOIN, new PricePrecision(2));
-
-		// Currencies
-		createStreamingSubscription(IgIndexInstrument.SPOT_AUD_USD, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_EUR_JPY, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_EUR_USD, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_GBP_USD, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_USD_CHF, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_USD_JPY, new PricePrecision(2));
-
-		// Indices
-		createStreamingSubscription(IgIndexInstrument.WEEKDAY_FTSE_100, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.WEEKDAY_DOW_JONES, new PricePrecision(2));
-
-		// Commodities
-		createStreamingSubscription(IgIndexInstrument.SPOT_XAG_USD, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_XAU_USD, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_US_CRUDE, new PricePrecision(2));
-		createStreamingSubscription(IgIndexInstrument.SPOT_BRENT_CRUDE, new PricePrecision(2));
+	private ReplayTickSource createReplaySource() {
+		LocalDate from = LocalDate.parse(propertyReplayFrom.get(), DateTimeFormatter.BASIC_ISO_DATE);
+		String to = propertyReplayTo.get();
+		TickFileQuery query = new TickFileQuery(getReplayInputDir());
 
+		// Replay reads the line and block files, written by every format except the journal
+		if (query.getInstruments().isEmpty()) {
+			throw new IllegalStateException("No tick files to replay in " + query.getDirectory().getAbsolutePath() + ", replay requires ticks captured with tick.output.format=" + TickOutputFormat.LINES + " (the default) or " + TickOutputFormat.LEGACY);
+		}
+		return new ReplayTickSource(query, from, to.isEmpty() ? from : LocalDate.parse(to, DateTimeFormatter.BASIC_ISO_DATE), propertyReplaySpeed.get(), propertyReplayLoop.get());
+	}
+
+	private ITickWriter createTickWriter(File directory, TickOutputFormat format, TickFileWriter lineWriter) throws IOException {
+		switch (format) {
+			case JOURNAL:
+				return new TickJournalWriter(new File(directory, "journal"), propertyTickJournalSegmentSize.get());
+			case LEGACY:
+				if (propertyTickSyncPolicy.get() != SyncPolicy.NONE) {
+					log.warn("Tick sync policy {} applies to the line files only, the legacy files are flushed by their sinks", propertyTickSyncPolicy.get());
+				}
+				return new MirrorTickWriter(lineWriter, new PriceCandleSinkWriter(directory, new InstrumentLookup()::get));
+			default:
+				return lineWriter;
+		}
+	}
+
+	public IgIndexStreamingServiceMonitor getMonitor() {
+		return shards == null ? null : shards.getPrimary().getMonitor();
 	}
 
-	private void createStreamingSubscription(IIgIndexInstrument instrument, PricePrecision precision) {
-		ITradingPlatform<IIgIndexInstrument> platform = getDependency(ITradingPlatform.class);
+	private void registerListeners(Subscription subscription) {
+		TickStreamListener tickListener = subscription.getListener();
+		String instrument = subscription.getInstrument().getName();
+		publisher.setPrecision(instrument, subscription.getDecimalPlaces());
 
-		// Register the stream to make it available through the platform
-		IStreamingService<IIgIndexInstrument> streaming = platform.getStreamingService();
-		streaming.subscribeToPrices(instrument);
-		IInstrumentPriceStream<IIgIndexInstrument> priceStream = streaming.getPriceStream(instrument);
+		// Raw stream: every tick is measured, analysed, recorded and persisted
+		tickListener.register(metrics.getInstrument(instrument));
+		tickListener.register(statsRegistry.getStats(instrument));
+		tickListener.register(analyticsRegistry.getAnalytics(instrument));
+		tickListener.register(historyRegistry.getHistory(instrument));
+		tickListener.register(persistence);
+		tickListener.register(timings);
+		if (priceBoard != null) {
+			tickListener.register(priceBoard.getSlot(instrument));
+		}
 
-		// Create the output file
-		PriceCandleFileSink priceFileSink = new PriceCandleFileSink(instrument, new File(propertyTickOutputDir.get()));
-		priceFileSink.start();
-		priceStream.register(priceFileSink);
+		// Conflated stream
+		TickStreamListener conflated = conflation.getStream(tickListener);
+		conflated.register(candleRegistry.getAggregator(instrument));
+		conflated.register(publisher);
+		if (fanOut != null) {
+			conflated.register(fanOut);
+		}
 	}
 
 	@Override
 	protected void shutdownComponent() throws Exception {
-		// TODO: Cancel all subscriptions here
+		if (shards != null) {
+			shards.close();
+		}
+		if (backfiller != null) {
+			backfiller.close();
+		}
+		if (replay != null) {
+			replay.close();
+		}
+		if (subscriptionManager != null) {
+			subscriptionManager.close();
+		}
+		if (checkpoint != null) {
+			checkpoint.close();
+			checkpoint.save();
+		}
+		if (publisher != null) {
+			publisher.close();
+		}
+		if (fanOut != null) {
+			fanOut.close();
+		}
+		if (priceBoard != null) {
+			priceBoard.close();
+		}
+		if (conflation != null) {
+			conflation.close();
+		}
+		if (marketsCache != null) {
+			marketsCache.close();
+		}
+		if (restCaller != null) {
+			restCaller.close();
+		}
+		for (RotatingTransactionLog transactionLog : transactionLogs) {
+			transactionLog.close();
+		}
+		if (compactor != null) {
+			compactor.close();
+		}
+		if (persistence != null) {
+			persistence.close();
+		}
+		if (candleRegistry != null) {
+			candleRegistry.flush();
+			candleWriter.close();
+		}
 	}
 
 }
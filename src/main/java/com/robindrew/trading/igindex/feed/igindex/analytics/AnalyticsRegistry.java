@@ -0,0 +1,57 @@
+package com.robindrew.trading.igindex.feed.igindex.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AnalyticsRegistry implements AnalyticsRegistryMBean {
+
+	private final Map<String, InstrumentAnalytics> analyticsMap = new ConcurrentHashMap<>();
+
+	public InstrumentAnalytics getAnalytics(String instrument) {
+		return analyticsMap.computeIfAbsent(instrument, InstrumentAnalytics::new);
+	}
+
+	@Override
+	public int getInstrumentCount() {
+		return analyticsMap.size();
+	}
+
+	@Override
+	public List<String> getSummaries() {
+		long now = System.currentTimeMillis();
+		List<String> list = new ArrayList<>();
+		for (InstrumentAnalytics analytics : new TreeMap<>(analyticsMap).values()) {
+			list.add(analytics.getSummary(now));
+		}
+		return list;
+	}
+
+	@Override
+	public String getSummary(String instrument) {
+		return getAnalytics(instrument).getSummary(System.currentTimeMillis());
+	}
+
+	@Override
+	public double getVolatility1m(String instrument) {
+		return getAnalytics(instrument).getVolatility1m(System.currentTimeMillis());
+	}
+
+	@Override
+	public double getVolatility5m(String instrument) {
+		return getAnalytics(instrument).getVolatility5m(System.currentTimeMillis());
+	}
+
+	@Override
+	public double getVolatility1h(String instrument) {
+		return getAnalytics(instrument).getVolatility1h(System.currentTimeMillis());
+	}
+
+	@Override
+	public double getTickRateZScore(String instrument) {
+		return getAnalytics(instrument).getTickRateZScore(System.currentTimeMillis());
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.robindrew.trading.igindex.feed.igindex.analytics;
+
+import java.util.List;
+
+public interface AnalyticsRegistryMBean {
+
+	int getInstrumentCount();
+
+	List<String> getSummaries();
+
+	String getSummary(String instrument);
+
+	double getVolatility1m(String instrument);
+
+	double getVolatility5m(String instrument);
+
+	double getVolatility1h(String instrument);
+
+	double getTickRateZScore(String instrument);
+
+}
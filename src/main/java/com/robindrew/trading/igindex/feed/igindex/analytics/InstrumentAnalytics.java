@@ -0,0 +1,156 @@
+package com.robindrew.trading.igindex.feed.igindex.analytics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Derived analytics for a single instrument, maintained incrementally from the raw stream: the spread, the average mid,
+ * realised volatility of the mid over one minute, five minutes and an hour, and how unusual the current tick rate is
+ * compared with the last hour. Windows are measured on the local received time.
+ */
+public class InstrumentAnalytics implements ITickListener {
+
+	private static final int BUCKETS = 60;
+	private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+	private static final double BASIS_POINTS = 10000;
+
+	private final String instrument;
+
+	private final RollingWindow spread1m = new RollingWindow(BUCKETS, SECOND);
+	private final RollingWindow mid1m = new RollingWindow(BUCKETS, SECOND);
+	private final RollingWindow returns1m = new RollingWindow(BUCKETS, SECOND);
+	private final RollingWindow returns5m = new RollingWindow(BUCKETS, 5 * SECOND);
+	private final RollingWindow returns1h = new RollingWindow(BUCKETS, MINUTE);
+	private final RollingWindow ticks1h = new RollingWindow(BUCKETS, MINUTE);
+
+	private int lastMid = 0;
+	private int lastSpread = 0;
+	private int decimalPlaces = 0;
+	private long firstReceived = 0;
+
+	public InstrumentAnalytics(String instrument) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		update(tick.getReceived(), tick.getBid(), tick.getAsk(), tick.getMid(), tick.getDecimalPlaces());
+	}
+
+	public synchronized void update(long now, int bid, int ask, int mid, int decimalPlaces) {
+		if (firstReceived == 0) {
+			firstReceived = now;
+		}
+		int spread = ask - bid;
+		spread1m.add(now, spread);
+		mid1m.add(now, mid);
+		ticks1h.add(now, 1);
+
+		// A change of precision would look like a huge return, so the series restarts instead
+		if (lastMid > 0 && mid > 0 && decimalPlaces == this.decimalPlaces) {
+			double logReturn = Math.log((double) mid / lastMid);
+			returns1m.add(now, logReturn);
+			returns5m.add(now, logReturn);
+			returns1h.add(now, logReturn);
+		}
+
+		this.lastMid = mid;
+		this.lastSpread = spread;
+		this.decimalPlaces = decimalPlaces;
+	}
+
+	public synchronized boolean hasUpdated() {
+		return firstReceived != 0;
+	}
+
+	public synchronized int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public synchronized int getSpread() {
+		return lastSpread;
+	}
+
+	public synchronized double getAverageSpread(long now) {
+		return spread1m.getMean(now);
+	}
+
+	public synchronized double getMaxSpread(long now) {
+		return spread1m.getMax(now);
+	}
+
+	/**
+	 * The tick weighted average mid over the last minute, there being no traded volume to weight by.
+	 */
+	public synchronized double getAverageMid(long now) {
+		return mid1m.getMean(now);
+	}
+
+	public synchronized double getVolatility1m(long now) {
+		return volatility(returns1m, now);
+	}
+
+	public synchronized double getVolatility5m(long now) {
+		return volatility(returns5m, now);
+	}
+
+	public synchronized double getVolatility1h(long now) {
+		return volatility(returns1h, now);
+	}
+
+	/**
+	 * Realised volatility over the window, the root of the summed squared log returns, in basis points.
+	 */
+	private static double volatility(RollingWindow returns, long now) {
+		return Math.sqrt(returns.getSumOfSquares(now)) * BASIS_POINTS;
+	}
+
+	/**
+	 * The number of standard deviations the ticks in the current minute are from the mean of the previous complete
+	 * minutes within the hour since the first tick. Zero until there are at least two minutes to compare with. Like the
+	 * windows it is measured in whole seconds, so it only changes within a second when a tick arrives.
+	 */
+	public synchronized double getTickRateZScore(long now) {
+		int minutes = (int) Math.min(BUCKETS - 1, now / MINUTE - firstReceived / MINUTE);
+		if (firstReceived == 0 || minutes < 2) {
+			return 0;
+		}
+		double sum = 0;
+		double squares = 0;
+		for (int age = 1; age <= minutes; age++) {
+			long count = ticks1h.getBucketCount(now, age);
+			sum += count;
+			squares += count * count;
+		}
+		double mean = sum / minutes;
+		// Floored at the Poisson deviation, so a perfectly regular history does not make every change extreme
+		double deviation = Math.max(Math.sqrt(Math.max(0, squares / minutes - mean * mean)), Math.sqrt(mean));
+		if (deviation == 0) {
+			return 0;
+		}
+
+		// Scale the partial current minute to a full minute, counting the current second as elapsed
+		double elapsed = (double) (now % MINUTE / SECOND + 1) * SECOND / MINUTE;
+		double current = ticks1h.getBucketCount(now, 0) / elapsed;
+		return (current - mean) / deviation;
+	}
+
+	public synchronized String getSummary(long now) {
+		StringBuilder summary = new StringBuilder();
+		summary.append(instrument);
+		summary.append(" spread=").append(lastSpread);
+		summary.append(String.format(" (avg %.2f, max %.0f)", spread1m.getMean(now), spread1m.getMax(now)));
+		summary.append(String.format(" vol1m=%.2fbp vol5m=%.2fbp vol1h=%.2fbp", getVolatility1m(now), getVolatility5m(now), getVolatility1h(now)));
+		summary.append(String.format(" tickRateZ=%.2f", getTickRateZScore(now)));
+		return summary.toString();
+	}
+
+}
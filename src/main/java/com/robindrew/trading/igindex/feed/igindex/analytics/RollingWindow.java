@@ -0,0 +1,142 @@
+package com.robindrew.trading.igindex.feed.igindex.analytics;
+
+/**
+ * A rolling time window of fixed buckets over primitive arrays, holding the count, sum, sum of squares and maximum of
+ * the values added to each bucket. Buckets are recycled in place as time moves on, so neither adding nor reading
+ * allocates, and every read is constant time. Not thread safe.
+ */
+public class RollingWindow {
+
+	private final int buckets;
+	private final long bucketMillis;
+	private final long[] tags;
+	private final long[] counts;
+	private final double[] sums;
+	private final double[] squares;
+	private final double[] maxima;
+
+	public RollingWindow(int buckets, long bucketMillis) {
+		if (buckets < 2) {
+			throw new IllegalArgumentException("buckets=" + buckets);
+		}
+		if (bucketMillis < 1) {
+			throw new IllegalArgumentException("bucketMillis=" + bucketMillis);
+		}
+		this.buckets = buckets;
+		this.bucketMillis = bucketMillis;
+		this.tags = new long[buckets];
+		this.counts = new long[buckets];
+		this.sums = new double[buckets];
+		this.squares = new double[buckets];
+		this.maxima = new double[buckets];
+	}
+
+	public int getBuckets() {
+		return buckets;
+	}
+
+	public long getBucketMillis() {
+		return bucketMillis;
+	}
+
+	/**
+	 * The length of the window.
+	 */
+	public long getMillis() {
+		return buckets * bucketMillis;
+	}
+
+	public void add(long now, double value) {
+		long tag = now / bucketMillis;
+		int index = (int) (tag % buckets);
+		if (tags[index] != tag) {
+			tags[index] = tag;
+			counts[index] = 0;
+			sums[index] = 0;
+			squares[index] = 0;
+			maxima[index] = value;
+		}
+		counts[index]++;
+		sums[index] += value;
+		squares[index] += value * value;
+		if (value > maxima[index]) {
+			maxima[index] = value;
+		}
+	}
+
+	private boolean inWindow(int index, long tag) {
+		return tags[index] > tag - buckets && tags[index] <= tag;
+	}
+
+	public long getCount(long now) {
+		long tag = now / bucketMillis;
+		long count = 0;
+		for (int i = 0; i < buckets; i++) {
+			if (inWindow(i, tag)) {
+				count += counts[i];
+			}
+		}
+		return count;
+	}
+
+	public double getSum(long now) {
+		long tag = now / bucketMillis;
+		double sum = 0;
+		for (int i = 0; i < buckets; i++) {
+			if (inWindow(i, tag)) {
+				sum += sums[i];
+			}
+		}
+		return sum;
+	}
+
+	public double getSumOfSquares(long now) {
+		long tag = now / bucketMillis;
+		double sum = 0;
+		for (int i = 0; i < buckets; i++) {
+			if (inWindow(i, tag)) {
+				sum += squares[i];
+			}
+		}
+		return sum;
+	}
+
+	public double getMean(long now) {
+		long tag = now / bucketMillis;
+		long count = 0;
+		double sum = 0;
+		for (int i = 0; i < buckets; i++) {
+			if (inWindow(i, tag)) {
+				count += counts[i];
+				sum += sums[i];
+			}
+		}
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Returns the largest value in the window, or zero if it is empty.
+	 */
+	public double getMax(long now) {
+		long tag = now / bucketMillis;
+		boolean empty = true;
+		double max = 0;
+		for (int i = 0; i < buckets; i++) {
+			if (inWindow(i, tag) && counts[i] > 0 && (empty || maxima[i] > max)) {
+				max = maxima[i];
+				empty = false;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the count of the bucket the given number of buckets before the current one.
+	 */
+	public long getBucketCount(long now, int age) {
+		long tag = now / bucketMillis - age;
+		int index = (int) (tag % buckets);
+		return tags[index] == tag ? counts[index] : 0;
+	}
+
+}
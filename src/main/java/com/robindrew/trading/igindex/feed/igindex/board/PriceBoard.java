@@ -0,0 +1,54 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+/**
+ * The layout of the memory-mapped price board shared with other processes on the same host. Each instrument has a
+ * fixed slot guarded by a sequence lock: the writer makes the sequence odd, updates the fields and makes it even again,
+ * and a reader retries if the sequence was odd or changed while it read. All values are in native byte order.
+ *
+ * <pre>
+ * Header (128 bytes): magic(int) version(int) slotCount(int) slotSize(int) slotsUsed(int) open(int) created(long)
+ * Slot   (128 bytes): sequence(long) timestamp(long) bid(int) ask(int) decimalPlaces(int) padding(int)
+ *                     updateCount(long) nameLength(int) name(84 bytes, ASCII)
+ * </pre>
+ *
+ * Slots are two cache lines, so readers polling one instrument do not contend with writes to its neighbours. The
+ * ordered and volatile accesses go through {@link com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory}.
+ */
+public final class PriceBoard {
+
+	public static final int MAGIC = 0x50424F44; // PBOD
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 128;
+	public static final int SLOT_SIZE = 128;
+	public static final int MAX_NAME_LENGTH = 84;
+
+	static final int HEADER_MAGIC = 0;
+	static final int HEADER_VERSION = 4;
+	static final int HEADER_SLOT_COUNT = 8;
+	static final int HEADER_SLOT_SIZE = 12;
+	static final int HEADER_SLOTS_USED = 16;
+	static final int HEADER_OPEN = 20;
+	static final int HEADER_CREATED = 24;
+
+	static final int SLOT_SEQUENCE = 0;
+	static final int SLOT_TIMESTAMP = 8;
+	static final int SLOT_BID = 16;
+	static final int SLOT_ASK = 20;
+	static final int SLOT_DECIMAL_PLACES = 24;
+	static final int SLOT_UPDATE_COUNT = 32;
+	static final int SLOT_NAME_LENGTH = 40;
+	static final int SLOT_NAME = 44;
+
+	public static long getFileSize(int slotCount) {
+		return HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+	}
+
+	static long slotAddress(long base, int slot) {
+		return base + HEADER_SIZE + (long) slot * SLOT_SIZE;
+	}
+
+	private PriceBoard() {
+	}
+
+}
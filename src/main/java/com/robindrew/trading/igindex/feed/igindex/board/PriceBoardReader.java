@@ -0,0 +1,143 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+import static com.robindrew.trading.igindex.feed.igindex.board.PriceBoard.*;
+import static com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory.UNSAFE;
+import static com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory.address;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the latest prices from a price board written by another process. Reads take no locks and do not allocate: a
+ * slot is copied into a caller supplied {@link PriceBoardSlot}, retrying while the writer is part way through an
+ * update. Retries are bounded, so a writer that dies mid-update cannot hang its readers. Instances are not thread
+ * safe, but any number of readers can share a board.
+ */
+public class PriceBoardReader {
+
+	/** An update is a handful of stores, so this many attempts only fail if the writer has stopped mid-update. */
+	public static final int MAX_READ_ATTEMPTS = 1 << 16;
+
+	private final MappedByteBuffer buffer;
+	private final long base;
+	private final int slotCount;
+
+	public PriceBoardReader(File file) throws IOException {
+		try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+			buffer = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, access.length());
+		}
+
+		// The writer creates the file before sizing it, so a board still being created may be too short to read
+		if (buffer.capacity() < HEADER_SIZE) {
+			throw new IOException("Price board not ready: " + file);
+		}
+		base = address(buffer);
+		if (UNSAFE.getIntVolatile(null, base + HEADER_MAGIC) != MAGIC || UNSAFE.getInt(base + HEADER_VERSION) != VERSION) {
+			throw new IOException("Not a price board: " + file);
+		}
+		slotCount = UNSAFE.getInt(base + HEADER_SLOT_COUNT);
+		if (slotCount < 0 || UNSAFE.getInt(base + HEADER_SLOT_SIZE) != SLOT_SIZE || buffer.capacity() < getFileSize(slotCount)) {
+			throw new IOException("Invalid price board layout: " + file);
+		}
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	public int getSlotsUsed() {
+		return UNSAFE.getIntVolatile(null, base + HEADER_SLOTS_USED);
+	}
+
+	/**
+	 * Returns false once the writer has closed the board. A restarted writer creates a new board, with a new created
+	 * time, so readers should reopen the file.
+	 */
+	public boolean isOpen() {
+		return UNSAFE.getIntVolatile(null, base + HEADER_OPEN) == 1;
+	}
+
+	public long getCreated() {
+		return UNSAFE.getLong(base + HEADER_CREATED);
+	}
+
+	/**
+	 * Returns the instrument in the given slot, allocating a string, so intended for setup rather than polling.
+	 */
+	public String getInstrument(int slot) {
+		checkSlot(slot);
+		long address = slotAddress(base, slot);
+		int length = UNSAFE.getInt(address + SLOT_NAME_LENGTH);
+		if (length < 0 || length > MAX_NAME_LENGTH) {
+			throw new IllegalStateException("Invalid name length " + length + " in slot " + slot);
+		}
+		byte[] name = new byte[length];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = UNSAFE.getByte(address + SLOT_NAME + i);
+		}
+		return new String(name, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Returns the slot for the given instrument, or -1 if it is not on the board.
+	 */
+	public int indexOf(String instrument) {
+		int used = Math.min(getSlotsUsed(), slotCount);
+		for (int slot = 0; slot < used; slot++) {
+			if (getInstrument(slot).equals(instrument)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies a consistent view of the slot into the given holder.
+	 * @return false if the slot has never been written, or if no consistent view could be taken because the writer
+	 *         closed the board or stopped part way through an update.
+	 */
+	public boolean read(int slot, PriceBoardSlot into) {
+		checkSlot(slot);
+		long address = slotAddress(base, slot);
+		for (int attempt = 1; attempt <= MAX_READ_ATTEMPTS; attempt++) {
+			long sequence = UNSAFE.getLongVolatile(null, address + SLOT_SEQUENCE);
+			if ((sequence & 1) != 0) {
+				if (!isOpen()) {
+					return false;
+				}
+				continue;
+			}
+			into.timestamp = UNSAFE.getLong(address + SLOT_TIMESTAMP);
+			into.bid = UNSAFE.getInt(address + SLOT_BID);
+			into.ask = UNSAFE.getInt(address + SLOT_ASK);
+			into.decimalPlaces = UNSAFE.getInt(address + SLOT_DECIMAL_PLACES);
+			into.updateCount = UNSAFE.getLong(address + SLOT_UPDATE_COUNT);
+			UNSAFE.loadFence();
+			if (UNSAFE.getLong(address + SLOT_SEQUENCE) == sequence) {
+				into.sequence = sequence;
+				return sequence != 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the sequence of the given slot, which changes on every update, so a poller can cheaply check for a new
+	 * price before reading it.
+	 */
+	public long getSequence(int slot) {
+		checkSlot(slot);
+		return UNSAFE.getLongVolatile(null, slotAddress(base, slot) + SLOT_SEQUENCE);
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= slotCount) {
+			throw new IndexOutOfBoundsException("slot=" + slot + ", slotCount=" + slotCount);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+/**
+ * A reusable holder for a consistent copy of one price board slot.
+ */
+public class PriceBoardSlot {
+
+	long sequence;
+	long timestamp;
+	int bid;
+	int ask;
+	int decimalPlaces;
+	long updateCount;
+
+	/**
+	 * The sequence the values were read at, unchanged if the price has not been updated since.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public int getBid() {
+		return bid;
+	}
+
+	public int getAsk() {
+		return ask;
+	}
+
+	public int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public long getUpdateCount() {
+		return updateCount;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + timestamp + "," + bid + "," + ask + "," + decimalPlaces + "," + updateCount + "]";
+	}
+
+}
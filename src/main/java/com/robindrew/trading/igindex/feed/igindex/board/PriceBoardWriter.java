@@ -0,0 +1,180 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+import static com.robindrew.trading.igindex.feed.igindex.board.PriceBoard.*;
+import static com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory.UNSAFE;
+import static com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory.address;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Publishes the latest price of each instrument to a memory-mapped {@link PriceBoard} file, for processes on the same
+ * host to poll with a {@link PriceBoardReader}. Each instrument is given a slot the first time it is registered and
+ * keeps it for the life of the board. The board is created afresh on startup.
+ */
+public class PriceBoardWriter implements PriceBoardWriterMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceBoardWriter.class);
+
+	private final File file;
+	private final int slotCount;
+	private final MappedByteBuffer buffer;
+	private final long base;
+	private final Map<String, Slot> slotMap = new LinkedHashMap<>();
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	public PriceBoardWriter(File file, int slotCount) throws IOException {
+		if (slotCount < 1) {
+			throw new IllegalArgumentException("slotCount=" + slotCount);
+		}
+		this.file = Check.notNull("file", file);
+		this.slotCount = slotCount;
+
+		// Replace rather than reuse the file, so readers of a previous board keep a consistent view of it
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to delete: " + file);
+		}
+		try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+			access.setLength(getFileSize(slotCount));
+			buffer = access.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, getFileSize(slotCount));
+		}
+		base = address(buffer);
+
+		UNSAFE.putInt(base + HEADER_VERSION, VERSION);
+		UNSAFE.putInt(base + HEADER_SLOT_COUNT, slotCount);
+		UNSAFE.putInt(base + HEADER_SLOT_SIZE, SLOT_SIZE);
+		UNSAFE.putLong(base + HEADER_CREATED, System.currentTimeMillis());
+		UNSAFE.putInt(base + HEADER_OPEN, 1);
+		UNSAFE.putOrderedInt(null, base + HEADER_MAGIC, MAGIC);
+		log.info("Price board {} with {} slots", file, slotCount);
+	}
+
+	/**
+	 * Returns the listener that publishes ticks for the given instrument to its slot, assigning one if necessary. If
+	 * the board is full the ticks are counted as dropped.
+	 */
+	public synchronized ITickListener getSlot(String instrument) {
+		Slot slot = slotMap.get(instrument);
+		if (slot != null) {
+			return slot;
+		}
+		byte[] name = instrument.getBytes(StandardCharsets.US_ASCII);
+		if (slotMap.size() == slotCount || name.length > MAX_NAME_LENGTH) {
+			log.warn("No price board slot for {} ({} of {} slots used)", instrument, slotMap.size(), slotCount);
+			return tick -> droppedCount.incrementAndGet();
+		}
+
+		int index = slotMap.size();
+		slot = new Slot(instrument, slotAddress(base, index));
+		UNSAFE.putInt(slot.address + SLOT_NAME_LENGTH, name.length);
+		for (int i = 0; i < name.length; i++) {
+			UNSAFE.putByte(slot.address + SLOT_NAME + i, name[i]);
+		}
+		slotMap.put(instrument, slot);
+
+		// Publish the name before the slot becomes visible to readers
+		UNSAFE.putOrderedInt(null, base + HEADER_SLOTS_USED, slotMap.size());
+		return slot;
+	}
+
+	@Override
+	public String getFile() {
+		return file.getAbsolutePath();
+	}
+
+	@Override
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	@Override
+	public synchronized int getSlotsUsed() {
+		return slotMap.size();
+	}
+
+	@Override
+	public synchronized long getWriteCount() {
+		long count = 0;
+		for (Slot slot : slotMap.values()) {
+			count += slot.getUpdateCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	@Override
+	public synchronized List<String> getSlots() {
+		List<String> list = new ArrayList<>();
+		for (Slot slot : slotMap.values()) {
+			list.add(slot.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public void close() {
+		UNSAFE.putOrderedInt(null, base + HEADER_OPEN, 0);
+		buffer.force();
+	}
+
+	/**
+	 * A single instrument's slot. Each instrument's ticks arrive on one stream, so there is a single writer per slot.
+	 */
+	private class Slot implements ITickListener {
+
+		private final String instrument;
+		private final long address;
+		private long updateCount = 0;
+
+		private Slot(String instrument, long address) {
+			this.instrument = instrument;
+			this.address = address;
+		}
+
+		@Override
+		public void onTick(Tick tick) {
+			long sequence = UNSAFE.getLong(address + SLOT_SEQUENCE);
+			UNSAFE.putOrderedLong(null, address + SLOT_SEQUENCE, sequence + 1);
+			UNSAFE.storeFence();
+
+			UNSAFE.putLong(address + SLOT_TIMESTAMP, tick.getTimestamp());
+			UNSAFE.putInt(address + SLOT_BID, tick.getBid());
+			UNSAFE.putInt(address + SLOT_ASK, tick.getAsk());
+			UNSAFE.putInt(address + SLOT_DECIMAL_PLACES, tick.getDecimalPlaces());
+			UNSAFE.putLong(address + SLOT_UPDATE_COUNT, ++updateCount);
+
+			UNSAFE.putOrderedLong(null, address + SLOT_SEQUENCE, sequence + 2);
+		}
+
+		private long getUpdateCount() {
+			return UNSAFE.getLongVolatile(null, address + SLOT_UPDATE_COUNT);
+		}
+
+		@Override
+		public String toString() {
+			return instrument + "[updates=" + getUpdateCount() + "]";
+		}
+	}
+
+}
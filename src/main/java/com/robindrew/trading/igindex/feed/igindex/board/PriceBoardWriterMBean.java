@@ -0,0 +1,19 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+import java.util.List;
+
+public interface PriceBoardWriterMBean {
+
+	String getFile();
+
+	int getSlotCount();
+
+	int getSlotsUsed();
+
+	long getWriteCount();
+
+	long getDroppedCount();
+
+	List<String> getSlots();
+
+}
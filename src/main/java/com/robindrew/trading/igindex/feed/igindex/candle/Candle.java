@@ -0,0 +1,114 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+/**
+ * A mutable bar of bid and ask prices, updated in place so that aggregating ticks never allocates.
+ */
+public class Candle {
+
+	private long start = 0;
+	private int ticks = 0;
+	private int decimalPlaces = 0;
+	private int bidOpen;
+	private int bidHigh;
+	private int bidLow;
+	private int bidClose;
+	private int askOpen;
+	private int askHigh;
+	private int askLow;
+	private int askClose;
+
+	public void reset(long start) {
+		this.start = start;
+		this.ticks = 0;
+	}
+
+	public void update(int bid, int ask, int decimalPlaces) {
+		if (ticks == 0) {
+			bidOpen = bidHigh = bidLow = bid;
+			askOpen = askHigh = askLow = ask;
+		} else {
+			bidHigh = Math.max(bidHigh, bid);
+			bidLow = Math.min(bidLow, bid);
+			askHigh = Math.max(askHigh, ask);
+			askLow = Math.min(askLow, ask);
+		}
+		bidClose = bid;
+		askClose = ask;
+		this.decimalPlaces = decimalPlaces;
+		ticks++;
+	}
+
+	public void copyTo(Candle candle) {
+		candle.start = start;
+		candle.ticks = ticks;
+		candle.decimalPlaces = decimalPlaces;
+		candle.bidOpen = bidOpen;
+		candle.bidHigh = bidHigh;
+		candle.bidLow = bidLow;
+		candle.bidClose = bidClose;
+		candle.askOpen = askOpen;
+		candle.askHigh = askHigh;
+		candle.askLow = askLow;
+		candle.askClose = askClose;
+	}
+
+	public boolean isEmpty() {
+		return ticks == 0;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public int getTicks() {
+		return ticks;
+	}
+
+	public int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public int getBidOpen() {
+		return bidOpen;
+	}
+
+	public int getBidHigh() {
+		return bidHigh;
+	}
+
+	public int getBidLow() {
+		return bidLow;
+	}
+
+	public int getBidClose() {
+		return bidClose;
+	}
+
+	public int getAskOpen() {
+		return askOpen;
+	}
+
+	public int getAskHigh() {
+		return askHigh;
+	}
+
+	public int getAskLow() {
+		return askLow;
+	}
+
+	public int getAskClose() {
+		return askClose;
+	}
+
+	/**
+	 * Appends the candle as {@code start,bidOpen,bidHigh,bidLow,bidClose,askOpen,askHigh,askLow,askClose,ticks,decimalPlaces}.
+	 */
+	public StringBuilder appendTo(StringBuilder line) {
+		line.append(start).append(',');
+		line.append(bidOpen).append(',').append(bidHigh).append(',').append(bidLow).append(',').append(bidClose).append(',');
+		line.append(askOpen).append(',').append(askHigh).append(',').append(askLow).append(',').append(askClose).append(',');
+		line.append(ticks).append(',').append(decimalPlaces);
+		return line;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Rolls the ticks for a single instrument into candles at every {@link CandleResolution} at once. Each resolution has
+ * one partial candle that is updated in place, and handed to the sink when a tick arrives in the next period.
+ */
+public class CandleAggregator implements ITickListener {
+
+	private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+
+	private final String instrument;
+	private final ICandleSink sink;
+	private final Candle[] partials = new Candle[RESOLUTIONS.length];
+
+	public CandleAggregator(String instrument, ICandleSink sink) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+		this.sink = Check.notNull("sink", sink);
+		for (int i = 0; i < partials.length; i++) {
+			partials[i] = new Candle();
+		}
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	@Override
+	public synchronized void onTick(Tick tick) {
+		long timestamp = tick.getTimestamp();
+		for (int i = 0; i < RESOLUTIONS.length; i++) {
+			CandleResolution resolution = RESOLUTIONS[i];
+			Candle partial = partials[i];
+
+			long start = resolution.getStart(timestamp);
+			if (start > partial.getStart()) {
+				if (!partial.isEmpty()) {
+					sink.completed(instrument, resolution, partial);
+				}
+				partial.reset(start);
+			}
+			partial.update(tick.getBid(), tick.getAsk(), tick.getDecimalPlaces());
+		}
+	}
+
+	/**
+	 * Copy the current partial candle at the given resolution.
+	 * @return false if there is no partial candle.
+	 */
+	public synchronized boolean getPartial(CandleResolution resolution, Candle copy) {
+		Candle partial = partials[resolution.ordinal()];
+		if (partial.isEmpty()) {
+			return false;
+		}
+		partial.copyTo(copy);
+		return true;
+	}
+
+	/**
+	 * Complete any partial candles, used on shutdown.
+	 */
+	public synchronized void flush() {
+		for (int i = 0; i < RESOLUTIONS.length; i++) {
+			Candle partial = partials[i];
+			if (!partial.isEmpty()) {
+				sink.completed(instrument, RESOLUTIONS[i], partial);
+				partial.reset(0);
+			}
+		}
+	}
+
+}
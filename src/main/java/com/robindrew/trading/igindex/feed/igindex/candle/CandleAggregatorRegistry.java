@@ -0,0 +1,32 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.robindrew.common.util.Check;
+
+public class CandleAggregatorRegistry {
+
+	private final ICandleSink sink;
+	private final Map<String, CandleAggregator> aggregatorMap = new ConcurrentHashMap<>();
+
+	public CandleAggregatorRegistry(ICandleSink sink) {
+		this.sink = Check.notNull("sink", sink);
+	}
+
+	public CandleAggregator getAggregator(String instrument) {
+		return aggregatorMap.computeIfAbsent(instrument, name -> new CandleAggregator(name, sink));
+	}
+
+	public Map<String, CandleAggregator> getAggregators() {
+		return new TreeMap<>(aggregatorMap);
+	}
+
+	public void flush() {
+		for (CandleAggregator aggregator : aggregatorMap.values()) {
+			aggregator.flush();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileWriter;
+
+/**
+ * Persists completed candles as lines (see {@link Candle#appendTo(StringBuilder)}) to
+ * {@code <directory>/<instrument>/candles/<resolution>/<yyyyMMdd>.candles}. Candles are queued by the streaming thread
+ * and written in batches on a background thread.
+ */
+public class CandleFileWriter implements ICandleSink, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(CandleFileWriter.class);
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+	private final File directory;
+	private final Queue<String[]> queue = new ConcurrentLinkedQueue<>();
+	private final Map<String, Writer> writerMap = new HashMap<>();
+	private final ScheduledExecutorService executor;
+
+	public CandleFileWriter(File directory) {
+		this.directory = Check.notNull("directory", directory);
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("CandleFileWriter").setDaemon(true).build());
+	}
+
+	public void start(long flushInterval) {
+		executor.scheduleWithFixedDelay(this::drain, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void completed(String instrument, CandleResolution resolution, Candle candle) {
+		String day = DAY_FORMAT.format(TickFileWriter.toDay(candle.getStart()));
+		String path = instrument + File.separator + "candles" + File.separator + resolution.getLabel() + File.separator + day + ".candles";
+		String line = candle.appendTo(new StringBuilder(96)).append('\n').toString();
+		queue.offer(new String[] { path, line });
+	}
+
+	private synchronized void drain() {
+		try {
+			String[] entry;
+			while ((entry = queue.poll()) != null) {
+				getWriter(entry[0]).write(entry[1]);
+			}
+			for (Writer writer : writerMap.values()) {
+				writer.flush();
+			}
+		} catch (Exception e) {
+			log.warn("Failed to write candles", e);
+		}
+	}
+
+	private Writer getWriter(String path) throws IOException {
+		Writer writer = writerMap.get(path);
+		if (writer == null) {
+			// Candles arrive in time order, so a new file means the previous day is complete
+			closeWriters(path.substring(0, path.lastIndexOf(File.separatorChar)));
+
+			File file = new File(directory, path);
+			file.getParentFile().mkdirs();
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.US_ASCII));
+			writerMap.put(path, writer);
+		}
+		return writer;
+	}
+
+	private void closeWriters(String parent) throws IOException {
+		for (String path : writerMap.keySet().toArray(new String[0])) {
+			if (path.startsWith(parent + File.separator)) {
+				writerMap.remove(path).close();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		executor.shutdownNow();
+		drain();
+		for (Writer writer : writerMap.values()) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				log.warn("Failed to close candle file", e);
+			}
+		}
+		writerMap.clear();
+	}
+
+}
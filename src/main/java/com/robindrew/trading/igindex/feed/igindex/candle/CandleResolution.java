@@ -0,0 +1,32 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+import java.util.concurrent.TimeUnit;
+
+public enum CandleResolution {
+
+	SECOND_1("1s", TimeUnit.SECONDS.toMillis(1)),
+	MINUTE_1("1m", TimeUnit.MINUTES.toMillis(1)),
+	MINUTE_5("5m", TimeUnit.MINUTES.toMillis(5)),
+	HOUR_1("1h", TimeUnit.HOURS.toMillis(1));
+
+	private final String label;
+	private final long millis;
+
+	private CandleResolution(String label, long millis) {
+		this.label = label;
+		this.millis = millis;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	public long getStart(long timestamp) {
+		return timestamp - (timestamp % millis);
+	}
+
+}
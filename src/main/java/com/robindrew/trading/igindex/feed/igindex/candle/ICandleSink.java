@@ -0,0 +1,10 @@
+package com.robindrew.trading.igindex.feed.igindex.candle;
+
+public interface ICandleSink {
+
+	/**
+	 * Called with each completed candle. The candle is reused after this returns, so must be copied if retained.
+	 */
+	void completed(String instrument, CandleResolution resolution, Candle candle);
+
+}
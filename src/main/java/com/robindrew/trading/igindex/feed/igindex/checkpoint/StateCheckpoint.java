@@ -0,0 +1,296 @@
+package com.robindrew.trading.igindex.feed.igindex.checkpoint;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistory;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistoryRegistry;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+
+/**
+ * Checkpoints the latest price and the most recent snapshots of every instrument to a compact binary file, so a
+ * restart can restore them before subscribing instead of showing every instrument as stale until it ticks again. The
+ * file is written alongside, forced to disk and only then renamed into place, so a crash or power loss mid-save leaves
+ * the previous checkpoint intact.
+ *
+ * <pre>
+ * Header:     magic(int) version(short) saved(long) instruments(int)
+ * Instrument: nameLength(short) name(UTF-8) updateCount(long) lastUpdated(long) lastMid(int) decimalPlaces(short) buy(byte) snapshots(int)
+ * Snapshot:   timestamp(long) bid(int) ask(int) mid(int) decimalPlaces(short) buy(byte)
+ * </pre>
+ */
+public class StateCheckpoint implements StateCheckpointMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(StateCheckpoint.class);
+
+	public static final int MAGIC = 0x49474350; // IGCP
+	public static final short VERSION = 1;
+
+	private final File file;
+	private final InstrumentStatsRegistry statsRegistry;
+	private final SnapshotHistoryRegistry historyRegistry;
+	private final int historySize;
+	private final ScheduledExecutorService executor;
+
+	private final AtomicLong saveCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private volatile long lastSaved = 0;
+	private volatile long lastSaveMillis = 0;
+	private volatile long lastSaveBytes = 0;
+	private volatile int instrumentsRestored = 0;
+	private volatile long snapshotsRestored = 0;
+	private volatile long restoreMillis = 0;
+
+	/**
+	 * @param historySize the maximum number of recent snapshots saved per instrument.
+	 */
+	public StateCheckpoint(File file, InstrumentStatsRegistry statsRegistry, SnapshotHistoryRegistry historyRegistry, int historySize) {
+		if (historySize < 0) {
+			throw new IllegalArgumentException("historySize=" + historySize);
+		}
+		this.file = Check.notNull("file", file);
+		this.statsRegistry = Check.notNull("statsRegistry", statsRegistry);
+		this.historyRegistry = Check.notNull("historyRegistry", historyRegistry);
+		this.historySize = historySize;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("StateCheckpoint").setDaemon(true).build());
+	}
+
+	public void start(long intervalSeconds) {
+		if (intervalSeconds < 1) {
+			throw new IllegalArgumentException("intervalSeconds=" + intervalSeconds);
+		}
+		executor.scheduleWithFixedDelay(this::save, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the timer, the caller is expected to make a final {@link #save()} once ticks have stopped.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Restore the checkpoint, if there is one. Must be called before subscribing, as the histories allow only a
+	 * single writer.
+	 * @return the number of instruments restored.
+	 */
+	public int restore() {
+		if (!file.exists()) {
+			log.info("No checkpoint to restore: {}", file);
+			return 0;
+		}
+
+		long start = System.currentTimeMillis();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int magic = buffer.getInt();
+			short version = buffer.getShort();
+			if (magic != MAGIC || version != VERSION) {
+				log.warn("Ignoring checkpoint with unknown format: {}", file);
+				return 0;
+			}
+			long saved = buffer.getLong();
+			int instruments = buffer.getInt();
+
+			long snapshots = 0;
+			for (int i = 0; i < instruments; i++) {
+				snapshots += restore(buffer);
+			}
+			instrumentsRestored = instruments;
+			snapshotsRestored = snapshots;
+			restoreMillis = System.currentTimeMillis() - start;
+			log.info("Restored {} instruments and {} snapshots checkpointed at {} in {} ms", instruments, snapshots, Instant.ofEpochMilli(saved), restoreMillis);
+			return instruments;
+
+		} catch (Exception e) {
+			// A damaged checkpoint only costs the warm start
+			log.warn("Failed to restore checkpoint: " + file, e);
+			return 0;
+		}
+	}
+
+	private int restore(ByteBuffer buffer) {
+		byte[] name = new byte[buffer.getShort()];
+		buffer.get(name);
+		String instrument = new String(name, StandardCharsets.UTF_8);
+
+		long updateCount = buffer.getLong();
+		long lastUpdated = buffer.getLong();
+		int lastMid = buffer.getInt();
+		int decimalPlaces = buffer.getShort();
+		boolean buy = buffer.get() == 1;
+		statsRegistry.getStats(instrument).restore(updateCount, lastUpdated, lastMid, decimalPlaces, buy);
+
+		SnapshotHistory history = historyRegistry.getHistory(instrument);
+		int snapshots = buffer.getInt();
+		for (int i = 0; i < snapshots; i++) {
+			long timestamp = buffer.getLong();
+			int bid = buffer.getInt();
+			int ask = buffer.getInt();
+			int mid = buffer.getInt();
+			int places = buffer.getShort();
+			boolean direction = buffer.get() == 1;
+			history.add(timestamp, bid, ask, mid, places, direction);
+		}
+		return snapshots;
+	}
+
+	@Override
+	public synchronized String save() {
+		long start = System.currentTimeMillis();
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			List<Entry<String, SnapshotHistory>> entries = new ArrayList<>(historyRegistry.getHistories().entrySet());
+			try (FileOutputStream stream = new FileOutputStream(temp)) {
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+				output.writeInt(MAGIC);
+				output.writeShort(VERSION);
+				output.writeLong(start);
+				output.writeInt(entries.size());
+
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(historySize * 23 + 16);
+				DataOutputStream snapshots = new DataOutputStream(bytes);
+				for (Entry<String, SnapshotHistory> entry : entries) {
+					write(output, entry.getKey(), entry.getValue(), bytes, snapshots);
+				}
+				output.flush();
+
+				// Otherwise the rename can reach the disk before the data it names
+				stream.getChannel().force(true);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			syncDirectory(file.getAbsoluteFile().getParentFile());
+
+			lastSaved = start;
+			lastSaveMillis = System.currentTimeMillis() - start;
+			lastSaveBytes = file.length();
+			saveCount.incrementAndGet();
+			log.debug("Checkpointed {} instruments in {} ms", entries.size(), lastSaveMillis);
+			return "Checkpointed " + entries.size() + " instruments in " + lastSaveMillis + " ms";
+
+		} catch (Exception e) {
+			failedCount.incrementAndGet();
+			log.warn("Failed to save checkpoint: " + file, e);
+			return "Checkpoint failed: " + e.getMessage();
+		}
+	}
+
+	/**
+	 * Force the rename itself to disk. Not every platform can open a directory, in which case the rename is left to
+	 * the file system.
+	 */
+	private void syncDirectory(File directory) {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			log.debug("Unable to sync directory: " + directory, e);
+		}
+	}
+
+	private void write(DataOutputStream output, String instrument, SnapshotHistory history, ByteArrayOutputStream bytes, DataOutputStream snapshots) throws IOException {
+		byte[] name = instrument.getBytes(StandardCharsets.UTF_8);
+		output.writeShort(name.length);
+		output.write(name);
+
+		InstrumentStats stats = statsRegistry.getStats(instrument);
+		output.writeLong(stats.getUpdateCount());
+		output.writeLong(stats.getLastUpdated());
+		output.writeInt(stats.getLastMid());
+		output.writeShort(stats.getDecimalPlaces());
+		output.writeByte(stats.isBuy() ? 1 : 0);
+
+		// Snapshots are buffered first, as overwritten records are skipped and the count is not known in advance
+		bytes.reset();
+		int[] count = new int[1];
+		history.forEachLatest(historySize, (timestamp, bid, ask, mid, decimalPlaces, buy) -> {
+			try {
+				snapshots.writeLong(timestamp);
+				snapshots.writeInt(bid);
+				snapshots.writeInt(ask);
+				snapshots.writeInt(mid);
+				snapshots.writeShort(decimalPlaces);
+				snapshots.writeByte(buy ? 1 : 0);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			count[0]++;
+			return true;
+		});
+		snapshots.flush();
+		output.writeInt(count[0]);
+		bytes.writeTo(output);
+	}
+
+	@Override
+	public String getFile() {
+		return file.getAbsolutePath();
+	}
+
+	@Override
+	public String getLastSaved() {
+		return lastSaved == 0 ? "-" : Instant.ofEpochMilli(lastSaved).toString();
+	}
+
+	@Override
+	public long getLastSaveMillis() {
+		return lastSaveMillis;
+	}
+
+	@Override
+	public long getLastSaveBytes() {
+		return lastSaveBytes;
+	}
+
+	@Override
+	public long getSaveCount() {
+		return saveCount.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	@Override
+	public int getInstrumentsRestored() {
+		return instrumentsRestored;
+	}
+
+	@Override
+	public long getSnapshotsRestored() {
+		return snapshotsRestored;
+	}
+
+	@Override
+	public long getRestoreMillis() {
+		return restoreMillis;
+	}
+
+}
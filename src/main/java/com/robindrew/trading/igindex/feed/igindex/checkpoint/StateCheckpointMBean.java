@@ -0,0 +1,25 @@
+package com.robindrew.trading.igindex.feed.igindex.checkpoint;
+
+public interface StateCheckpointMBean {
+
+	String getFile();
+
+	String getLastSaved();
+
+	long getLastSaveMillis();
+
+	long getLastSaveBytes();
+
+	long getSaveCount();
+
+	long getFailedCount();
+
+	int getInstrumentsRestored();
+
+	long getSnapshotsRestored();
+
+	long getRestoreMillis();
+
+	String save();
+
+}
@@ -0,0 +1,108 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Splitter;
+
+/**
+ * How the ticks for an instrument are conflated before they reach the dashboard, fan-out and aggregation consumers.
+ * Written as a comma separated list of options, for example "unchanged,interval=100,rate=20":
+ * <ul>
+ * <li>unchanged - drop ticks that repeat the previous bid and ask exactly</li>
+ * <li>interval=N - deliver at most one tick every N milliseconds, always the latest</li>
+ * <li>rate=N - deliver at most N ticks per second, always the latest</li>
+ * <li>none - deliver every tick</li>
+ * </ul>
+ */
+public class ConflationConfig {
+
+	public static final ConflationConfig NONE = new ConflationConfig(false, 0, 0);
+
+	public static ConflationConfig parse(String spec) {
+		boolean unchanged = false;
+		long interval = 0;
+		int rate = 0;
+		for (String option : Splitter.on(',').trimResults().omitEmptyStrings().split(spec)) {
+			if (option.equals("none")) {
+				continue;
+			}
+			if (option.equals("unchanged")) {
+				unchanged = true;
+			} else if (option.startsWith("interval=")) {
+				interval = Long.parseLong(option.substring("interval=".length()));
+			} else if (option.startsWith("rate=")) {
+				rate = Integer.parseInt(option.substring("rate=".length()));
+			} else {
+				throw new IllegalArgumentException("Invalid conflation option: '" + option + "' in '" + spec + "'");
+			}
+		}
+		return new ConflationConfig(unchanged, interval, rate);
+	}
+
+	/**
+	 * Parse per-instrument overrides, for example "CS.D.GBPUSD.TODAY.IP=unchanged;IX.D.FTSE.DAILY.IP=interval=250".
+	 */
+	public static Map<String, ConflationConfig> parseOverrides(String overrides) {
+		Map<String, ConflationConfig> map = new LinkedHashMap<>();
+		for (String entry : Splitter.on(';').trimResults().omitEmptyStrings().split(overrides)) {
+			int index = entry.indexOf('=');
+			if (index < 1) {
+				throw new IllegalArgumentException("Invalid conflation override: '" + entry + "'");
+			}
+			map.put(entry.substring(0, index).trim(), parse(entry.substring(index + 1)));
+		}
+		return map;
+	}
+
+	private final boolean dropUnchanged;
+	private final long interval;
+	private final int maxRate;
+
+	public ConflationConfig(boolean dropUnchanged, long interval, int maxRate) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("interval=" + interval);
+		}
+		if (maxRate < 0) {
+			throw new IllegalArgumentException("maxRate=" + maxRate);
+		}
+		this.dropUnchanged = dropUnchanged;
+		this.interval = interval;
+		this.maxRate = maxRate;
+	}
+
+	public boolean isDropUnchanged() {
+		return dropUnchanged;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public int getMaxRate() {
+		return maxRate;
+	}
+
+	public boolean isNone() {
+		return !dropUnchanged && interval == 0 && maxRate == 0;
+	}
+
+	@Override
+	public String toString() {
+		if (isNone()) {
+			return "none";
+		}
+		StringBuilder text = new StringBuilder();
+		if (dropUnchanged) {
+			text.append("unchanged,");
+		}
+		if (interval > 0) {
+			text.append("interval=").append(interval).append(',');
+		}
+		if (maxRate > 0) {
+			text.append("rate=").append(maxRate).append(',');
+		}
+		text.setLength(text.length() - 1);
+		return text.toString();
+	}
+}
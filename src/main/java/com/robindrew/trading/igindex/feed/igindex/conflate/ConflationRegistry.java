@@ -0,0 +1,126 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Creates the conflation stage for each subscription, and periodically flushes the ticks held back by the interval and
+ * rate limits.
+ */
+public class ConflationRegistry implements ConflationRegistryMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(ConflationRegistry.class);
+
+	private final ConflationConfig defaultConfig;
+	private final Map<String, ConflationConfig> overrides;
+	private final Map<String, TickConflater> conflaterMap = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService executor;
+
+	public ConflationRegistry(ConflationConfig defaultConfig, Map<String, ConflationConfig> overrides) {
+		this.defaultConfig = Check.notNull("defaultConfig", defaultConfig);
+		this.overrides = Check.notNull("overrides", overrides);
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("ConflationFlush").setDaemon(true).build());
+	}
+
+	public void start(long flushInterval) {
+		if (flushInterval < 1) {
+			throw new IllegalArgumentException("flushInterval=" + flushInterval);
+		}
+		executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	public ConflationConfig getConfig(String instrument) {
+		return overrides.getOrDefault(instrument, defaultConfig);
+	}
+
+	/**
+	 * Attach a conflation stage to the given raw tick stream.
+	 * @return the stream that conflated consumers should register on, which is the raw stream itself if the instrument
+	 *         is not conflated.
+	 */
+	public TickStreamListener getStream(TickStreamListener raw) {
+		String instrument = raw.getInstrument().getName();
+		ConflationConfig config = getConfig(instrument);
+		if (config.isNone()) {
+			conflaterMap.remove(instrument);
+			return raw;
+		}
+
+		log.info("Conflating {} [{}]", instrument, config);
+		TickConflater conflater = new TickConflater(new TickStreamListener(raw.getInstrument()), config);
+		raw.register(conflater);
+		conflaterMap.put(instrument, conflater);
+		return conflater.getOutput();
+	}
+
+	private void flush() {
+		long now = System.currentTimeMillis();
+		for (TickConflater conflater : conflaterMap.values()) {
+			try {
+				conflater.flush(now);
+			} catch (Exception e) {
+				log.warn("Flush failed for " + conflater.getInstrument(), e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public String getDefaultConfig() {
+		return defaultConfig.toString();
+	}
+
+	@Override
+	public List<String> getConflaters() {
+		List<String> list = new ArrayList<>();
+		for (TickConflater conflater : new TreeMap<>(conflaterMap).values()) {
+			list.add(conflater.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public long getReceivedCount() {
+		long count = 0;
+		for (TickConflater conflater : conflaterMap.values()) {
+			count += conflater.getReceived();
+		}
+		return count;
+	}
+
+	@Override
+	public long getConflatedCount() {
+		long count = 0;
+		for (TickConflater conflater : conflaterMap.values()) {
+			count += conflater.getConflated();
+		}
+		return count;
+	}
+
+	@Override
+	public long getDeliveredCount() {
+		long count = 0;
+		for (TickConflater conflater : conflaterMap.values()) {
+			count += conflater.getDelivered();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import java.util.List;
+
+public interface ConflationRegistryMBean {
+
+	String getDefaultConfig();
+
+	List<String> getConflaters();
+
+	long getReceivedCount();
+
+	long getConflatedCount();
+
+	long getDeliveredCount();
+
+}
@@ -0,0 +1,120 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Conflates the raw ticks for a single instrument and publishes the survivors to its output listener. A tick held
+ * back by the interval or rate limit is kept as pending, replaced by any newer tick, and delivered by
+ * {@link #flush(long)} once the limit allows, so consumers always converge on the latest price.
+ */
+public class TickConflater implements ITickListener {
+
+	private final TickStreamListener output;
+	private final ConflationConfig config;
+
+	private Tick pending = null;
+	private int lastBid = -1;
+	private int lastAsk = -1;
+	private long lastDelivered = 0;
+	private long windowStart = 0;
+	private int windowCount = 0;
+
+	private long received = 0;
+	private long conflated = 0;
+	private long delivered = 0;
+
+	public TickConflater(TickStreamListener output, ConflationConfig config) {
+		this.output = Check.notNull("output", output);
+		this.config = Check.notNull("config", config);
+	}
+
+	public String getInstrument() {
+		return output.getInstrument().getName();
+	}
+
+	public TickStreamListener getOutput() {
+		return output;
+	}
+
+	public ConflationConfig getConfig() {
+		return config;
+	}
+
+	public synchronized long getReceived() {
+		return received;
+	}
+
+	public synchronized long getConflated() {
+		return conflated;
+	}
+
+	public synchronized long getDelivered() {
+		return delivered;
+	}
+
+	@Override
+	public synchronized void onTick(Tick tick) {
+		received++;
+		if (config.isDropUnchanged() && tick.getBid() == lastBid && tick.getAsk() == lastAsk) {
+			conflated++;
+			return;
+		}
+		lastBid = tick.getBid();
+		lastAsk = tick.getAsk();
+
+		// Any pending tick is superseded by this one
+		if (pending != null) {
+			conflated++;
+			pending = null;
+		}
+		long now = System.currentTimeMillis();
+		if (canDeliver(now)) {
+			deliver(tick, now);
+		} else {
+			pending = tick;
+		}
+	}
+
+	/**
+	 * Deliver the pending tick if the limits now allow it.
+	 */
+	public synchronized void flush(long now) {
+		if (pending != null && canDeliver(now)) {
+			Tick tick = pending;
+			pending = null;
+			deliver(tick, now);
+		}
+	}
+
+	private boolean canDeliver(long now) {
+		if (config.getInterval() > 0 && now - lastDelivered < config.getInterval()) {
+			return false;
+		}
+		if (config.getMaxRate() > 0) {
+			if (now - windowStart >= 1000) {
+				windowStart = now;
+				windowCount = 0;
+			}
+			if (windowCount >= config.getMaxRate()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void deliver(Tick tick, long now) {
+		lastDelivered = now;
+		windowCount++;
+		delivered++;
+		output.publish(tick);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getInstrument() + " [" + config + "] received=" + received + ", conflated=" + conflated + ", delivered=" + delivered + (pending == null ? "" : ", pending");
+	}
+
+}
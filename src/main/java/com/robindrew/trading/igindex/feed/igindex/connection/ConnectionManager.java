@@ -1,13 +1,13 @@
 package com.robindrew.trading.igindex.feed.igindex.connection;
 
-import static com.robindrew.common.dependency.DependencyFactory.clearDependency;
-
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.markets.MarketsCache;
 import com.robindrew.trading.igindex.platform.IIgIndexTradingPlatform;
 import com.robindrew.trading.igindex.platform.rest.IIgIndexRestService;
 import com.robindrew.trading.igindex.platform.rest.executor.getaccounts.response.Account;
@@ -17,17 +17,37 @@ import com.robindrew.trading.igindex.platform.rest.executor.getpositions.MarketP
 import com.robindrew.trading.igindex.platform.rest.executor.login.LoginResponse;
 import com.robindrew.trading.igindex.platform.streaming.IIgIndexStreamingService;
 
+/**
+ * Logs in and out of a session. Each session streams through a new platform, and so a new streaming service, rather
+ * than reconnecting one that has already been disconnected.
+ */
 public class ConnectionManager implements IConnectionManager, ConnectionManagerMBean {
 
 	private static final Logger log = LoggerFactory.getLogger(ConnectionManager.class);
 
 	private final IIgIndexRestService rest;
-	private final IIgIndexTradingPlatform platform;
+	private final Supplier<IIgIndexTradingPlatform> platformFactory;
+	private final MarketsCache marketsCache;
+	private final TimedCaller caller;
+	private volatile IIgIndexTradingPlatform platform;
+	private volatile boolean streamed = false;
 	private volatile LoginResponse details;
 
-	public ConnectionManager(IIgIndexRestService rest, IIgIndexTradingPlatform platform) {
+	/**
+	 * @param platformFactory creates the platform for each session, over the given REST service.
+	 * @param caller the account and market queries are made through the caller, so they can not block indefinitely.
+	 */
+	public ConnectionManager(IIgIndexRestService rest, Supplier<IIgIndexTradingPlatform> platformFactory, MarketsCache marketsCache, TimedCaller caller) {
 		this.rest = Check.notNull("rest", rest);
-		this.platform = Check.notNull("platform", platform);
+		this.platformFactory = Check.notNull("platformFactory", platformFactory);
+		this.marketsCache = Check.notNull("marketsCache", marketsCache);
+		this.caller = Check.notNull("caller", caller);
+		this.platform = Check.notNull("platform", platformFactory.get());
+	}
+
+	@Override
+	public IIgIndexTradingPlatform getPlatform() {
+		return platform;
 	}
 
 	@Override
@@ -45,22 +65,25 @@ public class ConnectionManager implements IConnectionManager, ConnectionManagerM
 
 	@Override
 	public List<Account> listAccounts() {
-		return rest.getAccountList();
+		return caller.call("listAccounts", rest::getAccountList);
 	}
 
 	@Override
 	public MarketNavigation listMarkets(int id, boolean latest) {
-		return rest.getMarketNavigation(id, latest);
+		return caller.call("listMarkets(" + id + ")", () -> rest.getMarketNavigation(id, latest));
 	}
 
 	@Override
 	public List<MarketPosition> listPositions() {
-		return rest.getPositionList();
+		return caller.call("listPositions", rest::getPositionList);
 	}
 
 	@Override
-	public Markets getMarkets(String epic) {
-		return rest.getMarkets(epic, true);
+	public Markets getMarkets(String epic, boolean latest) {
+		if (latest) {
+			return caller.call("getMarkets(" + epic + ")", () -> marketsCache.getLatest(epic));
+		}
+		return caller.call("getMarkets(" + epic + ")", () -> marketsCache.get(epic));
 	}
 
 	@Override
@@ -68,6 +91,12 @@ public class ConnectionManager implements IConnectionManager, ConnectionManagerM
 		try {
 			details = rest.login();
 
+			// The first session streams through the initial platform, later sessions never reuse a disconnected one
+			if (streamed) {
+				platform = Check.notNull("platform", platformFactory.get());
+			}
+			streamed = true;
+
 			log.info("Registering Subscriptions");
 			IIgIndexStreamingService service = platform.getStreamingService();
 			service.connect();
@@ -79,17 +108,30 @@ public class ConnectionManager implements IConnectionManager, ConnectionManagerM
 		}
 	}
 
+	/**
+	 * Disconnects the streaming service, where it supports being closed, before logging out. Ending the session also
+	 * ends its Lightstreamer session, and the next login streams through a new service.
+	 */
 	@Override
 	public boolean logout() {
+		details = null;
+		boolean success = true;
+		IIgIndexStreamingService service = platform.getStreamingService();
+		if (service instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) service).close();
+			} catch (Exception e) {
+				log.warn("Streaming Disconnect Failed", e);
+				success = false;
+			}
+		}
 		try {
-			details = null;
-			clearDependency(IIgIndexTradingPlatform.class);
 			rest.logout();
-			return true;
 		} catch (Exception e) {
-			log.warn("Login Failed", e);
-			return false;
+			log.warn("Logout Failed", e);
+			success = false;
 		}
+		return success;
 	}
 
 }
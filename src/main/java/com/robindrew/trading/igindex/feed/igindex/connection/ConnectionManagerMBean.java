@@ -23,7 +23,7 @@ public interface ConnectionManagerMBean {
 
 	List<MarketPosition> listPositions();
 
-	Markets getMarkets(@Name("epic") String instrument);
+	Markets getMarkets(@Name("epic") String instrument, @Name("latest") boolean latest);
 
 	MarketNavigation listMarkets(@Name("id") int id, @Name("latest") boolean latest);
 
@@ -0,0 +1,224 @@
+package com.robindrew.trading.igindex.feed.igindex.connection;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.gap.Gap;
+import com.robindrew.trading.igindex.feed.igindex.gap.GapLog;
+import com.robindrew.trading.igindex.feed.igindex.gap.MarketHours;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ISubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.Subscription;
+
+/**
+ * Watches the age of the last tick on every subscription. Instruments that stop ticking have a gap opened in the
+ * {@link GapLog}, closed again when they resume. Instruments outside their {@link MarketHours} are not expected to
+ * tick and are never considered stale. If every instrument has gone stale, or the session is not logged in,
+ * the connection is considered lost: the old session is closed, a new one is established with jittered exponential
+ * backoff and all desired subscriptions are restored in bulk. While connected, desired instruments that failed to
+ * subscribe are retried at the maximum backoff.
+ */
+public class ConnectionSupervisor implements ConnectionSupervisorMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(ConnectionSupervisor.class);
+
+	public enum State {
+		CONNECTED, DISCONNECTED, RECONNECTING;
+	}
+
+	private final IConnectionManager connectionManager;
+	private final ISubscriptionManager subscriptionManager;
+	private final InstrumentStatsRegistry statsRegistry;
+	private final GapLog gapLog;
+	private final MarketHours marketHours;
+	private final long staleThreshold;
+	private final long initialBackoff;
+	private final long maximumBackoff;
+	private final ScheduledExecutorService executor;
+
+	private final AtomicLong reconnectCount = new AtomicLong();
+	private volatile State state = State.CONNECTED;
+	private volatile int consecutiveFailures = 0;
+	private volatile long nextAttempt = 0;
+	private volatile long lastReconnect = 0;
+	private volatile long graceUntil = 0;
+	private volatile long nextPendingAttempt = 0;
+
+	public ConnectionSupervisor(IConnectionManager connectionManager, ISubscriptionManager subscriptionManager, InstrumentStatsRegistry statsRegistry, GapLog gapLog, MarketHours marketHours, long staleThreshold, long initialBackoff, long maximumBackoff) {
+		if (initialBackoff < 1 || maximumBackoff < initialBackoff) {
+			throw new IllegalArgumentException("initialBackoff=" + initialBackoff + ", maximumBackoff=" + maximumBackoff);
+		}
+		this.connectionManager = Check.notNull("connectionManager", connectionManager);
+		this.subscriptionManager = Check.notNull("subscriptionManager", subscriptionManager);
+		this.statsRegistry = Check.notNull("statsRegistry", statsRegistry);
+		this.gapLog = Check.notNull("gapLog", gapLog);
+		this.marketHours = Check.notNull("marketHours", marketHours);
+		this.staleThreshold = staleThreshold;
+		this.initialBackoff = initialBackoff;
+		this.maximumBackoff = maximumBackoff;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("ConnectionSupervisor").setDaemon(true).build());
+	}
+
+	public void start(long checkInterval) {
+		executor.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private void check() {
+		try {
+			long now = System.currentTimeMillis();
+			boolean anyFresh = updateGaps(now);
+			boolean connected = connectionManager.isLoggedIn() && (anyFresh || now < graceUntil || subscriptionManager.getSubscriptionList().isEmpty());
+
+			if (connected) {
+				if (!state.equals(State.CONNECTED)) {
+					log.info("Connection restored");
+				}
+				state = State.CONNECTED;
+				consecutiveFailures = 0;
+				if (now >= nextPendingAttempt) {
+					nextPendingAttempt = now + maximumBackoff;
+					subscriptionManager.subscribePending(instrument -> true);
+				}
+				return;
+			}
+
+			if (state.equals(State.CONNECTED)) {
+				log.warn("Connection lost (loggedIn={}, no ticks for {} ms)", connectionManager.isLoggedIn(), staleThreshold);
+				state = State.DISCONNECTED;
+				nextAttempt = now;
+				openGaps(now, "Disconnected");
+			}
+			if (now >= nextAttempt) {
+				attemptReconnect(now);
+			}
+		} catch (Exception e) {
+			log.warn("Supervisor check failed", e);
+		}
+	}
+
+	/**
+	 * Open gaps for instruments that have gone stale and close them for those ticking again.
+	 * @return true if any instrument is still ticking, or if no market is open.
+	 */
+	private boolean updateGaps(long now) {
+		boolean anyFresh = false;
+		boolean anyOpen = false;
+		for (Subscription subscription : subscriptionManager.getSubscriptionList()) {
+			String instrument = subscription.getInstrument().getName();
+			if (!marketHours.isOpen(instrument, now)) {
+				continue;
+			}
+			anyOpen = true;
+			InstrumentStats stats = statsRegistry.getStats(instrument);
+			long lastReceived = stats.getLastReceived();
+
+			// An instrument that has never ticked is measured from when it was subscribed
+			long since = lastReceived == 0 ? subscription.getSubscribed() : lastReceived;
+			if (now - since < staleThreshold) {
+				anyFresh = lastReceived != 0 || anyFresh;
+				if (lastReceived != 0) {
+					gapLog.close(instrument, stats.getLastUpdated());
+				}
+			} else {
+				long start = stats.hasUpdated() ? stats.getLastUpdated() : subscription.getSubscribed();
+				gapLog.open(instrument, start, "Stale");
+			}
+		}
+		return anyFresh || !anyOpen;
+	}
+
+	private void openGaps(long now, String reason) {
+		for (Subscription subscription : subscriptionManager.getSubscriptionList()) {
+			String instrument = subscription.getInstrument().getName();
+			InstrumentStats stats = statsRegistry.getStats(instrument);
+			gapLog.open(instrument, stats.hasUpdated() ? stats.getLastUpdated() : now, reason);
+		}
+	}
+
+	private void attemptReconnect(long now) {
+		state = State.RECONNECTING;
+		log.info("Reconnecting (attempt {})", consecutiveFailures + 1);
+
+		// Tear down the old session first, a failure here only means it had already gone
+		connectionManager.logout();
+		if (connectionManager.login()) {
+			int restored = subscriptionManager.resubscribeAll();
+			log.info("Reconnected, restored {} subscriptions", restored);
+			reconnectCount.incrementAndGet();
+			lastReconnect = now;
+			consecutiveFailures = 0;
+
+			// Allow the restored streams a full threshold to start ticking before judging them again
+			graceUntil = now + staleThreshold;
+			state = State.CONNECTED;
+			return;
+		}
+
+		consecutiveFailures++;
+		long delay = getBackoff(consecutiveFailures);
+		nextAttempt = now + delay;
+		state = State.DISCONNECTED;
+		log.warn("Reconnect failed, next attempt in {} ms", delay);
+	}
+
+	/**
+	 * Exponential backoff with full jitter: a random delay up to the capped exponential.
+	 */
+	private long getBackoff(int failures) {
+		long exponential = initialBackoff << Math.min(failures, 30);
+		long cap = Math.min(maximumBackoff, exponential < 0 ? maximumBackoff : exponential);
+		return initialBackoff + ThreadLocalRandom.current().nextLong(cap);
+	}
+
+	@Override
+	public String getState() {
+		return state.name();
+	}
+
+	@Override
+	public long getReconnectCount() {
+		return reconnectCount.get();
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	@Override
+	public String getLastReconnect() {
+		return lastReconnect == 0 ? "-" : Instant.ofEpochMilli(lastReconnect).toString();
+	}
+
+	@Override
+	public List<String> getGaps() {
+		List<String> list = new ArrayList<>();
+		for (Gap gap : gapLog.getAllGaps()) {
+			list.add(gap.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public void reconnect() {
+		executor.execute(() -> attemptReconnect(System.currentTimeMillis()));
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.robindrew.trading.igindex.feed.igindex.connection;
+
+import java.util.List;
+
+public interface ConnectionSupervisorMBean {
+
+	String getState();
+
+	long getReconnectCount();
+
+	int getConsecutiveFailures();
+
+	String getLastReconnect();
+
+	List<String> getGaps();
+
+	void reconnect();
+
+}
@@ -1,9 +1,18 @@
 package com.robindrew.trading.igindex.feed.igindex.connection;
 
+import com.robindrew.trading.igindex.platform.IIgIndexTradingPlatform;
+
 public interface IConnectionManager {
 
 	boolean login();
 
+	boolean logout();
+
 	boolean isLoggedIn();
 
+	/**
+	 * Returns the platform of the current session, which changes on every login after the first.
+	 */
+	IIgIndexTradingPlatform getPlatform();
+
 }
@@ -0,0 +1,61 @@
+package com.robindrew.trading.igindex.feed.igindex.connection;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Runs blocking REST calls on a small bounded pool, and gives up waiting on them after a timeout. A call that times
+ * out is left to finish in the background, so a slow IG response holds a pool thread rather than the caller.
+ */
+public class TimedCaller implements AutoCloseable {
+
+	private final long timeout;
+	private final ThreadPoolExecutor executor;
+
+	public TimedCaller(String name, int threads, int queueSize, long timeout) {
+		if (timeout < 1) {
+			throw new IllegalArgumentException("timeout=" + timeout);
+		}
+		this.timeout = timeout;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public <T> T call(String description, Callable<T> callable) {
+		Future<T> future;
+		try {
+			future = executor.submit(callable);
+		} catch (RejectedExecutionException e) {
+			throw new IllegalStateException("Too many outstanding calls, rejected: " + description);
+		}
+
+		try {
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("Timed out after " + timeout + "ms: " + description);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted: " + description, e);
+		} catch (ExecutionException e) {
+			throw new UncheckedExecutionException(e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * The server side state of a single fan-out client. Ticks are queued by the streaming threads, up to a fixed
+ * capacity, and drained into the write buffer by the selector thread.
+ */
+class FanOutClient {
+
+	private final SocketChannel channel;
+	private final String address;
+	private final int capacity;
+	private final Queue<Tick> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final Set<String> instruments = ConcurrentHashMap.newKeySet();
+	private final Set<Integer> announced = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean pending = new AtomicBoolean();
+
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+	private volatile boolean all = false;
+	private volatile boolean overflowed = false;
+	private SelectionKey key;
+
+	FanOutClient(SocketChannel channel, int capacity) {
+		this.channel = channel;
+		this.address = String.valueOf(channel.socket().getRemoteSocketAddress());
+		this.capacity = capacity;
+		this.writeBuffer.flip();
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	String getAddress() {
+		return address;
+	}
+
+	SelectionKey getKey() {
+		return key;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	ByteBuffer getReadBuffer() {
+		return readBuffer;
+	}
+
+	ByteBuffer getWriteBuffer() {
+		return writeBuffer;
+	}
+
+	boolean isSubscribed(String instrument) {
+		return all || instruments.contains(instrument);
+	}
+
+	void subscribe(String instrument) {
+		if (FanOutProtocol.ALL_INSTRUMENTS.equals(instrument)) {
+			all = true;
+		} else {
+			instruments.add(instrument);
+		}
+	}
+
+	void unsubscribe(String instrument) {
+		if (FanOutProtocol.ALL_INSTRUMENTS.equals(instrument)) {
+			all = false;
+			instruments.clear();
+		} else {
+			instruments.remove(instrument);
+		}
+	}
+
+	/**
+	 * Queue the tick for this client.
+	 * @return false if the queue is full, in which case the client is marked as overflowed.
+	 */
+	boolean offer(Tick tick) {
+		if (depth.incrementAndGet() > capacity) {
+			depth.decrementAndGet();
+			overflowed = true;
+			return false;
+		}
+		queue.offer(tick);
+		return true;
+	}
+
+	Tick poll() {
+		Tick tick = queue.poll();
+		if (tick != null) {
+			depth.decrementAndGet();
+		}
+		return tick;
+	}
+
+	int getQueueDepth() {
+		return depth.get();
+	}
+
+	boolean isOverflowed() {
+		return overflowed;
+	}
+
+	/**
+	 * @return true if the client was not already pending a write.
+	 */
+	boolean markPending() {
+		return pending.compareAndSet(false, true);
+	}
+
+	void clearPending() {
+		pending.set(false);
+	}
+
+	boolean announce(int id) {
+		return announced.add(id);
+	}
+
+	@Override
+	public String toString() {
+		return address + " (queue=" + depth.get() + ", all=" + all + ", instruments=" + instruments + ")";
+	}
+
+}
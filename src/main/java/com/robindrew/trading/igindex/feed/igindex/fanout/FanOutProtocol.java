@@ -0,0 +1,32 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+/**
+ * The binary protocol spoken by the {@link TickFanOutServer}. All values are big-endian.
+ *
+ * <pre>
+ * Client to server:
+ *   SUBSCRIBE    type(byte=1) length(short) instrument(UTF-8)   "*" subscribes to every instrument
+ *   UNSUBSCRIBE  type(byte=2) length(short) instrument(UTF-8)
+ *
+ * Server to client:
+ *   INSTRUMENT   type(byte=1) id(int) length(short) instrument(UTF-8)   sent before the first tick for an id
+ *   TICK         type(byte=2) id(int) timestamp(long) bid(int) ask(int) decimalPlaces(byte)
+ * </pre>
+ */
+public final class FanOutProtocol {
+
+	public static final byte SUBSCRIBE = 1;
+	public static final byte UNSUBSCRIBE = 2;
+
+	public static final byte INSTRUMENT = 1;
+	public static final byte TICK = 2;
+
+	public static final String ALL_INSTRUMENTS = "*";
+
+	public static final int TICK_SIZE = 1 + 4 + 8 + 4 + 4 + 1;
+	public static final int MAX_INSTRUMENT_LENGTH = 256;
+
+	private FanOutProtocol() {
+	}
+
+}
@@ -0,0 +1,7 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+public interface IFanOutListener {
+
+	void onTick(String instrument, long timestamp, int bid, int ask, int decimalPlaces);
+
+}
@@ -0,0 +1,82 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * A simple blocking client for the {@link TickFanOutServer}, for use by downstream strategy processes.
+ */
+public class TickFanOutClient implements AutoCloseable {
+
+	private final Socket socket;
+	private final DataInputStream input;
+	private final DataOutputStream output;
+	private final Map<Integer, String> instruments = new HashMap<>();
+
+	public TickFanOutClient(String host, int port) throws IOException {
+		Check.notEmpty("host", host);
+		this.socket = new Socket(host, port);
+		this.socket.setTcpNoDelay(true);
+		this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+		this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	public void subscribe(String instrument) throws IOException {
+		send(FanOutProtocol.SUBSCRIBE, instrument);
+	}
+
+	public void unsubscribe(String instrument) throws IOException {
+		send(FanOutProtocol.UNSUBSCRIBE, instrument);
+	}
+
+	private void send(byte type, String instrument) throws IOException {
+		byte[] bytes = Check.notEmpty("instrument", instrument).getBytes(UTF_8);
+		if (bytes.length > FanOutProtocol.MAX_INSTRUMENT_LENGTH) {
+			throw new IllegalArgumentException("instrument too long: " + instrument);
+		}
+		output.writeByte(type);
+		output.writeShort(bytes.length);
+		output.write(bytes);
+		output.flush();
+	}
+
+	/**
+	 * Read ticks and pass them to the listener until the connection is closed.
+	 */
+	public void run(IFanOutListener listener) throws IOException {
+		Check.notNull("listener", listener);
+		while (true) {
+			byte type = input.readByte();
+			int id = input.readInt();
+			if (type == FanOutProtocol.INSTRUMENT) {
+				byte[] bytes = new byte[input.readShort()];
+				input.readFully(bytes);
+				instruments.put(id, new String(bytes, UTF_8));
+			} else if (type == FanOutProtocol.TICK) {
+				long timestamp = input.readLong();
+				int bid = input.readInt();
+				int ask = input.readInt();
+				int decimalPlaces = input.readByte();
+				listener.onTick(instruments.get(id), timestamp, bid, ask, decimalPlaces);
+			} else {
+				throw new IOException("invalid frame type: " + type);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+}
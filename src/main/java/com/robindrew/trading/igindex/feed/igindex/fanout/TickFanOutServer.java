@@ -0,0 +1,294 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Republishes ticks to local strategy processes over TCP using the {@link FanOutProtocol}. A single selector thread
+ * serves every client. Each client has a bounded queue of ticks which is drained into its socket in batches; a client
+ * that falls so far behind that its queue overflows is disconnected rather than allowed to hold up the others.
+ */
+public class TickFanOutServer implements ITickListener, TickFanOutServerMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(TickFanOutServer.class);
+
+	private final String host;
+	private final int port;
+	private final int queueCapacity;
+	private final List<FanOutClient> clients = new CopyOnWriteArrayList<>();
+	private final Queue<FanOutClient> pendingClients = new ConcurrentLinkedQueue<>();
+	private final Map<String, Integer> instrumentIds = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final AtomicLong ticksSent = new AtomicLong();
+	private final AtomicLong overflowDisconnects = new AtomicLong();
+
+	private volatile boolean running = true;
+	private Selector selector;
+	private ServerSocketChannel server;
+	private Thread thread;
+
+	public TickFanOutServer(String host, int port, int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity=" + queueCapacity);
+		}
+		this.host = Check.notEmpty("host", host);
+		this.port = port;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public void start() throws IOException {
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.configureBlocking(false);
+		server.bind(new InetSocketAddress(host, port));
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		log.info("Listening on {}:{}", host, port);
+
+		thread = new Thread(this::run, "TickFanOutServer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		for (FanOutClient client : clients) {
+			if (!client.isSubscribed(tick.getInstrument())) {
+				continue;
+			}
+			// An overflowed client is still marked pending, the selector thread disconnects it
+			client.offer(tick);
+			if (client.markPending()) {
+				pendingClients.offer(client);
+				selector.wakeup();
+			}
+		}
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				selector.select();
+				processPending();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					FanOutClient client = (FanOutClient) key.attachment();
+					try {
+						if (key.isReadable()) {
+							read(client);
+						}
+						if (key.isValid() && key.isWritable()) {
+							write(client);
+						}
+					} catch (IOException e) {
+						disconnect(client, e.getMessage());
+					}
+				}
+			} catch (Exception e) {
+				if (running) {
+					log.warn("Selector loop failed", e);
+				}
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		FanOutClient client = new FanOutClient(channel, queueCapacity);
+		client.setKey(channel.register(selector, SelectionKey.OP_READ, client));
+		clients.add(client);
+		log.info("Client connected: {}", client.getAddress());
+	}
+
+	private void processPending() {
+		FanOutClient client;
+		while ((client = pendingClients.poll()) != null) {
+			client.clearPending();
+			if (client.isOverflowed()) {
+				overflowDisconnects.incrementAndGet();
+				disconnect(client, "queue overflow");
+				continue;
+			}
+			try {
+				write(client);
+			} catch (IOException e) {
+				disconnect(client, e.getMessage());
+			}
+		}
+	}
+
+	private void read(FanOutClient client) throws IOException {
+		ByteBuffer buffer = client.getReadBuffer();
+		if (client.getChannel().read(buffer) == -1) {
+			throw new IOException("closed by client");
+		}
+		buffer.flip();
+		while (buffer.remaining() >= 3) {
+			buffer.mark();
+			byte type = buffer.get();
+			int length = buffer.getShort();
+			if (length < 0 || length > FanOutProtocol.MAX_INSTRUMENT_LENGTH) {
+				throw new IOException("invalid frame length: " + length);
+			}
+			if (buffer.remaining() < length) {
+				buffer.reset();
+				break;
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			String instrument = new String(bytes, UTF_8);
+			if (type == FanOutProtocol.SUBSCRIBE) {
+				client.subscribe(instrument);
+			} else if (type == FanOutProtocol.UNSUBSCRIBE) {
+				client.unsubscribe(instrument);
+			} else {
+				throw new IOException("invalid frame type: " + type);
+			}
+		}
+		buffer.compact();
+	}
+
+	/**
+	 * Drain as much of the client queue as will fit into its socket, batching many ticks per write.
+	 */
+	private void write(FanOutClient client) throws IOException {
+		ByteBuffer buffer = client.getWriteBuffer();
+		SocketChannel channel = client.getChannel();
+		while (true) {
+			if (buffer.hasRemaining()) {
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					// Socket is full, wait until it is writable
+					client.getKey().interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+			}
+			if (!fill(client, buffer)) {
+				client.getKey().interestOps(SelectionKey.OP_READ);
+				return;
+			}
+		}
+	}
+
+	private boolean fill(FanOutClient client, ByteBuffer buffer) {
+		buffer.clear();
+		int count = 0;
+		while (buffer.remaining() >= FanOutProtocol.TICK_SIZE + 7 + FanOutProtocol.MAX_INSTRUMENT_LENGTH) {
+			Tick tick = client.poll();
+			if (tick == null) {
+				break;
+			}
+			int id = getInstrumentId(tick.getInstrument());
+			if (client.announce(id)) {
+				byte[] name = tick.getInstrument().getBytes(UTF_8);
+				buffer.put(FanOutProtocol.INSTRUMENT).putInt(id).putShort((short) name.length).put(name);
+			}
+			buffer.put(FanOutProtocol.TICK).putInt(id).putLong(tick.getTimestamp()).putInt(tick.getBid()).putInt(tick.getAsk()).put((byte) tick.getDecimalPlaces());
+			count++;
+		}
+		buffer.flip();
+		ticksSent.addAndGet(count);
+		return count > 0;
+	}
+
+	private int getInstrumentId(String instrument) {
+		return instrumentIds.computeIfAbsent(instrument, name -> nextId.incrementAndGet());
+	}
+
+	private void disconnect(FanOutClient client, String reason) {
+		if (clients.remove(client)) {
+			log.info("Client disconnected: {} ({})", client.getAddress(), reason);
+		}
+		try {
+			client.getChannel().close();
+		} catch (IOException e) {
+			log.debug("Failed to close client", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		if (selector == null) {
+			return;
+		}
+		selector.wakeup();
+		for (FanOutClient client : clients) {
+			disconnect(client, "shutdown");
+		}
+		try {
+			server.close();
+			selector.close();
+		} catch (IOException e) {
+			log.warn("Failed to close server", e);
+		}
+	}
+
+	@Override
+	public int getPort() {
+		return port;
+	}
+
+	@Override
+	public int getClientCount() {
+		return clients.size();
+	}
+
+	@Override
+	public List<String> getClients() {
+		List<String> list = new ArrayList<>();
+		for (FanOutClient client : clients) {
+			list.add(client.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public long getTicksSent() {
+		return ticksSent.get();
+	}
+
+	@Override
+	public long getOverflowDisconnects() {
+		return overflowDisconnects.get();
+	}
+
+}
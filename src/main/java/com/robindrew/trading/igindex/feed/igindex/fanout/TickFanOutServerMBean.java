@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.fanout;
+
+import java.util.List;
+
+public interface TickFanOutServerMBean {
+
+	int getPort();
+
+	int getClientCount();
+
+	List<String> getClients();
+
+	long getTicksSent();
+
+	long getOverflowDisconnects();
+
+}
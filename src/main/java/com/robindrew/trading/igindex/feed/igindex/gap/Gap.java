@@ -0,0 +1,57 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.time.Instant;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * A period during which no ticks were captured for an instrument. The end is zero while the gap is still open.
+ */
+public class Gap {
+
+	private final String instrument;
+	private final long start;
+	private final long end;
+	private final String reason;
+
+	public Gap(String instrument, long start, long end, String reason) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+		this.start = start;
+		this.end = end;
+		this.reason = Check.notEmpty("reason", reason);
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public boolean isOpen() {
+		return end == 0;
+	}
+
+	public long getDuration() {
+		return (isOpen() ? System.currentTimeMillis() : end) - start;
+	}
+
+	public Gap close(long end) {
+		return new Gap(instrument, start, end, reason);
+	}
+
+	@Override
+	public String toString() {
+		return instrument + "[" + Instant.ofEpochMilli(start) + " -> " + (isOpen() ? "open" : Instant.ofEpochMilli(end)) + ", " + reason + "]";
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileWriter;
+import com.robindrew.trading.price.candle.IPriceCandle;
+
+/**
+ * Backfills closed gaps in the background with one minute candles from an {@link IPriceHistorySource}. Each gap is
+ * fetched in chunks, skipping those entirely outside market hours, and requests are rate limited to stay within the
+ * IG historical data allowance. Candles are appended, in the same line format as the captured candles, to
+ * {@code <directory>/<instrument>/<yyyyMMdd>.backfill}, next to the tick files.
+ */
+public class GapBackfiller implements IGapListener, GapBackfillerMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(GapBackfiller.class);
+
+	public static final String FILE_SUFFIX = ".backfill";
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+	private static final int ATTEMPTS = 3;
+
+	private final IPriceHistorySource source;
+	private final MarketHours marketHours;
+	private final File directory;
+	private final long chunkMillis;
+	private final RateLimiter rateLimiter;
+	private final BlockingQueue<Gap> queue = new LinkedBlockingQueue<>();
+	private final Thread thread;
+
+	private final AtomicLong gapsQueued = new AtomicLong();
+	private final AtomicLong gapsCompleted = new AtomicLong();
+	private final AtomicLong gapsSkipped = new AtomicLong();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong candlesWritten = new AtomicLong();
+
+	private volatile boolean running = true;
+
+	public GapBackfiller(IPriceHistorySource source, MarketHours marketHours, File directory, double requestsPerMinute, int chunkMinutes) {
+		if (requestsPerMinute <= 0) {
+			throw new IllegalArgumentException("requestsPerMinute=" + requestsPerMinute);
+		}
+		if (chunkMinutes < 1) {
+			throw new IllegalArgumentException("chunkMinutes=" + chunkMinutes);
+		}
+		this.source = Check.notNull("source", source);
+		this.marketHours = Check.notNull("marketHours", marketHours);
+		this.directory = Check.notNull("directory", directory);
+		this.chunkMillis = chunkMinutes * MINUTE;
+		this.rateLimiter = RateLimiter.create(requestsPerMinute / 60.0);
+		this.thread = new Thread(this::run, "GapBackfiller");
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	@Override
+	public void gapClosed(Gap gap) {
+		// Nothing to fetch for a gap that does not cover a whole minute
+		if (floor(gap.getEnd()) <= ceil(gap.getStart())) {
+			gapsSkipped.incrementAndGet();
+			return;
+		}
+		gapsQueued.incrementAndGet();
+		queue.offer(gap);
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				backfill(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			} catch (Exception e) {
+				log.warn("Backfill failed", e);
+			}
+		}
+	}
+
+	private void backfill(Gap gap) throws InterruptedException {
+		String instrument = gap.getInstrument();
+		long from = ceil(gap.getStart());
+		long to = floor(gap.getEnd());
+		log.info("Backfilling {}", gap);
+
+		for (long start = from; start < to && running; start += chunkMillis) {
+			long end = Math.min(start + chunkMillis, to);
+			if (!marketHours.isOpenDuring(instrument, start, end)) {
+				continue;
+			}
+			List<IPriceCandle> candles = fetch(instrument, start, end);
+			if (candles != null) {
+				write(instrument, candles, start, end);
+			}
+		}
+		gapsCompleted.incrementAndGet();
+	}
+
+	private List<IPriceCandle> fetch(String instrument, long from, long to) throws InterruptedException {
+		for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+			rateLimiter.acquire();
+			requestCount.incrementAndGet();
+			try {
+				return source.getMinuteCandles(instrument, from, to);
+			} catch (Exception e) {
+				log.warn("Failed to fetch prices for " + instrument + " (attempt " + attempt + "/" + ATTEMPTS + ")", e);
+				Thread.sleep(attempt * 1000L);
+			}
+		}
+		failedCount.incrementAndGet();
+		return null;
+	}
+
+	private void write(String instrument, List<IPriceCandle> candles, long from, long to) {
+		Writer writer = null;
+		LocalDate writerDay = null;
+		try {
+			for (IPriceCandle candle : candles) {
+				long time = candle.getOpenTime();
+				if (time < from || time >= to) {
+					continue;
+				}
+				LocalDate day = TickFileWriter.toDay(time);
+				if (!day.equals(writerDay)) {
+					if (writer != null) {
+						writer.close();
+					}
+					writer = openWriter(instrument, day);
+					writerDay = day;
+				}
+				writer.write(toLine(candle));
+				candlesWritten.incrementAndGet();
+			}
+		} catch (IOException e) {
+			log.warn("Failed to write backfill for " + instrument, e);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					log.warn("Failed to close backfill file", e);
+				}
+			}
+		}
+	}
+
+	private Writer openWriter(String instrument, LocalDate day) throws IOException {
+		File file = new File(new File(directory, instrument), DAY_FORMAT.format(day) + FILE_SUFFIX);
+		file.getParentFile().mkdirs();
+		return new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * The same layout as a captured candle line, with a tick count of zero as the count is not known.
+	 */
+	private static String toLine(IPriceCandle candle) {
+		StringBuilder line = new StringBuilder(96);
+		line.append(candle.getOpenTime()).append(',');
+		line.append(candle.getBidOpenPrice()).append(',').append(candle.getBidHighPrice()).append(',').append(candle.getBidLowPrice()).append(',').append(candle.getBidClosePrice()).append(',');
+		line.append(candle.getAskOpenPrice()).append(',').append(candle.getAskHighPrice()).append(',').append(candle.getAskLowPrice()).append(',').append(candle.getAskClosePrice()).append(',');
+		line.append(0).append(',').append(candle.getDecimalPlaces()).append('\n');
+		return line.toString();
+	}
+
+	private static long floor(long time) {
+		return time - (time % MINUTE);
+	}
+
+	private static long ceil(long time) {
+		return floor(time + MINUTE - 1);
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		thread.interrupt();
+	}
+
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@Override
+	public long getGapsQueued() {
+		return gapsQueued.get();
+	}
+
+	@Override
+	public long getGapsCompleted() {
+		return gapsCompleted.get();
+	}
+
+	@Override
+	public long getGapsSkipped() {
+		return gapsSkipped.get();
+	}
+
+	@Override
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	@Override
+	public long getCandlesWritten() {
+		return candlesWritten.get();
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+public interface GapBackfillerMBean {
+
+	int getQueueSize();
+
+	long getGapsQueued();
+
+	long getGapsCompleted();
+
+	long getGapsSkipped();
+
+	long getRequestCount();
+
+	long getFailedCount();
+
+	long getCandlesWritten();
+
+}
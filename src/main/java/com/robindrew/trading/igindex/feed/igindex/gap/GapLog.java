@@ -0,0 +1,102 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the gaps in tick capture for each instrument. A bounded number of closed gaps are retained per instrument.
+ */
+public class GapLog {
+
+	private static final Logger log = LoggerFactory.getLogger(GapLog.class);
+
+	private final int retain;
+	private final Map<String, Gap> openMap = new HashMap<>();
+	private final Map<String, Deque<Gap>> closedMap = new HashMap<>();
+	private final List<IGapListener> listeners = new ArrayList<>();
+
+	public GapLog(int retain) {
+		if (retain < 1) {
+			throw new IllegalArgumentException("retain=" + retain);
+		}
+		this.retain = retain;
+	}
+
+	public synchronized void addListener(IGapListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Open a gap for the instrument, starting at the given time, unless one is already open.
+	 */
+	public synchronized boolean open(String instrument, long start, String reason) {
+		if (openMap.containsKey(instrument)) {
+			return false;
+		}
+		Gap gap = new Gap(instrument, start, 0, reason);
+		log.warn("Gap opened: {}", gap);
+		openMap.put(instrument, gap);
+		return true;
+	}
+
+	/**
+	 * Close the open gap for the instrument (if any) at the given time.
+	 */
+	public synchronized Gap close(String instrument, long end) {
+		Gap open = openMap.remove(instrument);
+		if (open == null) {
+			return null;
+		}
+		Gap gap = open.close(Math.max(end, open.getStart()));
+		log.info("Gap closed: {} ({} ms)", gap, gap.getDuration());
+
+		Deque<Gap> closed = closedMap.computeIfAbsent(instrument, key -> new ArrayDeque<>());
+		closed.addLast(gap);
+		while (closed.size() > retain) {
+			closed.removeFirst();
+		}
+		for (IGapListener listener : listeners) {
+			listener.gapClosed(gap);
+		}
+		return gap;
+	}
+
+	public synchronized boolean isOpen(String instrument) {
+		return openMap.containsKey(instrument);
+	}
+
+	public synchronized List<Gap> getOpenGaps() {
+		return new ArrayList<>(openMap.values());
+	}
+
+	public synchronized List<Gap> getGaps(String instrument) {
+		List<Gap> gaps = new ArrayList<>();
+		Deque<Gap> closed = closedMap.get(instrument);
+		if (closed != null) {
+			gaps.addAll(closed);
+		}
+		Gap open = openMap.get(instrument);
+		if (open != null) {
+			gaps.add(open);
+		}
+		return gaps;
+	}
+
+	public synchronized List<Gap> getAllGaps() {
+		List<Gap> gaps = new ArrayList<>();
+		for (Deque<Gap> closed : closedMap.values()) {
+			gaps.addAll(closed);
+		}
+		gaps.addAll(openMap.values());
+		gaps.sort((gap1, gap2) -> Long.compare(gap1.getStart(), gap2.getStart()));
+		return gaps;
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * Appends every closed gap as a line of {@code instrument,start,end,reason} to a file, so the holes in the captured
+ * ticks are recorded beyond the lifetime of the process.
+ */
+public class GapRecorder implements IGapListener {
+
+	private static final Logger log = LoggerFactory.getLogger(GapRecorder.class);
+
+	private final File file;
+
+	public GapRecorder(File file) {
+		this.file = Check.notNull("file", file);
+	}
+
+	@Override
+	public synchronized void gapClosed(Gap gap) {
+		file.getParentFile().mkdirs();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+			writer.write(gap.getInstrument() + "," + gap.getStart() + "," + gap.getEnd() + "," + gap.getReason() + "\n");
+		} catch (IOException e) {
+			log.warn("Failed to record " + gap, e);
+		}
+	}
+
+}
@@ -0,0 +1,7 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+public interface IGapListener {
+
+	void gapClosed(Gap gap);
+
+}
@@ -0,0 +1,14 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.util.List;
+
+import com.robindrew.trading.price.candle.IPriceCandle;
+
+public interface IPriceHistorySource {
+
+	/**
+	 * Returns the one minute candles for the instrument in the range [from, to).
+	 */
+	List<IPriceCandle> getMinuteCandles(String instrument, long from, long to);
+
+}
@@ -0,0 +1,119 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Splitter;
+import com.robindrew.common.util.Check;
+
+/**
+ * The hours each instrument is expected to tick, as a weekly window in UTC such as "SUN 22:00-FRI 22:00", or "ALWAYS".
+ * Instruments without their own window use the default. Ticks that stop outside these hours are not a gap.
+ */
+public class MarketHours {
+
+	public static final String ALWAYS = "ALWAYS";
+
+	private static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+
+	private final Window defaultWindow;
+	private final Map<String, Window> windowMap = new LinkedHashMap<>();
+
+	/**
+	 * @param overrides per-instrument windows, for example "IX.D.FTSE.DAILY.IP=MON 07:00-FRI 21:00;...".
+	 */
+	public MarketHours(String defaultWindow, String overrides) {
+		this.defaultWindow = parseWindow(defaultWindow);
+		for (String entry : Splitter.on(';').trimResults().omitEmptyStrings().split(overrides)) {
+			int index = entry.indexOf('=');
+			if (index < 1) {
+				throw new IllegalArgumentException("Invalid market hours override: '" + entry + "'");
+			}
+			windowMap.put(entry.substring(0, index).trim(), parseWindow(entry.substring(index + 1)));
+		}
+	}
+
+	public boolean isOpen(String instrument, long time) {
+		return windowMap.getOrDefault(instrument, defaultWindow).isOpen(time);
+	}
+
+	/**
+	 * Returns true if the market is open at any point in the range [from, to).
+	 */
+	public boolean isOpenDuring(String instrument, long from, long to) {
+		Window window = windowMap.getOrDefault(instrument, defaultWindow);
+		for (long time = from; time < to; time += TimeUnit.MINUTES.toMillis(1)) {
+			if (window.isOpen(time)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Window parseWindow(String text) {
+		text = Check.notEmpty("text", text).trim();
+		if (text.equalsIgnoreCase(ALWAYS)) {
+			return new Window(0, MINUTES_PER_WEEK);
+		}
+		int dash = text.indexOf('-');
+		if (dash < 1) {
+			throw new IllegalArgumentException("Invalid market hours: '" + text + "'");
+		}
+		return new Window(parseMinute(text.substring(0, dash)), parseMinute(text.substring(dash + 1)));
+	}
+
+	/**
+	 * Parse "DDD HH:MM" to the minute of the week, counting from Monday 00:00.
+	 */
+	private static int parseMinute(String text) {
+		String[] parts = text.trim().split("\\s+");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid day and time: '" + text + "'");
+		}
+		DayOfWeek day = parseDay(parts[0]);
+		LocalTime time = LocalTime.parse(parts[1]);
+		return (day.getValue() - 1) * 24 * 60 + time.getHour() * 60 + time.getMinute();
+	}
+
+	private static DayOfWeek parseDay(String text) {
+		String prefix = text.toUpperCase();
+		for (DayOfWeek day : DayOfWeek.values()) {
+			if (day.name().startsWith(prefix) && prefix.length() >= 3) {
+				return day;
+			}
+		}
+		throw new IllegalArgumentException("Invalid day: '" + text + "'");
+	}
+
+	private static class Window {
+
+		private final int open;
+		private final int close;
+
+		private Window(int open, int close) {
+			this.open = open;
+			this.close = close;
+		}
+
+		private boolean isOpen(long time) {
+			if (close - open >= MINUTES_PER_WEEK) {
+				return true;
+			}
+			ZonedDateTime date = Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC);
+			int minute = (date.getDayOfWeek().getValue() - 1) * 24 * 60 + date.getHour() * 60 + date.getMinute();
+
+			// The window may wrap around the end of the week
+			if (open <= close) {
+				return minute >= open && minute < close;
+			}
+			return minute >= open || minute < close;
+		}
+	}
+
+}
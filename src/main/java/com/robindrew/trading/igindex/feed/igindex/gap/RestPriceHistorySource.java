@@ -0,0 +1,35 @@
+package com.robindrew.trading.igindex.feed.igindex.gap;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.subscription.InstrumentLookup;
+import com.robindrew.trading.igindex.platform.rest.IIgIndexRestService;
+import com.robindrew.trading.price.candle.IPriceCandle;
+import com.robindrew.trading.price.candle.interval.PriceResolution;
+
+/**
+ * Fetches historical minute prices from the IG prices REST endpoint.
+ */
+public class RestPriceHistorySource implements IPriceHistorySource {
+
+	private final IIgIndexRestService rest;
+	private final InstrumentLookup lookup = new InstrumentLookup();
+
+	public RestPriceHistorySource(IIgIndexRestService rest) {
+		this.rest = Check.notNull("rest", rest);
+	}
+
+	@Override
+	public List<IPriceCandle> getMinuteCandles(String instrument, long from, long to) {
+		IIgIndexInstrument igInstrument = lookup.get(instrument);
+		LocalDateTime fromDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(from), ZoneOffset.UTC);
+		LocalDateTime toDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(to), ZoneOffset.UTC);
+		return rest.getPriceList(igInstrument, PriceResolution.MINUTE, fromDate, toDate);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.robindrew.trading.igindex.feed.igindex.history;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
+import com.robindrew.trading.price.candle.streaming.IPriceCandleSnapshot;
+import com.robindrew.trading.price.candle.streaming.IPriceStreamListener;
+
+/**
+ * Caps the snapshot history the platform keeps on the heap for each price stream, which otherwise grows with every
+ * tick. The feed reads history from {@link SnapshotHistory} instead. Registered on the stream itself, so the list is
+ * trimmed on the streaming thread that appends to it.
+ */
+public class HeapHistoryLimit implements IPriceStreamListener {
+
+	private static final Logger log = LoggerFactory.getLogger(HeapHistoryLimit.class);
+
+	private final IInstrumentPriceStream<IIgIndexInstrument> stream;
+	private final int capacity;
+	private volatile boolean enabled = true;
+
+	public HeapHistoryLimit(IInstrumentPriceStream<IIgIndexInstrument> stream, int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity=" + capacity);
+		}
+		this.stream = Check.notNull("stream", stream);
+		this.capacity = capacity;
+	}
+
+	@Override
+	public String getName() {
+		return "HeapHistoryLimit[" + stream.getInstrument().getName() + "]";
+	}
+
+	@Override
+	public void next(IPriceCandleSnapshot snapshot) {
+		if (!enabled) {
+			return;
+		}
+		List<IPriceCandleSnapshot> history = stream.getPrice().getSnapshotHistory();
+		int excess = history.size() - capacity;
+		if (excess > 0) {
+			try {
+				history.subList(0, excess).clear();
+			} catch (UnsupportedOperationException e) {
+				enabled = false;
+				log.warn("Snapshot history for {} can not be trimmed", stream.getInstrument().getName());
+			}
+		}
+	}
+
+}
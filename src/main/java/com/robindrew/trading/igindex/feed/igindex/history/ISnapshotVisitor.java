@@ -0,0 +1,10 @@
+package com.robindrew.trading.igindex.feed.igindex.history;
+
+public interface ISnapshotVisitor {
+
+	/**
+	 * @return false to stop visiting.
+	 */
+	boolean visit(long timestamp, int bid, int ask, int mid, int decimalPlaces, boolean buy);
+
+}
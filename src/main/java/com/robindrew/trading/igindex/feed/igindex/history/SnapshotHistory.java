@@ -0,0 +1,184 @@
+package com.robindrew.trading.igindex.feed.igindex.history;
+
+import static com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory.UNSAFE;
+
+import java.nio.ByteBuffer;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * A fixed-capacity ring buffer of snapshots for a single instrument, held off-heap as primitive records so that hours
+ * of history do not add millions of objects to the old generation. There is a single writer (the streaming thread);
+ * readers detect records overwritten while they were reading and skip them. A load fence orders the reads of a record
+ * before the check, as in a sequence lock. Queries and iteration never allocate.
+ *
+ * <pre>
+ * Record (24 bytes): timestamp(long) bid(int) ask(int) mid(int) decimalPlaces(short) buy(byte) padding(byte)
+ * </pre>
+ */
+public class SnapshotHistory implements ITickListener {
+
+	public static final int RECORD_SIZE = 24;
+
+	private final String instrument;
+	private final int capacity;
+	private final ByteBuffer buffer;
+
+	/** The number of records ever written, published after each record. */
+	private volatile long written = 0;
+
+	public SnapshotHistory(String instrument, int capacity) {
+		if (capacity < 2 || capacity > Integer.MAX_VALUE / RECORD_SIZE) {
+			throw new IllegalArgumentException("capacity=" + capacity);
+		}
+		this.instrument = Check.notEmpty("instrument", instrument);
+		this.capacity = capacity;
+		this.buffer = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getWrittenCount() {
+		return written;
+	}
+
+	public int size() {
+		long end = written;
+		return (int) (end - oldest(end));
+	}
+
+	public boolean isEmpty() {
+		return written == 0;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		add(tick.getTimestamp(), tick.getBid(), tick.getAsk(), tick.getMid(), tick.getDecimalPlaces(), tick.isBuy());
+	}
+
+	public void add(long timestamp, int bid, int ask, int mid, int decimalPlaces, boolean buy) {
+		long sequence = written;
+		int offset = offset(sequence);
+		buffer.putLong(offset, timestamp);
+		buffer.putInt(offset + 8, bid);
+		buffer.putInt(offset + 12, ask);
+		buffer.putInt(offset + 16, mid);
+		buffer.putShort(offset + 20, (short) decimalPlaces);
+		buffer.put(offset + 22, (byte) (buy ? 1 : 0));
+		written = sequence + 1;
+	}
+
+	private int offset(long sequence) {
+		return (int) (sequence % capacity) * RECORD_SIZE;
+	}
+
+	/**
+	 * The oldest readable record. The record before it shares a slot with the next record to be written.
+	 */
+	private long oldest(long written) {
+		return Math.max(0, written - capacity + 1);
+	}
+
+	/**
+	 * True if the record at the given sequence has been, or is being, overwritten.
+	 */
+	private boolean overwritten(long sequence) {
+		return sequence + capacity <= written;
+	}
+
+	public long getLatestTimestamp() {
+		long latest = written - 1;
+		return latest < 0 ? 0 : buffer.getLong(offset(latest));
+	}
+
+	public int getLatestMid() {
+		long latest = written - 1;
+		return latest < 0 ? 0 : buffer.getInt(offset(latest) + 16);
+	}
+
+	public int getLatestDecimalPlaces() {
+		long latest = written - 1;
+		return latest < 0 ? 0 : buffer.getShort(offset(latest) + 20);
+	}
+
+	/**
+	 * Returns the number of snapshots with a timestamp at or after the given time. Timestamps are assumed to be
+	 * non-decreasing, so this is a binary search.
+	 */
+	public int countSince(long timestamp) {
+		long end = written;
+		long low = oldest(end);
+		long high = end;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (buffer.getLong(offset(middle)) < timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		// Records overwritten during the search are no longer part of the history
+		UNSAFE.loadFence();
+		return (int) (end - Math.max(low, oldest(written)));
+	}
+
+	/**
+	 * Visits snapshots from the given time onwards, oldest first.
+	 */
+	public void forEachSince(long timestamp, ISnapshotVisitor visitor) {
+		long end = written;
+		for (long sequence = end - countSince(timestamp); sequence < end; sequence++) {
+			if (!visit(sequence, visitor)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Visits up to the given number of the most recent snapshots, oldest first.
+	 */
+	public void forEachLatest(int count, ISnapshotVisitor visitor) {
+		long end = written;
+		for (long sequence = Math.max(oldest(end), end - count); sequence < end; sequence++) {
+			if (!visit(sequence, visitor)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Visits snapshots from newest to oldest.
+	 */
+	public void forEachReverse(ISnapshotVisitor visitor) {
+		long end = written;
+		for (long sequence = end - 1; sequence >= oldest(end); sequence--) {
+			if (!visit(sequence, visitor)) {
+				return;
+			}
+		}
+	}
+
+	private boolean visit(long sequence, ISnapshotVisitor visitor) {
+		int offset = offset(sequence);
+		long timestamp = buffer.getLong(offset);
+		int bid = buffer.getInt(offset + 8);
+		int ask = buffer.getInt(offset + 12);
+		int mid = buffer.getInt(offset + 16);
+		int decimalPlaces = buffer.getShort(offset + 20);
+		boolean buy = buffer.get(offset + 22) == 1;
+		UNSAFE.loadFence();
+		if (overwritten(sequence)) {
+			return false;
+		}
+		return visitor.visit(timestamp, bid, ask, mid, decimalPlaces, buy);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.robindrew.trading.igindex.feed.igindex.history;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SnapshotHistoryRegistry {
+
+	private final int capacity;
+	private final Map<String, SnapshotHistory> historyMap = new ConcurrentHashMap<>();
+
+	public SnapshotHistoryRegistry(int capacity) {
+		if (capacity < 2 || capacity > Integer.MAX_VALUE / SnapshotHistory.RECORD_SIZE) {
+			throw new IllegalArgumentException("capacity=" + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public SnapshotHistory getHistory(String instrument) {
+		return historyMap.computeIfAbsent(instrument, name -> new SnapshotHistory(name, capacity));
+	}
+
+	public Map<String, SnapshotHistory> getHistories() {
+		return historyMap;
+	}
+
+}
@@ -0,0 +1,7 @@
+package com.robindrew.trading.igindex.feed.igindex.journal;
+
+public interface ITickJournalHandler {
+
+	void onTick(long timestamp, int bid, int ask, int decimalPlaces, int instrumentId);
+
+}
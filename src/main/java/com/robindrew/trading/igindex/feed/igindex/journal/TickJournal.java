@@ -0,0 +1,134 @@
+package com.robindrew.trading.igindex.feed.igindex.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory;
+
+/**
+ * The layout of the binary tick journal. A journal directory contains segment files named
+ * {@code <yyyyMMdd>.<index>.journal}, each a memory-mapped header followed by fixed-width records, and a text file
+ * mapping instrument ids to names. A segment holds the ticks received while its day was the latest, so it may start
+ * with a few late ticks from the day before.
+ *
+ * <pre>
+ * Header (64 bytes): magic(int) version(int) recordSize(int) sealed(int) committed(long) capacity(long)
+ * Record (24 bytes): timestamp(long) bid(int) ask(int) decimalPlaces(int) instrumentId(int)
+ * </pre>
+ *
+ * The committed count and sealed flag are written with ordered stores and read with volatile loads, through the
+ * {@link UnsafeMemory} accessors, so a reader that sees a count also sees every record before it. Header fields
+ * are big-endian, as written by {@link java.nio.ByteBuffer}.
+ */
+public final class TickJournal {
+
+	public static final int MAGIC = 0x54494B4A;
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 64;
+	public static final int RECORD_SIZE = 24;
+
+	public static final int MAGIC_OFFSET = 0;
+	public static final int VERSION_OFFSET = 4;
+	public static final int RECORD_SIZE_OFFSET = 8;
+	public static final int SEALED_OFFSET = 12;
+	public static final int COMMITTED_OFFSET = 16;
+	public static final int CAPACITY_OFFSET = 24;
+
+	/** Offsets into a segment are ints, so a segment can be no larger than this. */
+	public static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+	public static final String SEGMENT_SUFFIX = ".journal";
+
+	private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder().equals(ByteOrder.BIG_ENDIAN);
+	public static final String INSTRUMENTS_FILE = "instruments.txt";
+
+	private TickJournal() {
+	}
+
+	public static String getSegmentName(String day, int index) {
+		return day + "." + index + SEGMENT_SUFFIX;
+	}
+
+	public static long getRecordOffset(long record) {
+		return HEADER_SIZE + record * RECORD_SIZE;
+	}
+
+	/**
+	 * Publish the committed record count, after all the records before it (release).
+	 */
+	static void putCommitted(long base, long committed) {
+		UnsafeMemory.UNSAFE.putOrderedLong(null, base + COMMITTED_OFFSET, NATIVE_BIG_ENDIAN ? committed : Long.reverseBytes(committed));
+	}
+
+	/**
+	 * Read the committed record count, before any of the records it covers (acquire).
+	 */
+	static long getCommitted(long base) {
+		long committed = UnsafeMemory.UNSAFE.getLongVolatile(null, base + COMMITTED_OFFSET);
+		return NATIVE_BIG_ENDIAN ? committed : Long.reverseBytes(committed);
+	}
+
+	static void putSealed(long base) {
+		UnsafeMemory.UNSAFE.putOrderedInt(null, base + SEALED_OFFSET, NATIVE_BIG_ENDIAN ? 1 : Integer.reverseBytes(1));
+	}
+
+	static boolean isSealed(long base) {
+		int sealed = UnsafeMemory.UNSAFE.getIntVolatile(null, base + SEALED_OFFSET);
+		return (NATIVE_BIG_ENDIAN ? sealed : Integer.reverseBytes(sealed)) == 1;
+	}
+
+	/**
+	 * Returns all the segment files in the given directory, in the order they were written.
+	 */
+	public static List<File> listSegments(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+		if (files == null) {
+			return new ArrayList<>();
+		}
+		List<File> list = new ArrayList<>(Arrays.asList(files));
+		list.sort((file1, file2) -> {
+			String[] name1 = file1.getName().split("\\.");
+			String[] name2 = file2.getName().split("\\.");
+			int compare = name1[0].compareTo(name2[0]);
+			if (compare != 0) {
+				return compare;
+			}
+			return Integer.compare(Integer.parseInt(name1[1]), Integer.parseInt(name2[1]));
+		});
+		return list;
+	}
+
+	/**
+	 * Reads the instrument id to name mapping, one {@code id,name} per line.
+	 */
+	public static Map<Integer, String> readInstruments(File directory) throws IOException {
+		Map<Integer, String> map = new ConcurrentHashMap<>();
+		File file = new File(directory, INSTRUMENTS_FILE);
+		if (file.exists()) {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				int comma = line.indexOf(',');
+				if (comma > 0) {
+					map.put(Integer.parseInt(line.substring(0, comma)), line.substring(comma + 1));
+				}
+			}
+		}
+		return map;
+	}
+
+	public static void appendInstrument(File directory, int id, String instrument) throws IOException {
+		File file = new File(directory, INSTRUMENTS_FILE);
+		byte[] line = (id + "," + instrument + "\n").getBytes(StandardCharsets.UTF_8);
+		Files.write(file.toPath(), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.robindrew.trading.igindex.feed.igindex.journal;
+
+import static com.robindrew.trading.igindex.feed.igindex.journal.TickJournal.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.Map;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory;
+
+/**
+ * Tails a tick journal, possibly from another JVM. Records are read directly from the mapped segments and passed to
+ * the handler as primitives, so polling neither copies nor allocates.
+ */
+public class TickJournalReader implements AutoCloseable {
+
+	private final File directory;
+	private Map<Integer, String> instrumentMap;
+
+	private File segment;
+	private MappedByteBuffer buffer;
+	private long base;
+	private long position = 0;
+
+	public TickJournalReader(File directory) throws IOException {
+		this.directory = Check.notNull("directory", directory);
+		this.instrumentMap = readInstruments(directory);
+	}
+
+	/**
+	 * Returns the name of the instrument with the given id, re-reading the mapping if the id is new.
+	 */
+	public String getInstrument(int instrumentId) throws IOException {
+		String instrument = instrumentMap.get(instrumentId);
+		if (instrument == null) {
+			instrumentMap = readInstruments(directory);
+			instrument = instrumentMap.get(instrumentId);
+		}
+		return instrument;
+	}
+
+	/**
+	 * Position the reader at the start of the first segment for the given day (yyyyMMdd) or the first after it.
+	 */
+	public void seek(String day) throws IOException {
+		for (File file : listSegments(directory)) {
+			if (file.getName().compareTo(day) >= 0) {
+				open(file);
+				return;
+			}
+		}
+		segment = null;
+		buffer = null;
+	}
+
+	/**
+	 * Deliver all newly committed ticks to the handler, up to the given limit.
+	 * @return the number of ticks delivered.
+	 */
+	public int poll(ITickJournalHandler handler, int limit) throws IOException {
+		if (buffer == null && !openNext()) {
+			return 0;
+		}
+
+		int count = 0;
+		while (count < limit) {
+			long committed = getCommitted(base);
+			if (position < committed) {
+				int offset = (int) getRecordOffset(position);
+				long timestamp = buffer.getLong(offset);
+				int bid = buffer.getInt(offset + 8);
+				int ask = buffer.getInt(offset + 12);
+				int decimalPlaces = buffer.getInt(offset + 16);
+				int instrumentId = buffer.getInt(offset + 20);
+				handler.onTick(timestamp, bid, ask, decimalPlaces, instrumentId);
+				position++;
+				count++;
+				continue;
+			}
+
+			// Move on once the writer has finished with this segment, and the records committed with the seal are read
+			if (!isSealed(base)) {
+				break;
+			}
+			if (position < getCommitted(base)) {
+				continue;
+			}
+			if (!openNext()) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	private boolean openNext() throws IOException {
+		List<File> segments = listSegments(directory);
+		if (segment == null) {
+			if (segments.isEmpty()) {
+				return false;
+			}
+			open(segments.get(0));
+			return true;
+		}
+		int index = segments.indexOf(segment);
+		if (index < 0 || index + 1 >= segments.size()) {
+			return false;
+		}
+		open(segments.get(index + 1));
+		return true;
+	}
+
+	private void open(File file) throws IOException {
+		try (RandomAccessFile random = new RandomAccessFile(file, "r")) {
+			MappedByteBuffer mapped = random.getChannel().map(MapMode.READ_ONLY, 0, random.length());
+			if (mapped.getInt(MAGIC_OFFSET) != MAGIC) {
+				throw new IOException("Not a tick journal segment: " + file);
+			}
+			if (mapped.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+				throw new IOException("Unsupported record size in segment: " + file);
+			}
+			long capacity = mapped.getLong(CAPACITY_OFFSET);
+			if (capacity < 0 || getRecordOffset(capacity) > mapped.capacity()) {
+				throw new IOException("Invalid capacity in segment: " + file);
+			}
+			segment = file;
+			buffer = mapped;
+			base = UnsafeMemory.address(mapped);
+			position = 0;
+		}
+	}
+
+	@Override
+	public void close() {
+		segment = null;
+		buffer = null;
+	}
+
+}
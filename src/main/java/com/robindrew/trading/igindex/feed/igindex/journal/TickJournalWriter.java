@@ -0,0 +1,165 @@
+package com.robindrew.trading.igindex.feed.igindex.journal;
+
+import static com.robindrew.trading.igindex.feed.igindex.journal.TickJournal.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.memory.UnsafeMemory;
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickWriter;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Writes ticks for all instruments to memory-mapped journal segments that roll by day, or when full. The committed
+ * record count in the header is only advanced on flush, so readers never see a partially written batch. Segments only
+ * roll forward to the latest day seen: a tick that is late from an earlier day, as happens around midnight with ticks
+ * from many instruments, is written to the current segment rather than alternating segments. Not thread safe,
+ * intended to be driven by a single writer thread.
+ */
+public class TickJournalWriter implements ITickWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(TickJournalWriter.class);
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private final File directory;
+	private final long recordCapacity;
+	private final Map<String, Integer> instrumentMap = new HashMap<>();
+
+	private String day = null;
+	private long epochDay = Long.MIN_VALUE;
+	private int index = 0;
+	private MappedByteBuffer buffer;
+	private long base;
+	private long written = 0;
+
+	public TickJournalWriter(File directory, long segmentSize) throws IOException {
+		if (segmentSize < HEADER_SIZE + RECORD_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("segmentSize=" + segmentSize);
+		}
+		this.directory = Check.notNull("directory", directory);
+		this.recordCapacity = (segmentSize - HEADER_SIZE) / RECORD_SIZE;
+
+		directory.mkdirs();
+		for (Map.Entry<Integer, String> entry : readInstruments(directory).entrySet()) {
+			instrumentMap.put(entry.getValue(), entry.getKey());
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void write(Tick tick) throws IOException {
+		// Days are UTC, as in TickFileWriter.toDay
+		long tickEpochDay = Math.floorDiv(tick.getTimestamp(), MILLIS_PER_DAY);
+		if (tickEpochDay > epochDay) {
+			epochDay = tickEpochDay;
+			roll(DAY_FORMAT.format(LocalDate.ofEpochDay(epochDay)));
+		} else if (buffer == null || written == recordCapacity) {
+			roll(day);
+		}
+
+		int position = (int) getRecordOffset(written);
+		buffer.putLong(position, tick.getTimestamp());
+		buffer.putInt(position + 8, tick.getBid());
+		buffer.putInt(position + 12, tick.getAsk());
+		buffer.putInt(position + 16, tick.getDecimalPlaces());
+		buffer.putInt(position + 20, getInstrumentId(tick.getInstrument()));
+		written++;
+	}
+
+	private int getInstrumentId(String instrument) throws IOException {
+		Integer id = instrumentMap.get(instrument);
+		if (id == null) {
+			id = instrumentMap.size() + 1;
+			appendInstrument(directory, id, instrument);
+			instrumentMap.put(instrument, id);
+		}
+		return id;
+	}
+
+	private void roll(String nextDay) throws IOException {
+		if (buffer != null) {
+			seal();
+		}
+
+		if (nextDay.equals(day)) {
+			index++;
+		} else {
+			day = nextDay;
+			index = nextIndex(nextDay);
+		}
+
+		File file = new File(directory, getSegmentName(day, index));
+		log.info("Opening journal segment: {}", file);
+		long size = getRecordOffset(recordCapacity);
+		try (RandomAccessFile random = new RandomAccessFile(file, "rw")) {
+			buffer = random.getChannel().map(MapMode.READ_WRITE, 0, size);
+		}
+		base = UnsafeMemory.address(buffer);
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+		buffer.putInt(SEALED_OFFSET, 0);
+		buffer.putLong(CAPACITY_OFFSET, recordCapacity);
+		buffer.putLong(COMMITTED_OFFSET, 0);
+		written = 0;
+	}
+
+	/**
+	 * Segments are never appended to after a restart, a new segment is always started for the day.
+	 */
+	private int nextIndex(String day) {
+		int next = 0;
+		List<File> segments = listSegments(directory);
+		for (File segment : segments) {
+			String[] name = segment.getName().split("\\.");
+			if (name[0].equals(day)) {
+				next = Math.max(next, Integer.parseInt(name[1]) + 1);
+			}
+		}
+		return next;
+	}
+
+	private void seal() {
+		putCommitted(base, written);
+		putSealed(base);
+		buffer.force();
+		buffer = null;
+	}
+
+	@Override
+	public void flush(boolean sync) throws IOException {
+		if (buffer == null) {
+			return;
+		}
+		// Publish the batch to readers only after all its records are written
+		putCommitted(base, written);
+		if (sync) {
+			buffer.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (buffer != null) {
+			seal();
+		}
+	}
+
+}
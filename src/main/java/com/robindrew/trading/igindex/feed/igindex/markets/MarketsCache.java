@@ -0,0 +1,152 @@
+package com.robindrew.trading.igindex.feed.igindex.markets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.platform.rest.IIgIndexRestService;
+import com.robindrew.trading.igindex.platform.rest.executor.getmarkets.response.Markets;
+
+/**
+ * A bounded cache of {@link Markets} keyed by epic. Entries are refreshed in the background once they reach the
+ * refresh age, so callers keep getting the previous value instead of waiting on a REST round-trip, and expire
+ * entirely if they are not refreshed in time.
+ */
+public class MarketsCache implements MarketsCacheMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(MarketsCache.class);
+
+	private final IIgIndexRestService rest;
+	private final ExecutorService executor;
+	private final LoadingCache<String, Markets> cache;
+
+	public MarketsCache(IIgIndexRestService rest, long maximumSize, long refreshSeconds, long expirySeconds, int threads) {
+		if (refreshSeconds >= expirySeconds) {
+			throw new IllegalArgumentException("refreshSeconds=" + refreshSeconds + ", expirySeconds=" + expirySeconds);
+		}
+		this.rest = Check.notNull("rest", rest);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("MarketsCache-%d").setDaemon(true).build());
+
+		CacheLoader<String, Markets> loader = CacheLoader.asyncReloading(new MarketsLoader(), executor);
+		this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS).expireAfterWrite(expirySeconds, TimeUnit.SECONDS).recordStats().build(loader);
+	}
+
+	/**
+	 * Returns the cached markets for the given epic, loading them if necessary.
+	 */
+	public Markets get(String epic) {
+		try {
+			return cache.getUnchecked(epic);
+		} catch (UncheckedExecutionException e) {
+			throw new IllegalStateException("Failed to get markets for epic: " + epic, e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the latest markets for the given epic directly from the REST service and caches the result.
+	 */
+	public Markets getLatest(String epic) {
+		Markets markets = rest.getMarkets(epic, true);
+		cache.put(epic, markets);
+		return markets;
+	}
+
+	/**
+	 * Returns the markets for all the given epics, loading any that are not cached in parallel. Epics that have not
+	 * loaded within the timeout are left out, and continue loading in the background for the next call.
+	 */
+	public Map<String, Markets> getAll(Collection<String> epics, long timeoutMillis) {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Map<String, Markets> map = new LinkedHashMap<>();
+		Map<String, Future<Markets>> futures = new LinkedHashMap<>();
+		for (String epic : epics) {
+			if (cache.asMap().containsKey(epic)) {
+				map.put(epic, get(epic));
+			} else {
+				futures.put(epic, executor.submit(() -> get(epic)));
+			}
+		}
+
+		List<String> failed = new ArrayList<>();
+		for (Map.Entry<String, Future<Markets>> entry : futures.entrySet()) {
+			try {
+				long remaining = Math.max(0, deadline - System.currentTimeMillis());
+				map.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+			} catch (TimeoutException e) {
+				failed.add(entry.getKey());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted loading markets", e);
+			} catch (ExecutionException e) {
+				log.warn("Failed to load markets for epic: " + entry.getKey(), e.getCause());
+				failed.add(entry.getKey());
+			}
+		}
+		if (!failed.isEmpty()) {
+			log.warn("Markets unavailable for epics: {}", failed);
+		}
+		return map;
+	}
+
+	@Override
+	public long getSize() {
+		return cache.size();
+	}
+
+	@Override
+	public long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	@Override
+	public long getMissCount() {
+		return cache.stats().missCount();
+	}
+
+	@Override
+	public double getHitRate() {
+		return cache.stats().hitRate();
+	}
+
+	@Override
+	public long getLoadExceptionCount() {
+		return cache.stats().loadExceptionCount();
+	}
+
+	@Override
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private class MarketsLoader extends CacheLoader<String, Markets> {
+
+		@Override
+		public Markets load(String epic) {
+			log.debug("Loading markets for epic: {}", epic);
+			return rest.getMarkets(epic, true);
+		}
+	}
+
+}
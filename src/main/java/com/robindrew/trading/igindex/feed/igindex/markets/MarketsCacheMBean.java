@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.markets;
+
+public interface MarketsCacheMBean {
+
+	long getSize();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	double getHitRate();
+
+	long getLoadExceptionCount();
+
+	void invalidateAll();
+
+}
@@ -0,0 +1,43 @@
+package com.robindrew.trading.igindex.feed.igindex.memory;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+
+import sun.misc.Unsafe;
+
+/**
+ * Ordered, volatile and fenced access to off-heap memory, for the structures shared between threads or processes
+ * through direct and memory-mapped buffers. {@link Unsafe} is the only way to express these on Java 8. javac reports
+ * every reference to the type as an "internal proprietary API" warning, which no annotation can suppress, so the type
+ * is only named in this class and callers use it through {@link #UNSAFE}.
+ */
+public final class UnsafeMemory {
+
+	public static final Unsafe UNSAFE;
+	private static final long ADDRESS_OFFSET;
+
+	static {
+		try {
+			Field field = Unsafe.class.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			UNSAFE = (Unsafe) field.get(null);
+			ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+		} catch (Exception e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * The native address of a direct or mapped buffer. The buffer must be kept reachable while the address is in use.
+	 */
+	public static long address(Buffer buffer) {
+		if (!buffer.isDirect()) {
+			throw new IllegalArgumentException("Not a direct buffer");
+		}
+		return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+	}
+
+	private UnsafeMemory() {
+	}
+
+}
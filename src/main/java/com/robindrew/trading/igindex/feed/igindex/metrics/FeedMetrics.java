@@ -0,0 +1,130 @@
+package com.robindrew.trading.igindex.feed.igindex.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickPersistence;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Throughput and latency metrics for tick capture, per instrument and for persistence.
+ */
+public class FeedMetrics implements FeedMetricsMBean {
+
+	private final InstrumentStatsRegistry statsRegistry;
+	private final TickPersistence persistence;
+	private final Map<String, InstrumentMetrics> instrumentMap = new ConcurrentHashMap<>();
+	private final LatencyHistogram latency = new LatencyHistogram("millis");
+
+	public FeedMetrics(InstrumentStatsRegistry statsRegistry, TickPersistence persistence) {
+		this.statsRegistry = Check.notNull("statsRegistry", statsRegistry);
+		this.persistence = Check.notNull("persistence", persistence);
+	}
+
+	public InstrumentMetrics getInstrument(String instrument) {
+		return instrumentMap.computeIfAbsent(instrument, AggregatingInstrumentMetrics::new);
+	}
+
+	/**
+	 * Returns the metrics for all instruments, sorted by instrument.
+	 */
+	public Map<String, InstrumentMetrics> getInstruments() {
+		return new TreeMap<>(instrumentMap);
+	}
+
+	public int getTicksPerSecond(String instrument) {
+		return statsRegistry.getStats(instrument).getTicksLastSecond(System.currentTimeMillis() - 1000);
+	}
+
+	public int getTicksLastMinute(String instrument) {
+		return statsRegistry.getStats(instrument).getTicksLastMinute(System.currentTimeMillis());
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public TickPersistence getPersistence() {
+		return persistence;
+	}
+
+	@Override
+	public long getTickCount() {
+		long count = 0;
+		for (InstrumentMetrics metrics : instrumentMap.values()) {
+			count += metrics.getTickCount();
+		}
+		return count;
+	}
+
+	@Override
+	public int getTicksPerSecond() {
+		int count = 0;
+		for (String instrument : instrumentMap.keySet()) {
+			count += getTicksPerSecond(instrument);
+		}
+		return count;
+	}
+
+	@Override
+	public long getLatencyMillisP50() {
+		return latency.getPercentile(50);
+	}
+
+	@Override
+	public long getLatencyMillisP99() {
+		return latency.getPercentile(99);
+	}
+
+	@Override
+	public long getLatencyMillisMax() {
+		return latency.getMax();
+	}
+
+	@Override
+	public int getPersistQueueDepth() {
+		return persistence.getQueueDepth();
+	}
+
+	@Override
+	public long getPersistDroppedCount() {
+		return persistence.getDroppedCount();
+	}
+
+	@Override
+	public long getPersistWriteNanosP99() {
+		return persistence.getWriteLatency().getPercentile(99);
+	}
+
+	@Override
+	public long getPersistFlushMicrosP99() {
+		return persistence.getFlushLatency().getPercentile(99);
+	}
+
+	@Override
+	public void resetLatencies() {
+		latency.reset();
+		for (InstrumentMetrics metrics : instrumentMap.values()) {
+			metrics.getLatency().reset();
+		}
+		persistence.getWriteLatency().reset();
+		persistence.getFlushLatency().reset();
+	}
+
+	private class AggregatingInstrumentMetrics extends InstrumentMetrics {
+
+		private AggregatingInstrumentMetrics(String instrument) {
+			super(instrument);
+		}
+
+		@Override
+		public void onTick(Tick tick) {
+			super.onTick(tick);
+			latency.record(tick.getReceived() - tick.getTimestamp());
+		}
+	}
+
+}
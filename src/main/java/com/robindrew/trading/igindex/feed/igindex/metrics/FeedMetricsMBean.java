@@ -0,0 +1,25 @@
+package com.robindrew.trading.igindex.feed.igindex.metrics;
+
+public interface FeedMetricsMBean {
+
+	long getTickCount();
+
+	int getTicksPerSecond();
+
+	long getLatencyMillisP50();
+
+	long getLatencyMillisP99();
+
+	long getLatencyMillisMax();
+
+	int getPersistQueueDepth();
+
+	long getPersistDroppedCount();
+
+	long getPersistWriteNanosP99();
+
+	long getPersistFlushMicrosP99();
+
+	void resetLatencies();
+
+}
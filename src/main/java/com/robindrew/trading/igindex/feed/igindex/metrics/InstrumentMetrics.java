@@ -0,0 +1,40 @@
+package com.robindrew.trading.igindex.feed.igindex.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+public class InstrumentMetrics implements ITickListener {
+
+	private final String instrument;
+	private final AtomicLong ticks = new AtomicLong();
+	private final LatencyHistogram latency = new LatencyHistogram("millis");
+
+	public InstrumentMetrics(String instrument) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	public long getTickCount() {
+		return ticks.get();
+	}
+
+	/**
+	 * The time from the exchange timestamp to the tick arriving in this process.
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		ticks.incrementAndGet();
+		latency.record(tick.getReceived() - tick.getTimestamp());
+	}
+
+}
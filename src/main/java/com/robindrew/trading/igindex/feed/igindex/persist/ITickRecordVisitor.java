@@ -0,0 +1,10 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public interface ITickRecordVisitor {
+
+	/**
+	 * @return false to stop visiting.
+	 */
+	boolean visit(long timestamp, int bid, int ask, int decimalPlaces);
+
+}
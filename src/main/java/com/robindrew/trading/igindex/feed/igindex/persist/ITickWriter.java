@@ -0,0 +1,16 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.IOException;
+
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+public interface ITickWriter extends AutoCloseable {
+
+	void write(Tick tick) throws IOException;
+
+	void flush(boolean sync) throws IOException;
+
+	@Override
+	void close() throws IOException;
+
+}
@@ -0,0 +1,43 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.IOException;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Writes every tick to a primary writer and a mirror, e.g. the line files and the original files for consumers that
+ * still read them. Not thread safe, intended to be driven by a single writer thread.
+ */
+public class MirrorTickWriter implements ITickWriter {
+
+	private final ITickWriter primary;
+	private final ITickWriter mirror;
+
+	public MirrorTickWriter(ITickWriter primary, ITickWriter mirror) {
+		this.primary = Check.notNull("primary", primary);
+		this.mirror = Check.notNull("mirror", mirror);
+	}
+
+	@Override
+	public void write(Tick tick) throws IOException {
+		primary.write(tick);
+		mirror.write(tick);
+	}
+
+	@Override
+	public void flush(boolean sync) throws IOException {
+		primary.flush(sync);
+		mirror.flush(sync);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			primary.close();
+		} finally {
+			mirror.close();
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public enum OverflowPolicy {
+
+	/** Drop the tick when the queue is full, the streaming thread is never delayed. */
+	DROP,
+	/** Wait for space in the queue, applying backpressure to the streaming thread. */
+	BLOCK;
+
+}
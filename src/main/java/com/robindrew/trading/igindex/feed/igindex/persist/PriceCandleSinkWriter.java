@@ -0,0 +1,87 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.price.candle.io.stream.sink.PriceCandleFileSink;
+
+/**
+ * Writes ticks in the original {@code tick.output.dir} layout and format, by handing the streamed snapshot of each tick
+ * to a {@link PriceCandleFileSink} per instrument, started on first use and closed with the writer. The sinks manage
+ * their own files and flushing on their own threads, so {@link #flush(boolean)} does nothing and the sync policy does
+ * not apply to these files. Ticks that were not streamed (e.g. replayed) have no snapshot and are skipped. Not thread
+ * safe, intended to be driven by a single writer thread.
+ */
+public class PriceCandleSinkWriter implements ITickWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceCandleSinkWriter.class);
+
+	private final File directory;
+	private final Function<String, IIgIndexInstrument> lookup;
+	private final Map<String, PriceCandleFileSink> sinkMap = new HashMap<>();
+	private long skipped = 0;
+
+	/**
+	 * @param lookup resolves the instrument each sink is created for, by name.
+	 */
+	public PriceCandleSinkWriter(File directory, Function<String, IIgIndexInstrument> lookup) {
+		this.directory = Check.notNull("directory", directory);
+		this.lookup = Check.notNull("lookup", lookup);
+	}
+
+	@Override
+	public void write(Tick tick) {
+		if (tick.getSnapshot() == null) {
+			if (skipped++ == 0) {
+				log.warn("Ticks that were not streamed can not be written by a PriceCandleFileSink, skipping {}", tick);
+			}
+			return;
+		}
+		getSink(tick.getInstrument()).next(tick.getSnapshot());
+	}
+
+	private PriceCandleFileSink getSink(String instrument) {
+		PriceCandleFileSink sink = sinkMap.get(instrument);
+		if (sink == null) {
+			sink = new PriceCandleFileSink(lookup.apply(instrument), directory);
+			sink.start();
+			sinkMap.put(instrument, sink);
+		}
+		return sink;
+	}
+
+	@Override
+	public void flush(boolean sync) {
+		// The sinks flush on their own threads, there is nothing to force
+	}
+
+	@Override
+	public void close() {
+		if (skipped > 0) {
+			log.warn("Skipped {} ticks that were not streamed", skipped);
+		}
+		for (PriceCandleFileSink sink : sinkMap.values()) {
+			close(sink);
+		}
+		sinkMap.clear();
+	}
+
+	private static void close(Object sink) {
+		if (sink instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) sink).close();
+			} catch (Exception e) {
+				log.warn("Failed to close " + sink, e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public enum SyncPolicy {
+
+	/** Flush to the operating system only, never force to disk. */
+	NONE,
+	/** Force to disk after every batch. */
+	BATCH,
+	/** Force to disk at most once per sync interval. */
+	INTERVAL;
+
+}
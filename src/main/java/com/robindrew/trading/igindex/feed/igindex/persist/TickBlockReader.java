@@ -0,0 +1,145 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.BLOCK_SIZE;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.MAX_TICK_SIZE;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.getVarLong;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.unzigzag;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * Reads a file in the {@link TickBlocks} format block by block. Blocks entirely outside the requested time range are
+ * skipped using their headers, without being inflated. Not thread safe, but reusable across files.
+ */
+public class TickBlockReader implements AutoCloseable {
+
+	private final Inflater inflater = new Inflater();
+	private final long[] timestamps = new long[BLOCK_SIZE];
+	private final int[] bids = new int[BLOCK_SIZE];
+	private final int[] asks = new int[BLOCK_SIZE];
+	private final byte[] decimalPlaces = new byte[BLOCK_SIZE];
+	private final ByteBuffer raw = ByteBuffer.allocate(BLOCK_SIZE * MAX_TICK_SIZE);
+	private byte[] compressed = new byte[BLOCK_SIZE * MAX_TICK_SIZE];
+
+	/**
+	 * Visit the ticks with timestamps in the range [from, to] in file order.
+	 * @return the number visited, or -(visited + 1) if the visitor stopped early.
+	 */
+	public long read(File file, long from, long to, ITickRecordVisitor visitor) throws IOException {
+		Check.notNull("file", file);
+		Check.notNull("visitor", visitor);
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+			if (input.readInt() != TickBlocks.MAGIC) {
+				throw new IOException("Not a tick block file: " + file);
+			}
+			int version = input.readInt();
+			if (version != TickBlocks.VERSION) {
+				throw new IOException("Unsupported version " + version + " in " + file);
+			}
+
+			long visited = 0;
+			while (true) {
+				long minTimestamp;
+				try {
+					minTimestamp = input.readLong();
+				} catch (EOFException eof) {
+					return visited;
+				}
+				long maxTimestamp = input.readLong();
+				int count = input.readInt();
+				int rawLength = input.readInt();
+				int compressedLength = input.readInt();
+				if (count < 0 || count > BLOCK_SIZE || rawLength < 0 || rawLength > raw.capacity() || compressedLength < 0) {
+					throw new IOException("Corrupt block header in " + file);
+				}
+
+				if (maxTimestamp < from || minTimestamp > to) {
+					skipFully(input, compressedLength);
+					continue;
+				}
+
+				if (compressed.length < compressedLength) {
+					compressed = new byte[compressedLength];
+				}
+				input.readFully(compressed, 0, compressedLength);
+				decode(compressed, compressedLength, rawLength, count);
+
+				for (int i = 0; i < count; i++) {
+					long timestamp = timestamps[i];
+					if (timestamp < from || timestamp > to) {
+						continue;
+					}
+					visited++;
+					if (!visitor.visit(timestamp, bids[i], asks[i], decimalPlaces[i])) {
+						return -visited - 1;
+					}
+				}
+			}
+		}
+	}
+
+	private void decode(byte[] data, int length, int rawLength, int count) throws IOException {
+		inflater.reset();
+		inflater.setInput(data, 0, length);
+		try {
+			int inflated = 0;
+			while (inflated < rawLength) {
+				int read = inflater.inflate(raw.array(), inflated, rawLength - inflated);
+				if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+					break;
+				}
+				inflated += read;
+			}
+			if (inflated != rawLength) {
+				throw new IOException("Truncated block, expected " + rawLength + " bytes, inflated " + inflated);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt block", e);
+		}
+
+		raw.clear();
+		raw.limit(rawLength);
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			previous += unzigzag(getVarLong(raw));
+			timestamps[i] = previous;
+		}
+		previous = 0;
+		for (int i = 0; i < count; i++) {
+			previous += unzigzag(getVarLong(raw));
+			bids[i] = (int) previous;
+		}
+		for (int i = 0; i < count; i++) {
+			asks[i] = (int) (bids[i] + unzigzag(getVarLong(raw)));
+		}
+		raw.get(decimalPlaces, 0, count);
+	}
+
+	private static void skipFully(DataInputStream input, int length) throws IOException {
+		int remaining = length;
+		while (remaining > 0) {
+			int skipped = input.skipBytes(remaining);
+			if (skipped <= 0) {
+				throw new EOFException();
+			}
+			remaining -= skipped;
+		}
+	}
+
+	@Override
+	public void close() {
+		inflater.end();
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.BLOCK_SIZE;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.MAX_TICK_SIZE;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.putVarLong;
+import static com.robindrew.trading.igindex.feed.igindex.persist.TickBlocks.zigzag;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * Writes ticks to a new file in the {@link TickBlocks} format. Ticks are buffered into columns and written a block at
+ * a time. Not thread safe.
+ */
+public class TickBlockWriter implements ITickRecordVisitor, AutoCloseable {
+
+	private final DataOutputStream output;
+	private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+	private final long[] timestamps = new long[BLOCK_SIZE];
+	private final int[] bids = new int[BLOCK_SIZE];
+	private final int[] asks = new int[BLOCK_SIZE];
+	private final byte[] decimalPlaces = new byte[BLOCK_SIZE];
+	private final ByteBuffer raw = ByteBuffer.allocate(BLOCK_SIZE * MAX_TICK_SIZE);
+	private byte[] compressed = new byte[BLOCK_SIZE * MAX_TICK_SIZE];
+	private int count = 0;
+	private long written = 0;
+
+	public TickBlockWriter(File file) throws IOException {
+		Check.notNull("file", file);
+		this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+		output.writeInt(TickBlocks.MAGIC);
+		output.writeInt(TickBlocks.VERSION);
+	}
+
+	public long getWritten() {
+		return written;
+	}
+
+	public void write(long timestamp, int bid, int ask, int places) throws IOException {
+		timestamps[count] = timestamp;
+		bids[count] = bid;
+		asks[count] = ask;
+		decimalPlaces[count] = (byte) places;
+		count++;
+		written++;
+		if (count == BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public boolean visit(long timestamp, int bid, int ask, int places) {
+		try {
+			write(timestamp, bid, ask, places);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		long minTimestamp = Long.MAX_VALUE;
+		long maxTimestamp = Long.MIN_VALUE;
+
+		raw.clear();
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			minTimestamp = Math.min(minTimestamp, timestamps[i]);
+			maxTimestamp = Math.max(maxTimestamp, timestamps[i]);
+			putVarLong(raw, zigzag(timestamps[i] - previous));
+			previous = timestamps[i];
+		}
+		previous = 0;
+		for (int i = 0; i < count; i++) {
+			putVarLong(raw, zigzag(bids[i] - previous));
+			previous = bids[i];
+		}
+		for (int i = 0; i < count; i++) {
+			putVarLong(raw, zigzag((long) asks[i] - bids[i]));
+		}
+		raw.put(decimalPlaces, 0, count);
+
+		deflater.reset();
+		deflater.setInput(raw.array(), 0, raw.position());
+		deflater.finish();
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == compressed.length) {
+				compressed = Arrays.copyOf(compressed, compressed.length * 2);
+			}
+			length += deflater.deflate(compressed, length, compressed.length - length);
+		}
+
+		output.writeLong(minTimestamp);
+		output.writeLong(maxTimestamp);
+		output.writeInt(count);
+		output.writeInt(raw.position());
+		output.writeInt(length);
+		output.write(compressed, 0, length);
+		count = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (count > 0) {
+				writeBlock();
+			}
+			output.flush();
+		} finally {
+			deflater.end();
+			output.close();
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * The compressed, columnar tick file format written by {@link TickBlockWriter}. A file holds a header followed by
+ * blocks of up to {@link #BLOCK_SIZE} ticks. Each block has an uncompressed header, so a reader can skip blocks outside
+ * a time range without inflating them, followed by a deflated payload of four columns:
+ *
+ * <pre>
+ * file header:  magic(int) version(int)
+ * block header: minTimestamp(long) maxTimestamp(long) count(int) rawLength(int) compressedLength(int)
+ * payload:      timestamp deltas, bid deltas, ask-bid spreads (zigzag varints), decimal places (bytes)
+ * </pre>
+ */
+public final class TickBlocks {
+
+	public static final String FILE_SUFFIX = ".blocks";
+
+	public static final int MAGIC = 0x54424C4B;
+	public static final int VERSION = 1;
+	public static final int FILE_HEADER_SIZE = 8;
+	public static final int BLOCK_HEADER_SIZE = 28;
+	public static final int BLOCK_SIZE = 4096;
+
+	/** The worst case encoded size of one tick: varint long, two varint ints and a byte. */
+	public static final int MAX_TICK_SIZE = 10 + 5 + 5 + 1;
+
+	public static File getFile(File directory, String instrument, LocalDate day) {
+		File ticks = TickFileWriter.getFile(directory, instrument, day);
+		String name = ticks.getName();
+		return new File(ticks.getParentFile(), name.substring(0, name.length() - TickFileWriter.FILE_SUFFIX.length()) + FILE_SUFFIX);
+	}
+
+	static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+			shift += 7;
+		}
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private TickBlocks() {
+	}
+
+}
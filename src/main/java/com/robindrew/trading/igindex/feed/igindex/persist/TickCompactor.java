@@ -0,0 +1,178 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+
+/**
+ * Compacts closed day files written by {@link TickFileWriter} into the {@link TickBlocks} format in the background. A
+ * day is closed once it ended more than the grace period ago. The block file is written alongside and atomically
+ * renamed into place before the line file and its index are deleted, so a tick is never lost if compaction is
+ * interrupted. A line file is only replaced while the writer does not have it open and it has not grown since it was
+ * read, otherwise it is left for the next run. Late ticks that arrive for an already compacted day are merged in on
+ * the next run.
+ */
+public class TickCompactor implements TickCompactorMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(TickCompactor.class);
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final long GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+	private final File directory;
+	private final TickFileQuery query;
+	private final TickFileWriter writer;
+	private final ScheduledExecutorService executor;
+	private final AtomicLong filesCompacted = new AtomicLong();
+	private final AtomicLong ticksCompacted = new AtomicLong();
+	private final AtomicLong bytesBefore = new AtomicLong();
+	private final AtomicLong bytesAfter = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	public TickCompactor(File directory, TickFileQuery query, TickFileWriter writer) {
+		this.directory = Check.notNull("directory", directory);
+		this.query = Check.notNull("query", query);
+		this.writer = Check.notNull("writer", writer);
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("TickCompactor").setDaemon(true).build());
+	}
+
+	public void start(long intervalMinutes) {
+		if (intervalMinutes < 1) {
+			throw new IllegalArgumentException("intervalMinutes=" + intervalMinutes);
+		}
+		executor.scheduleWithFixedDelay(this::compact, 1, intervalMinutes, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public synchronized String compact() {
+		File[] instruments = directory.listFiles(File::isDirectory);
+		if (instruments == null) {
+			return "Directory not found: " + directory;
+		}
+
+		int compacted = 0;
+		for (File instrumentDir : instruments) {
+			File[] files = instrumentDir.listFiles((dir, name) -> name.endsWith(TickFileWriter.FILE_SUFFIX));
+			if (files == null) {
+				continue;
+			}
+			for (File file : files) {
+				LocalDate day = getDay(file);
+				if (day == null || !isClosed(day)) {
+					continue;
+				}
+				try {
+					if (compact(instrumentDir.getName(), day)) {
+						compacted++;
+					}
+				} catch (Exception e) {
+					failedCount.incrementAndGet();
+					log.warn("Failed to compact " + file, e);
+				}
+			}
+		}
+		return "Compacted " + compacted + " files";
+	}
+
+	private boolean compact(String instrument, LocalDate day) throws IOException {
+		File lines = TickFileWriter.getFile(directory, instrument, day);
+		File blocks = TickBlocks.getFile(directory, instrument, day);
+		File temp = new File(blocks.getPath() + ".tmp");
+		if (writer.isOpen(lines)) {
+			return false;
+		}
+		long length = lines.length();
+		long before = length + TickIndex.getIndexFile(lines).length() + blocks.length();
+
+		long start = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		long end = start + TimeUnit.DAYS.toMillis(1) - 1;
+
+		// Query reads any existing blocks for the day first, then the line file
+		long count;
+		try (TickBlockWriter writer = new TickBlockWriter(temp)) {
+			count = query.query(instrument, start, end, writer);
+		}
+		// The writer can not open the line file while it is replaced, a late tick after that starts a new one
+		synchronized (writer.getFileLock()) {
+			if (writer.isOpen(lines) || lines.length() != length) {
+				log.info("Skipped compacting {}, still being written", lines);
+				temp.delete();
+				return false;
+			}
+
+			// The existing blocks are only replaced once the merged file is complete
+			Files.move(temp.toPath(), blocks.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if (!lines.delete()) {
+				throw new IOException("Unable to delete " + lines);
+			}
+			TickIndex.getIndexFile(lines).delete();
+		}
+
+		filesCompacted.incrementAndGet();
+		ticksCompacted.addAndGet(count);
+		bytesBefore.addAndGet(before);
+		bytesAfter.addAndGet(blocks.length());
+		log.info("Compacted {} ticks to {} ({} -> {} bytes)", count, blocks, before, blocks.length());
+		return true;
+	}
+
+	private static LocalDate getDay(File file) {
+		String name = file.getName();
+		try {
+			return LocalDate.parse(name.substring(0, name.length() - TickFileWriter.FILE_SUFFIX.length()), DAY_FORMAT);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	static boolean isClosed(LocalDate day) {
+		long end = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		return System.currentTimeMillis() > end + GRACE_PERIOD;
+	}
+
+	@Override
+	public long getFilesCompacted() {
+		return filesCompacted.get();
+	}
+
+	@Override
+	public long getTicksCompacted() {
+		return ticksCompacted.get();
+	}
+
+	@Override
+	public long getBytesBefore() {
+		return bytesBefore.get();
+	}
+
+	@Override
+	public long getBytesAfter() {
+		return bytesAfter.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public interface TickCompactorMBean {
+
+	long getFilesCompacted();
+
+	long getTicksCompacted();
+
+	long getBytesBefore();
+
+	long getBytesAfter();
+
+	long getFailedCount();
+
+	String compact();
+
+}
@@ -0,0 +1,198 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.robindrew.common.util.Check;
+
+/**
+ * Reads the ticks for an instrument in a time range from the files written by {@link TickFileWriter}. Each day file
+ * is entered with a seek through its {@link TickIndex}, rather than scanned from the start, and lines are parsed
+ * directly to primitives. Days compacted by the {@link TickCompactor} are read block by block. Only the days that have
+ * files are visited, so the cost of a query does not depend on the width of the range.
+ */
+public class TickFileQuery {
+
+	private static final int VALID = 1;
+	private static final int MALFORMED = 0;
+	private static final int END_OF_FILE = -1;
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+	private final File directory;
+
+	public TickFileQuery(File directory) {
+		this.directory = Check.notNull("directory", directory);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the instruments that have tick files.
+	 */
+	public Set<String> getInstruments() {
+		Set<String> instruments = new TreeSet<>();
+		File[] directories = directory.listFiles(File::isDirectory);
+		if (directories != null) {
+			for (File instrumentDir : directories) {
+				if (!getDays(instrumentDir).isEmpty()) {
+					instruments.add(instrumentDir.getName());
+				}
+			}
+		}
+		return instruments;
+	}
+
+	public boolean hasInstrument(String instrument) {
+		return isValidName(instrument) && new File(directory, instrument).isDirectory();
+	}
+
+	/**
+	 * Instrument names become directory names, so must not be able to reach outside the tick directory.
+	 */
+	private static boolean isValidName(String instrument) {
+		if (instrument.isEmpty() || instrument.equals(".") || instrument.equals("..")) {
+			return false;
+		}
+		for (int i = 0; i < instrument.length(); i++) {
+			char c = instrument.charAt(i);
+			if (c == '/' || c == '\\' || c == ':' || c < ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static NavigableSet<LocalDate> getDays(File instrumentDir) {
+		NavigableSet<LocalDate> days = new TreeSet<>();
+		String[] names = instrumentDir.list();
+		if (names != null) {
+			for (String name : names) {
+				String suffix = name.endsWith(TickFileWriter.FILE_SUFFIX) ? TickFileWriter.FILE_SUFFIX : name.endsWith(TickBlocks.FILE_SUFFIX) ? TickBlocks.FILE_SUFFIX : null;
+				if (suffix == null) {
+					continue;
+				}
+				try {
+					days.add(LocalDate.parse(name.substring(0, name.length() - suffix.length()), DAY_FORMAT));
+				} catch (DateTimeParseException e) {
+					// Not a day file
+				}
+			}
+		}
+		return days;
+	}
+
+	/**
+	 * Visit the ticks with timestamps in the range [from, to] in order.
+	 * @return the number of ticks visited.
+	 */
+	public long query(String instrument, long from, long to, ITickRecordVisitor visitor) throws IOException {
+		if (!isValidName(instrument)) {
+			throw new IllegalArgumentException("Invalid instrument: '" + instrument + "'");
+		}
+		if (from > to) {
+			return 0;
+		}
+
+		long count = 0;
+		NavigableSet<LocalDate> days = getDays(new File(directory, instrument)).subSet(TickFileWriter.toDay(from), true, TickFileWriter.toDay(to), true);
+		try (TickBlockReader reader = new TickBlockReader()) {
+			for (LocalDate day : days) {
+
+				// A compacted day, possibly with late ticks written since
+				File blocks = TickBlocks.getFile(directory, instrument, day);
+				if (blocks.exists()) {
+					long visited = reader.read(blocks, from, to, visitor);
+					if (visited < 0) {
+						return count - visited - 1;
+					}
+					count += visited;
+				}
+
+				File file = TickFileWriter.getFile(directory, instrument, day);
+				if (!file.exists()) {
+					continue;
+				}
+				long visited = queryFile(file, from, to, visitor);
+				if (visited < 0) {
+					return count - visited - 1;
+				}
+				count += visited;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number visited, or -(visited + 1) if the visitor stopped early.
+	 */
+	private long queryFile(File file, long from, long to, ITickRecordVisitor visitor) throws IOException {
+		long offset = TickIndex.seek(file, from);
+		try (RandomAccessFile random = new RandomAccessFile(file, "r")) {
+			random.seek(offset);
+			InputStream input = new BufferedInputStream(Channels.newInputStream(random.getChannel()), 64 * 1024);
+
+			long count = 0;
+			long[] fields = new long[4];
+			int result;
+			while ((result = readLine(input, fields)) != END_OF_FILE) {
+				if (result == MALFORMED) {
+					continue;
+				}
+				long timestamp = fields[0];
+				if (timestamp < from) {
+					continue;
+				}
+				if (timestamp > to) {
+					break;
+				}
+				count++;
+				if (!visitor.visit(timestamp, (int) fields[1], (int) fields[2], (int) fields[3])) {
+					return -count - 1;
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Parse a line of {@code timestamp,bid,ask,decimalPlaces}, ignoring a trailing partial line.
+	 */
+	private int readLine(InputStream input, long[] fields) throws IOException {
+		int field = 0;
+		long value = 0;
+		boolean negative = false;
+		int read;
+		while ((read = input.read()) != -1) {
+			if (read == '\n') {
+				fields[field] = negative ? -value : value;
+				return field == fields.length - 1 ? VALID : MALFORMED;
+			}
+			if (read == ',') {
+				if (field < fields.length - 1) {
+					fields[field++] = negative ? -value : value;
+				}
+				value = 0;
+				negative = false;
+			} else if (read == '-') {
+				negative = true;
+			} else {
+				value = value * 10 + (read - '0');
+			}
+		}
+		return END_OF_FILE;
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Writes ticks as lines of {@code timestamp,bid,ask,decimalPlaces} to one file per instrument per day, in the form
+ * {@code <directory>/<instrument>/<yyyyMMdd>.ticks}, each with a sparse {@link TickIndex}. Days are UTC. A day left
+ * open is closed once the {@link TickCompactor} considers it closed, and the compactor only replaces files that are
+ * not open, see {@link #getFileLock()}. Not thread safe, intended to be driven by a single writer thread.
+ */
+public class TickFileWriter implements ITickWriter {
+
+	public static final String FILE_SUFFIX = ".ticks";
+
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+	public static File getFile(File directory, String instrument, LocalDate day) {
+		return new File(new File(directory, instrument), DAY_FORMAT.format(day) + FILE_SUFFIX);
+	}
+
+	public static LocalDate toDay(long timestamp) {
+		return Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+	}
+
+	private final File directory;
+	private final Map<String, TickFile> fileMap = new HashMap<>();
+	private final StringBuilder line = new StringBuilder(64);
+	private final Set<File> openFiles = new HashSet<>();
+	private long nextExpiryCheck = 0;
+
+	public TickFileWriter(File directory) {
+		this.directory = Check.notNull("directory", directory);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * The lock held while files are opened, so a file that {@link #isOpen(File) is not open} is not opened until the
+	 * lock is released.
+	 */
+	public Object getFileLock() {
+		return openFiles;
+	}
+
+	public boolean isOpen(File file) {
+		synchronized (openFiles) {
+			return openFiles.contains(file);
+		}
+	}
+
+	@Override
+	public void write(Tick tick) throws IOException {
+		TickFile file = getFile(tick);
+
+		line.setLength(0);
+		line.append(tick.getTimestamp()).append(',');
+		line.append(tick.getBid()).append(',');
+		line.append(tick.getAsk()).append(',');
+		line.append(tick.getDecimalPlaces()).append('\n');
+		file.write(tick.getTimestamp(), line);
+	}
+
+	private TickFile getFile(Tick tick) throws IOException {
+		LocalDate day = toDay(tick.getTimestamp());
+		TickFile file = fileMap.get(tick.getInstrument());
+		if (file != null && file.day.equals(day)) {
+			return file;
+		}
+
+		// Roll to the next day
+		if (file != null) {
+			close(file);
+		}
+		file = open(getFile(directory, tick.getInstrument(), day), day);
+		fileMap.put(tick.getInstrument(), file);
+		return file;
+	}
+
+	private TickFile open(File file, LocalDate day) throws IOException {
+		synchronized (openFiles) {
+			TickFile tickFile = new TickFile(file, day);
+			openFiles.add(file);
+			return tickFile;
+		}
+	}
+
+	private void close(TickFile file) throws IOException {
+		try {
+			file.close();
+		} finally {
+			synchronized (openFiles) {
+				openFiles.remove(file.file);
+			}
+		}
+	}
+
+	/**
+	 * Closes days the compactor is waiting for, e.g. those of instruments that have not ticked since.
+	 */
+	private void closeExpired() throws IOException {
+		long now = System.currentTimeMillis();
+		if (now < nextExpiryCheck) {
+			return;
+		}
+		nextExpiryCheck = now + TimeUnit.MINUTES.toMillis(1);
+
+		Iterator<TickFile> iterator = fileMap.values().iterator();
+		while (iterator.hasNext()) {
+			TickFile file = iterator.next();
+			if (TickCompactor.isClosed(file.day)) {
+				iterator.remove();
+				close(file);
+			}
+		}
+	}
+
+	@Override
+	public void flush(boolean sync) throws IOException {
+		for (TickFile file : fileMap.values()) {
+			file.flush(sync);
+		}
+		closeExpired();
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (TickFile file : fileMap.values()) {
+			close(file);
+		}
+		fileMap.clear();
+	}
+
+	private static class TickFile {
+
+		private final File file;
+		private final LocalDate day;
+		private final FileChannel channel;
+		private final TickIndex index;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+		private long offset;
+		private boolean dirty = false;
+
+		private TickFile(File file, LocalDate day) throws IOException {
+			file.getParentFile().mkdirs();
+			this.file = file;
+			this.day = day;
+			this.index = new TickIndex(file);
+			this.channel = new FileOutputStream(file, true).getChannel();
+			this.offset = channel.size();
+		}
+
+		private void write(long timestamp, CharSequence line) throws IOException {
+			if (buffer.remaining() < line.length()) {
+				drain();
+			}
+			index.add(timestamp, offset);
+			for (int i = 0; i < line.length(); i++) {
+				buffer.put((byte) line.charAt(i));
+			}
+			offset += line.length();
+			dirty = true;
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		private void flush(boolean sync) throws IOException {
+			if (buffer.position() > 0) {
+				drain();
+			}
+
+			// Index entries are written after the lines they point to
+			index.flush();
+			if (sync && dirty) {
+				channel.force(false);
+				dirty = false;
+			}
+		}
+
+		private void close() throws IOException {
+			flush(true);
+			index.close();
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * A sparse index over a tick file, stored alongside it with the suffix {@value #INDEX_SUFFIX}. Each entry is a pair
+ * of longs, the timestamp of a tick and the byte offset of its line, written every {@value #INTERVAL} ticks. Looking
+ * up a time is a binary search over the entries followed by a short forward scan. An index missing for an existing
+ * file is built on first use, under a lock for that file, into a temporary file that is atomically moved into place.
+ */
+public class TickIndex {
+
+	public static final String INDEX_SUFFIX = ".idx";
+	public static final int INTERVAL = 256;
+	public static final int ENTRY_SIZE = 16;
+
+	private static final Striped<Lock> locks = Striped.lock(64);
+
+	public static File getIndexFile(File tickFile) {
+		return new File(tickFile.getPath() + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Build the index for an existing tick file if it does not have one.
+	 */
+	public static void ensure(File tickFile) throws IOException {
+		File indexFile = getIndexFile(tickFile);
+		if (indexFile.exists()) {
+			return;
+		}
+		Lock lock = locks.get(indexFile.getAbsolutePath());
+		lock.lock();
+		try {
+			if (!indexFile.exists() && tickFile.exists()) {
+				build(tickFile, indexFile);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void build(File tickFile, File indexFile) throws IOException {
+		File tempFile = Files.createTempFile(indexFile.getAbsoluteFile().getParentFile().toPath(), indexFile.getName(), ".tmp").toFile();
+		try (InputStream input = new BufferedInputStream(new FileInputStream(tickFile), 64 * 1024); FileChannel output = new FileOutputStream(tempFile).getChannel()) {
+			ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+			long offset = 0;
+			long lineStart = 0;
+			long timestamp = 0;
+			boolean inTimestamp = true;
+			int count = 0;
+			int read;
+			while ((read = input.read()) != -1) {
+				offset++;
+				if (inTimestamp) {
+					if (read >= '0' && read <= '9') {
+						timestamp = timestamp * 10 + (read - '0');
+					} else {
+						inTimestamp = false;
+					}
+				}
+				if (read == '\n') {
+					if (count++ % INTERVAL == 0) {
+						entry.clear();
+						entry.putLong(timestamp).putLong(lineStart).flip();
+						output.write(entry);
+					}
+					lineStart = offset;
+					timestamp = 0;
+					inTimestamp = true;
+				}
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+		Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the offset of a line at or before the first tick at the given timestamp.
+	 */
+	public static long seek(File tickFile, long timestamp) throws IOException {
+		ensure(tickFile);
+		File indexFile = getIndexFile(tickFile);
+		try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+			long entries = file.length() / ENTRY_SIZE;
+			if (entries == 0) {
+				return 0;
+			}
+			ByteBuffer index = file.getChannel().map(MapMode.READ_ONLY, 0, entries * ENTRY_SIZE);
+
+			// Find the last entry strictly before the timestamp
+			long low = 0;
+			long high = entries - 1;
+			long found = -1;
+			while (low <= high) {
+				long middle = (low + high) >>> 1;
+				if (index.getLong((int) (middle * ENTRY_SIZE)) < timestamp) {
+					found = middle;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return found == -1 ? 0 : index.getLong((int) (found * ENTRY_SIZE) + 8);
+		}
+	}
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 64);
+	private long count = 0;
+
+	/**
+	 * Open the index for appending, as the given tick file is written.
+	 */
+	public TickIndex(File tickFile) throws IOException {
+		ensure(tickFile);
+		File indexFile = getIndexFile(tickFile);
+		this.channel = new FileOutputStream(indexFile, true).getChannel();
+	}
+
+	/**
+	 * Called for every tick written, adding an entry at each interval.
+	 */
+	public void add(long timestamp, long offset) throws IOException {
+		if (count++ % INTERVAL != 0) {
+			return;
+		}
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.putLong(timestamp).putLong(offset);
+	}
+
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public enum TickOutputFormat {
+
+	/** Text lines, one file per instrument per day, see {@link TickFileWriter}. The default. */
+	LINES,
+	/** The line files, mirrored to the original PriceCandleFileSink files while consumers migrate, see {@link PriceCandleSinkWriter}. */
+	LEGACY,
+	/** Fixed-width binary records in memory-mapped segments, see TickJournalWriter. */
+	JOURNAL;
+
+	/**
+	 * Returns true if ticks are written to the line files, which are compacted, queried and replayed.
+	 */
+	public boolean hasLineFiles() {
+		return this != JOURNAL;
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.metrics.LatencyHistogram;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Decouples tick persistence from the streaming thread. Ticks for all instruments are put on a single bounded,
+ * lock-free queue which a dedicated writer thread drains in batches, flushing once per batch rather than per tick.
+ */
+public class TickPersistence implements ITickListener, TickPersistenceMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(TickPersistence.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final ITickWriter writer;
+	private final int capacity;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+	private final SyncPolicy syncPolicy;
+	private final long syncInterval;
+
+	private final Queue<Tick> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicLong enqueued = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong blocked = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong syncs = new AtomicLong();
+	private final LatencyHistogram writeLatency = new LatencyHistogram("nanos");
+	private final LatencyHistogram flushLatency = new LatencyHistogram("micros");
+
+	private final Thread thread;
+	private volatile boolean running = true;
+	private long lastSync = 0;
+
+	public TickPersistence(ITickWriter writer, int capacity, int batchSize, OverflowPolicy overflowPolicy, SyncPolicy syncPolicy, long syncInterval) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity=" + capacity);
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize=" + batchSize);
+		}
+		this.writer = Check.notNull("writer", writer);
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.overflowPolicy = Check.notNull("overflowPolicy", overflowPolicy);
+		this.syncPolicy = Check.notNull("syncPolicy", syncPolicy);
+		this.syncInterval = syncInterval;
+
+		this.thread = new Thread(this::run, "TickPersistence");
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * The time taken to write a single tick, in nanoseconds.
+	 */
+	public LatencyHistogram getWriteLatency() {
+		return writeLatency;
+	}
+
+	/**
+	 * The time taken to flush (and possibly sync) a batch, in microseconds.
+	 */
+	public LatencyHistogram getFlushLatency() {
+		return flushLatency;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		if (!reserve()) {
+			dropped.incrementAndGet();
+			return;
+		}
+		queue.offer(tick);
+		enqueued.incrementAndGet();
+	}
+
+	private boolean reserve() {
+		while (true) {
+			int current = depth.get();
+			if (current < capacity) {
+				if (depth.compareAndSet(current, current + 1)) {
+					return true;
+				}
+				continue;
+			}
+
+			// Queue is full
+			if (overflowPolicy.equals(OverflowPolicy.DROP) || !running) {
+				return false;
+			}
+			blocked.incrementAndGet();
+			LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+	}
+
+	private void run() {
+		log.info("Writer started (capacity={}, batchSize={}, sync={})", capacity, batchSize, syncPolicy);
+		while (running || depth.get() > 0) {
+			int count = drainBatch();
+			if (count == 0) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				continue;
+			}
+			flushBatch();
+		}
+		try {
+			writer.close();
+		} catch (Exception e) {
+			log.warn("Failed to close writer", e);
+		}
+		log.info("Writer stopped");
+	}
+
+	private int drainBatch() {
+		int count = 0;
+		while (count < batchSize) {
+			Tick tick = queue.poll();
+			if (tick == null) {
+				break;
+			}
+			depth.decrementAndGet();
+			count++;
+			try {
+				long start = System.nanoTime();
+				writer.write(tick);
+				writeLatency.record(System.nanoTime() - start);
+				written.incrementAndGet();
+			} catch (Exception e) {
+				failed.incrementAndGet();
+				log.warn("Failed to write " + tick, e);
+			}
+		}
+		return count;
+	}
+
+	private void flushBatch() {
+		batches.incrementAndGet();
+		boolean sync = isSyncDue();
+		try {
+			long start = System.nanoTime();
+			writer.flush(sync);
+			flushLatency.record((System.nanoTime() - start) / 1000);
+			if (sync) {
+				syncs.incrementAndGet();
+				lastSync = System.currentTimeMillis();
+			}
+		} catch (Exception e) {
+			log.warn("Failed to flush batch", e);
+		}
+	}
+
+	private boolean isSyncDue() {
+		switch (syncPolicy) {
+			case BATCH:
+				return true;
+			case INTERVAL:
+				return System.currentTimeMillis() - lastSync >= syncInterval;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return depth.get();
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public long getEnqueuedCount() {
+		return enqueued.get();
+	}
+
+	@Override
+	public long getWrittenCount() {
+		return written.get();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@Override
+	public long getBlockedCount() {
+		return blocked.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	@Override
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	@Override
+	public long getSyncCount() {
+		return syncs.get();
+	}
+
+	@Override
+	public String getOverflowPolicy() {
+		return overflowPolicy.name();
+	}
+
+	@Override
+	public String getSyncPolicy() {
+		return syncPolicy.name();
+	}
+
+}
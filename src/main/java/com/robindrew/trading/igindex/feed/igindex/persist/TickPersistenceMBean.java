@@ -0,0 +1,27 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+public interface TickPersistenceMBean {
+
+	int getQueueDepth();
+
+	int getQueueCapacity();
+
+	long getEnqueuedCount();
+
+	long getWrittenCount();
+
+	long getDroppedCount();
+
+	long getBlockedCount();
+
+	long getFailedCount();
+
+	long getBatchCount();
+
+	long getSyncCount();
+
+	String getOverflowPolicy();
+
+	String getSyncPolicy();
+
+}
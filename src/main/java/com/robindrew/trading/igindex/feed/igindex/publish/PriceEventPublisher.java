@@ -0,0 +1,273 @@
+package com.robindrew.trading.igindex.feed.igindex.publish;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.text.Strings;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.jetty.page.FeedPrice;
+
+/**
+ * Pushes coalesced price deltas to connected Server-Sent Events clients. Ticks only mark an instrument as dirty, so
+ * the cost of publishing depends on the push interval and the tick rate, not on the number of viewers. Each client has
+ * a bounded queue of events written with non-blocking I/O, so a slow client never holds up the others: once its queue
+ * is full it is disconnected. An idle stream is sent a comment periodically, so proxies do not time it out and dead
+ * clients are detected.
+ */
+public class PriceEventPublisher implements ITickListener, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceEventPublisher.class);
+
+	private static final long STALE_THRESHOLD = 10000;
+	private static final long KEEPALIVE_INTERVAL = 15000;
+	private static final int MAX_QUEUED_EVENTS = 64;
+	private static final byte[] KEEPALIVE = ":\n\n".getBytes(UTF_8);
+
+	private final long interval;
+	private final Map<String, Tick> latestMap = new ConcurrentHashMap<>();
+	private final Map<String, Long> countMap = new ConcurrentHashMap<>();
+	private final Set<String> dirtySet = ConcurrentHashMap.newKeySet();
+	private final Map<String, Long> staleMap = new ConcurrentHashMap<>();
+	private final Map<String, Integer> precisionMap = new ConcurrentHashMap<>();
+	private final List<EventClient> clients = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService executor;
+	private volatile long lastPublished = System.currentTimeMillis();
+
+	public PriceEventPublisher(long interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval=" + interval);
+		}
+		this.interval = interval;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("PriceEventPublisher").setDaemon(true).build());
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public int getClientCount() {
+		return clients.size();
+	}
+
+	public void start() {
+		executor.scheduleWithFixedDelay(this::publish, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		for (EventClient client : clients) {
+			client.close();
+		}
+		clients.clear();
+	}
+
+	/**
+	 * Set the decimal places the close of the given instrument is published at.
+	 */
+	public void setPrecision(String instrument, int precision) {
+		precisionMap.put(instrument, precision);
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		String instrument = tick.getInstrument();
+		latestMap.put(instrument, tick);
+		countMap.merge(instrument, 1L, Long::sum);
+		dirtySet.add(instrument);
+	}
+
+	/**
+	 * Register a new client, sending it the full current state before it joins the delta stream. Must be called on the
+	 * request thread, as it switches the response to non-blocking output.
+	 */
+	public void addClient(AsyncContext context) throws IOException {
+		context.setTimeout(0);
+		StringBuilder event = new StringBuilder();
+		for (String instrument : latestMap.keySet()) {
+			appendPrice(event, instrument);
+		}
+		EventClient client = new EventClient(context);
+		client.start();
+		client.offer(toEvent(event));
+		clients.add(client);
+	}
+
+	private void publish() {
+		try {
+			StringBuilder event = new StringBuilder();
+
+			// Prices that have changed since the last push
+			for (String instrument : dirtySet) {
+				dirtySet.remove(instrument);
+				staleMap.remove(instrument);
+				appendPrice(event, instrument);
+			}
+
+			// Prices that have stopped ticking (normalised to the second to give impression of ticking)
+			long now = System.currentTimeMillis();
+			for (Tick tick : latestMap.values()) {
+				long millis = ((now - tick.getTimestamp()) / 1000) * 1000;
+				if (millis >= STALE_THRESHOLD) {
+					Long previous = staleMap.put(tick.getInstrument(), millis);
+					if (previous == null || previous != millis) {
+						appendStale(event, tick.getInstrument(), millis);
+					}
+				}
+			}
+
+			if (event.length() > 0) {
+				send(toEvent(event));
+				lastPublished = now;
+			} else if (now - lastPublished >= KEEPALIVE_INTERVAL) {
+				send(KEEPALIVE);
+				lastPublished = now;
+			}
+		} catch (Exception e) {
+			log.warn("Failed to publish prices", e);
+		}
+	}
+
+	private void appendPrice(StringBuilder event, String instrument) {
+		Tick tick = latestMap.get(instrument);
+		if (event.length() > 0) {
+			event.append(',');
+		}
+		event.append("{\"id\":\"").append(FeedPrice.toId(instrument));
+		int precision = precisionMap.getOrDefault(instrument, tick.getDecimalPlaces());
+		event.append("\",\"close\":\"").append(FeedPrice.toPlainString(tick.getMid(), tick.getDecimalPlaces(), precision));
+		event.append("\",\"direction\":\"").append(tick.isBuy() ? "BUY" : "SELL");
+		event.append("\",\"lastUpdated\":\"-");
+		event.append("\",\"updateCount\":\"").append(countMap.get(instrument));
+		event.append("\"}");
+	}
+
+	private void appendStale(StringBuilder event, String instrument, long millis) {
+		if (event.length() > 0) {
+			event.append(',');
+		}
+		event.append("{\"id\":\"").append(FeedPrice.toId(instrument));
+		event.append("\",\"direction\":\"STALE");
+		event.append("\",\"lastUpdated\":\"").append(Strings.duration(millis));
+		event.append("\"}");
+	}
+
+	private byte[] toEvent(StringBuilder prices) {
+		return ("data: [" + prices + "]\n\n").getBytes(UTF_8);
+	}
+
+	private void send(byte[] bytes) {
+		for (EventClient client : clients) {
+			client.offer(bytes);
+		}
+	}
+
+	/**
+	 * Events queued for one client, written only while the container reports the output ready, so neither the
+	 * publisher thread nor the container threads ever block on a slow connection.
+	 */
+	private class EventClient implements WriteListener {
+
+		private final AsyncContext context;
+		private final ServletOutputStream output;
+		private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+		private boolean unflushed = false;
+		private boolean closed = false;
+
+		private EventClient(AsyncContext context) throws IOException {
+			this.context = context;
+			this.output = context.getResponse().getOutputStream();
+		}
+
+		/**
+		 * Switch to non-blocking output before anything is written.
+		 */
+		private void start() {
+			output.setWriteListener(this);
+		}
+
+		private synchronized void offer(byte[] bytes) {
+			if (closed) {
+				return;
+			}
+			if (queue.size() >= MAX_QUEUED_EVENTS) {
+				log.info("Disconnecting slow client, {} events queued", queue.size());
+				close();
+				return;
+			}
+			queue.add(bytes);
+			if (output.isReady()) {
+				drain();
+			}
+		}
+
+		@Override
+		public synchronized void onWritePossible() {
+			drain();
+		}
+
+		/**
+		 * Writes queued events until the queue is empty or the output would block, in which case the container calls
+		 * {@link #onWritePossible()} once it can accept more.
+		 */
+		private void drain() {
+			try {
+				while (!closed && output.isReady()) {
+					byte[] bytes = queue.poll();
+					if (bytes != null) {
+						output.write(bytes);
+						unflushed = true;
+					} else if (unflushed) {
+						unflushed = false;
+						output.flush();
+					} else {
+						return;
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				log.debug("Client disconnected", e);
+				close();
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			log.debug("Client disconnected", t);
+			close();
+		}
+
+		private synchronized void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			queue.clear();
+			clients.remove(this);
+			try {
+				context.complete();
+			} catch (RuntimeException e) {
+				log.debug("Failed to complete client", e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.robindrew.trading.igindex.feed.igindex.replay;
+
+import java.util.Arrays;
+
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickRecordVisitor;
+
+/**
+ * The recorded ticks for one instrument on one day, held in growable primitive columns.
+ */
+class DayTicks implements ITickRecordVisitor {
+
+	private final String instrument;
+	private long[] timestamps = new long[1024];
+	private int[] bids = new int[1024];
+	private int[] asks = new int[1024];
+	private byte[] decimalPlaces = new byte[1024];
+	private int size = 0;
+	private int position = 0;
+	private int lastMid = 0;
+
+	DayTicks(String instrument) {
+		this.instrument = instrument;
+	}
+
+	@Override
+	public boolean visit(long timestamp, int bid, int ask, int places) {
+		if (size == timestamps.length) {
+			int capacity = size * 2;
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			bids = Arrays.copyOf(bids, capacity);
+			asks = Arrays.copyOf(asks, capacity);
+			decimalPlaces = Arrays.copyOf(decimalPlaces, capacity);
+		}
+		timestamps[size] = timestamp;
+		bids[size] = bid;
+		asks[size] = ask;
+		decimalPlaces[size] = (byte) places;
+		size++;
+		return true;
+	}
+
+	String getInstrument() {
+		return instrument;
+	}
+
+	boolean hasNext() {
+		return position < size;
+	}
+
+	long getTimestamp() {
+		return timestamps[position];
+	}
+
+	int getBid() {
+		return bids[position];
+	}
+
+	int getAsk() {
+		return asks[position];
+	}
+
+	int getMid() {
+		return (int) (((long) bids[position] + asks[position]) / 2);
+	}
+
+	int getDecimalPlaces() {
+		return decimalPlaces[position];
+	}
+
+	/**
+	 * Returns true if the mid price has not fallen since the previous tick.
+	 */
+	boolean isBuy() {
+		return getMid() >= lastMid;
+	}
+
+	void next() {
+		lastMid = getMid();
+		position++;
+	}
+
+}
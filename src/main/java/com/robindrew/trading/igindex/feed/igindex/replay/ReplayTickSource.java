@@ -0,0 +1,212 @@
+package com.robindrew.trading.igindex.feed.igindex.replay;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileQuery;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ITickSource;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Replays recorded ticks for the subscribed instruments in place of the live stream. Each day is loaded for every
+ * subscribed instrument, then the instruments are merged in timestamp order, so a replay of the same files is always
+ * delivered in the same order. A speed of 1 replays in real time, N replays N times faster and 0 as fast as possible.
+ * Idle periods longer than a minute, such as nights and weekends, are skipped rather than waited out.
+ */
+public class ReplayTickSource implements ITickSource, ReplayTickSourceMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(ReplayTickSource.class);
+
+	private static final long MAX_IDLE = TimeUnit.MINUTES.toMillis(1);
+
+	private final TickFileQuery query;
+	private final LocalDate from;
+	private final LocalDate to;
+	private final boolean loop;
+	private final Map<String, TickStreamListener> listenerMap = new ConcurrentHashMap<>();
+	private final AtomicLong replayedCount = new AtomicLong();
+
+	private volatile double speed;
+	private volatile boolean running = true;
+	private volatile boolean finished = false;
+	private volatile long replayTime = 0;
+	private volatile long startedNanos = 0;
+	private Thread thread;
+
+	// Pacing state, owned by the replay thread
+	private long anchorTimestamp = 0;
+	private long anchorNanos = 0;
+	private double anchorSpeed = 0;
+	private long previousTimestamp = 0;
+
+	public ReplayTickSource(TickFileQuery query, LocalDate from, LocalDate to, double speed, boolean loop) {
+		this.query = Check.notNull("query", query);
+		this.from = Check.notNull("from", from);
+		this.to = Check.notNull("to", to);
+		if (to.isBefore(from)) {
+			throw new IllegalArgumentException("from=" + from + ", to=" + to);
+		}
+		setSpeed(speed);
+		this.loop = loop;
+	}
+
+	@Override
+	public void subscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		listenerMap.put(instrument.getName(), listener);
+	}
+
+	@Override
+	public void unsubscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		listenerMap.remove(instrument.getName(), listener);
+	}
+
+	public void start() {
+		log.info("Replaying {} to {} at speed {}", from, to, speed);
+		startedNanos = System.nanoTime();
+		thread = new Thread(this::run, "TickReplay");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void run() {
+		try {
+			do {
+				for (LocalDate day = from; !day.isAfter(to) && running; day = day.plusDays(1)) {
+					replayDay(day);
+				}
+				anchorNanos = 0;
+			} while (loop && running);
+			log.info("Replay finished, {} ticks", replayedCount.get());
+		} catch (Exception e) {
+			log.error("Replay failed", e);
+		} finally {
+			finished = true;
+		}
+	}
+
+	private void replayDay(LocalDate day) throws IOException {
+		long start = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		long end = start + TimeUnit.DAYS.toMillis(1) - 1;
+
+		List<DayTicks> days = new ArrayList<>();
+		for (String instrument : new TreeMap<>(listenerMap).keySet()) {
+			DayTicks ticks = new DayTicks(instrument);
+			query.query(instrument, start, end, ticks);
+			if (ticks.hasNext()) {
+				days.add(ticks);
+			}
+		}
+		log.info("Replaying {} ({} instruments)", day, days.size());
+
+		while (running) {
+			DayTicks next = null;
+			for (DayTicks ticks : days) {
+				if (ticks.hasNext() && (next == null || ticks.getTimestamp() < next.getTimestamp())) {
+					next = ticks;
+				}
+			}
+			if (next == null) {
+				return;
+			}
+
+			long timestamp = next.getTimestamp();
+			pace(timestamp);
+			Tick tick = new Tick(next.getInstrument(), timestamp, next.getBid(), next.getAsk(), next.getMid(), next.getDecimalPlaces(), next.isBuy(), System.currentTimeMillis());
+			next.next();
+
+			TickStreamListener listener = listenerMap.get(tick.getInstrument());
+			if (listener != null) {
+				listener.publish(tick);
+				replayedCount.incrementAndGet();
+			}
+			replayTime = timestamp;
+		}
+	}
+
+	/**
+	 * Wait until the wall clock catches up with the given recorded timestamp at the current speed.
+	 */
+	private void pace(long timestamp) {
+		double currentSpeed = speed;
+		if (currentSpeed <= 0) {
+			return;
+		}
+
+		// Re-anchor at the start, after a speed change and over idle periods
+		if (anchorNanos == 0 || currentSpeed != anchorSpeed || timestamp - previousTimestamp > MAX_IDLE) {
+			anchorTimestamp = timestamp;
+			anchorNanos = System.nanoTime();
+			anchorSpeed = currentSpeed;
+		}
+		previousTimestamp = timestamp;
+
+		long target = anchorNanos + (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - anchorTimestamp) / currentSpeed);
+		long wait = target - System.nanoTime();
+		if (wait > 0) {
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public double getSpeed() {
+		return speed;
+	}
+
+	@Override
+	public void setSpeed(double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("speed=" + speed);
+		}
+		this.speed = speed;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	@Override
+	public long getReplayedCount() {
+		return replayedCount.get();
+	}
+
+	@Override
+	public String getReplayTime() {
+		long time = replayTime;
+		return time == 0 ? "-" : Instant.ofEpochMilli(time).toString();
+	}
+
+	@Override
+	public long getTicksPerSecond() {
+		long elapsed = System.nanoTime() - startedNanos;
+		if (startedNanos == 0 || elapsed <= 0) {
+			return 0;
+		}
+		return (long) (replayedCount.get() / (elapsed / 1e9));
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.replay;
+
+public interface ReplayTickSourceMBean {
+
+	double getSpeed();
+
+	void setSpeed(double speed);
+
+	boolean isFinished();
+
+	long getReplayedCount();
+
+	String getReplayTime();
+
+	long getTicksPerSecond();
+
+}
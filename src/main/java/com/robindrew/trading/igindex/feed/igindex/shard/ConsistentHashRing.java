@@ -0,0 +1,47 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Maps keys to nodes with consistent hashing. Each node is placed on the ring at a number of virtual points, so keys
+ * are spread evenly and adding a node only moves the keys that now hash closest to it.
+ */
+public class ConsistentHashRing<T> {
+
+	private static final HashFunction HASH = Hashing.murmur3_32();
+
+	private final TreeMap<Integer, T> ring = new TreeMap<>();
+
+	/**
+	 * @param nodes the nodes keyed by a stable name, which determines their position on the ring.
+	 */
+	public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException("nodes is empty");
+		}
+		if (virtualNodes < 1) {
+			throw new IllegalArgumentException("virtualNodes=" + virtualNodes);
+		}
+		for (Entry<String, T> entry : nodes.entrySet()) {
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.put(hash(entry.getKey() + "#" + i), entry.getValue());
+			}
+		}
+	}
+
+	public T get(String key) {
+		Entry<Integer, T> entry = ring.ceilingEntry(hash(key));
+		return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+	}
+
+	private static int hash(String key) {
+		return HASH.hashString(key, StandardCharsets.UTF_8).asInt();
+	}
+
+}
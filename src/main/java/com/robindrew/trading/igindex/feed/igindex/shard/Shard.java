@@ -0,0 +1,116 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.connection.ConnectionSupervisor;
+import com.robindrew.trading.igindex.feed.igindex.connection.IConnectionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ITickSource;
+import com.robindrew.trading.igindex.feed.igindex.subscription.StreamingTickSource;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+import com.robindrew.trading.igindex.platform.IIgIndexSession;
+import com.robindrew.trading.igindex.platform.IIgIndexTradingPlatform;
+import com.robindrew.trading.igindex.platform.streaming.IgIndexStreamingServiceMonitor;
+
+/**
+ * One streaming connection: a session with its own connection manager and monitor, and the instruments assigned to
+ * it. The platform is that of the current session, replaced by the connection manager on every reconnect.
+ */
+public class Shard implements ITickSource, AutoCloseable {
+
+	private final int index;
+	private final IIgIndexSession session;
+	private final IConnectionManager connectionManager;
+	private final StreamingTickSource source;
+	private final Set<String> instruments = ConcurrentHashMap.newKeySet();
+
+	private volatile IgIndexStreamingServiceMonitor monitor;
+	private volatile IIgIndexTradingPlatform monitored;
+	private volatile ConnectionSupervisor supervisor;
+
+	public Shard(int index, IIgIndexSession session, IConnectionManager connectionManager, int heapHistoryCapacity) {
+		this.index = index;
+		this.session = Check.notNull("session", session);
+		this.connectionManager = Check.notNull("connectionManager", connectionManager);
+		this.source = new StreamingTickSource(connectionManager::getPlatform, heapHistoryCapacity);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getName() {
+		return "shard-" + index;
+	}
+
+	public IIgIndexSession getSession() {
+		return session;
+	}
+
+	public IIgIndexTradingPlatform getPlatform() {
+		return connectionManager.getPlatform();
+	}
+
+	public IConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	public ConnectionSupervisor getSupervisor() {
+		return supervisor;
+	}
+
+	public void setSupervisor(ConnectionSupervisor supervisor) {
+		this.supervisor = Check.notNull("supervisor", supervisor);
+	}
+
+	public int getInstrumentCount() {
+		return instruments.size();
+	}
+
+	public synchronized void startMonitor() {
+		monitored = getPlatform();
+		monitor = new IgIndexStreamingServiceMonitor(monitored);
+		monitor.start();
+	}
+
+	/**
+	 * Returns the monitor, moving it to the platform of the current session first if there has been a reconnect.
+	 */
+	public synchronized IgIndexStreamingServiceMonitor getMonitor() {
+		if (monitor != null && monitored != getPlatform()) {
+			monitor.stop();
+			startMonitor();
+		}
+		return monitor;
+	}
+
+	@Override
+	public void subscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		source.subscribe(instrument, listener);
+		instruments.add(instrument.getName());
+	}
+
+	@Override
+	public void unsubscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		instruments.remove(instrument.getName());
+		source.unsubscribe(instrument, listener);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (supervisor != null) {
+			supervisor.close();
+		}
+		if (monitor != null) {
+			monitor.stop();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getName() + "[" + session.getCredentials().getUsername() + "]";
+	}
+
+}
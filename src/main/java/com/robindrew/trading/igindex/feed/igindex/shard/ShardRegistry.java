@@ -0,0 +1,140 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.connection.ConnectionSupervisor;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ITickSource;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Spreads subscriptions over several streaming connections. Each instrument is assigned to a shard by consistent
+ * hashing on its name, so the assignment is stable across restarts and a connection failure only affects the
+ * instruments on that shard.
+ */
+public class ShardRegistry implements ITickSource, ShardRegistryMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(ShardRegistry.class);
+
+	private final List<Shard> shards;
+	private final ConsistentHashRing<Shard> ring;
+
+	public ShardRegistry(List<Shard> shards, int virtualNodes) {
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+
+		Map<String, Shard> nodes = new LinkedHashMap<>();
+		for (Shard shard : shards) {
+			nodes.put(shard.getName(), shard);
+		}
+		this.ring = new ConsistentHashRing<>(nodes, virtualNodes);
+	}
+
+	public List<Shard> getShardList() {
+		return shards;
+	}
+
+	public Shard getPrimary() {
+		return shards.get(0);
+	}
+
+	public Shard getShardFor(String instrument) {
+		return ring.get(instrument);
+	}
+
+	@Override
+	public void subscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		getShardFor(instrument.getName()).subscribe(instrument, listener);
+	}
+
+	@Override
+	public void unsubscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		getShardFor(instrument.getName()).unsubscribe(instrument, listener);
+	}
+
+	/**
+	 * Log in every shard in parallel, returning true only if all of them succeeded.
+	 */
+	@Override
+	public boolean login() {
+		if (shards.size() == 1) {
+			return login(getPrimary());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(shards.size(), new ThreadFactoryBuilder().setNameFormat("ShardLogin-%d").setDaemon(true).build());
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (Shard shard : shards) {
+				futures.add(executor.submit(() -> login(shard)));
+			}
+			boolean success = true;
+			for (Future<Boolean> future : futures) {
+				if (!future.get()) {
+					success = false;
+				}
+			}
+			return success;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted logging in", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Login failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private boolean login(Shard shard) {
+		log.info("Logging in {}", shard);
+		return shard.getConnectionManager().login();
+	}
+
+	@Override
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	@Override
+	public List<String> getShards() {
+		List<String> list = new ArrayList<>();
+		for (Shard shard : shards) {
+			ConnectionSupervisor supervisor = shard.getSupervisor();
+			String state = supervisor == null ? "-" : supervisor.getState();
+			list.add(shard + " instruments=" + shard.getInstrumentCount() + ", loggedIn=" + shard.getConnectionManager().isLoggedIn() + ", state=" + state);
+		}
+		return list;
+	}
+
+	@Override
+	public String getShard(String instrument) {
+		return getShardFor(instrument).getName();
+	}
+
+	@Override
+	public void reconnect(int shard) {
+		ConnectionSupervisor supervisor = shards.get(shard).getSupervisor();
+		if (supervisor == null) {
+			throw new IllegalStateException("No supervisor for shard " + shard);
+		}
+		supervisor.reconnect();
+	}
+
+	@Override
+	public void close() {
+		for (Shard shard : shards) {
+			shard.close();
+		}
+	}
+
+}
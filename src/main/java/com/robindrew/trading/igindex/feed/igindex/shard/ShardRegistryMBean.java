@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import java.util.List;
+
+public interface ShardRegistryMBean {
+
+	int getShardCount();
+
+	List<String> getShards();
+
+	String getShard(String instrument);
+
+	boolean login();
+
+	void reconnect(int shard);
+
+}
@@ -0,0 +1,107 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ISubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.Subscription;
+
+/**
+ * The subscriptions assigned to a single shard, so a {@link com.robindrew.trading.igindex.feed.igindex.connection.ConnectionSupervisor}
+ * judges and restores each connection independently of the others.
+ */
+public class ShardSubscriptions implements ISubscriptionManager {
+
+	private static final Logger log = LoggerFactory.getLogger(ShardSubscriptions.class);
+
+	private final ISubscriptionManager manager;
+	private final ShardRegistry registry;
+	private final Shard shard;
+
+	public ShardSubscriptions(ISubscriptionManager manager, ShardRegistry registry, Shard shard) {
+		this.manager = Check.notNull("manager", manager);
+		this.registry = Check.notNull("registry", registry);
+		this.shard = Check.notNull("shard", shard);
+	}
+
+	private boolean isOnShard(String instrument) {
+		return registry.getShardFor(instrument) == shard;
+	}
+
+	@Override
+	public Collection<Subscription> getSubscriptionList() {
+		List<Subscription> list = new ArrayList<>();
+		for (Subscription subscription : manager.getSubscriptionList()) {
+			if (isOnShard(subscription.getInstrument().getName())) {
+				list.add(subscription);
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public Subscription getSubscription(String instrument) {
+		return isOnShard(instrument) ? manager.getSubscription(instrument) : null;
+	}
+
+	@Override
+	public boolean subscribe(IIgIndexInstrument instrument, int decimalPlaces) {
+		if (!isOnShard(instrument.getName())) {
+			throw new IllegalArgumentException(instrument.getName() + " is not assigned to " + shard.getName());
+		}
+		return manager.subscribe(instrument, decimalPlaces);
+	}
+
+	@Override
+	public boolean unsubscribe(IIgIndexInstrument instrument) {
+		return isOnShard(instrument.getName()) && manager.unsubscribe(instrument);
+	}
+
+	@Override
+	public int subscribeAll(Map<IIgIndexInstrument, Integer> instruments) {
+		Map<IIgIndexInstrument, Integer> onShard = new LinkedHashMap<>();
+		for (Map.Entry<IIgIndexInstrument, Integer> entry : instruments.entrySet()) {
+			if (isOnShard(entry.getKey().getName())) {
+				onShard.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return manager.subscribeAll(onShard);
+	}
+
+	@Override
+	public void unsubscribeAll() {
+		for (Subscription subscription : getSubscriptionList()) {
+			try {
+				manager.unsubscribe(subscription.getInstrument());
+			} catch (Exception e) {
+				log.warn("Failed to unsubscribe from " + subscription.getInstrument().getName(), e);
+			}
+		}
+	}
+
+	@Override
+	public int resubscribeAll() {
+		log.info("Resubscribing instruments on {}", shard);
+		return manager.resubscribe(this::isOnShard);
+	}
+
+	@Override
+	public int resubscribe(Predicate<String> instruments) {
+		return manager.resubscribe(instruments.and(this::isOnShard));
+	}
+
+	@Override
+	public int subscribePending(Predicate<String> instruments) {
+		return manager.subscribePending(instruments.and(this::isOnShard));
+	}
+
+}
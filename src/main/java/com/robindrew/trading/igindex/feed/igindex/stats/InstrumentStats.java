@@ -0,0 +1,136 @@
+package com.robindrew.trading.igindex.feed.igindex.stats;
+
+import java.util.concurrent.TimeUnit;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Incrementally maintained statistics for a single instrument. Tick counts are kept in fixed rings of per-second and
+ * per-minute buckets, so every read is constant time regardless of how many ticks have been received.
+ */
+public class InstrumentStats implements ITickListener {
+
+	private static final int BUCKETS = 60;
+	private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+	private final String instrument;
+
+	private final long[] secondTags = new long[BUCKETS];
+	private final int[] secondCounts = new int[BUCKETS];
+	private final long[] minuteTags = new long[BUCKETS];
+	private final int[] minuteCounts = new int[BUCKETS];
+
+	private long updateCount = 0;
+	private int lastMid = 0;
+	private int decimalPlaces = 0;
+	private boolean buy = false;
+	private volatile long lastUpdated = 0;
+	private volatile long lastReceived = 0;
+
+	public InstrumentStats(String instrument) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		update(tick.getReceived(), tick.getTimestamp(), tick.getMid(), tick.getDecimalPlaces(), tick.isBuy());
+	}
+
+	public synchronized void update(long now, long timestamp, int mid, int decimalPlaces, boolean buy) {
+		increment(secondTags, secondCounts, now / SECOND);
+		increment(minuteTags, minuteCounts, now / MINUTE);
+
+		this.updateCount++;
+		this.lastMid = mid;
+		this.decimalPlaces = decimalPlaces;
+		this.buy = buy;
+		this.lastUpdated = timestamp;
+		this.lastReceived = now;
+	}
+
+	/**
+	 * Restore the latest price from a checkpoint, without a received time, so the instrument is judged stale only
+	 * once it has had a chance to tick again.
+	 */
+	public synchronized void restore(long updateCount, long lastUpdated, int lastMid, int decimalPlaces, boolean buy) {
+		this.updateCount = updateCount;
+		this.lastMid = lastMid;
+		this.decimalPlaces = decimalPlaces;
+		this.buy = buy;
+		this.lastUpdated = lastUpdated;
+	}
+
+	private static void increment(long[] tags, int[] counts, long tag) {
+		int index = (int) (tag % BUCKETS);
+		if (tags[index] != tag) {
+			tags[index] = tag;
+			counts[index] = 0;
+		}
+		counts[index]++;
+	}
+
+	private static int sum(long[] tags, int[] counts, long fromTag, long toTag) {
+		int sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			if (tags[i] > fromTag && tags[i] <= toTag) {
+				sum += counts[i];
+			}
+		}
+		return sum;
+	}
+
+	public boolean hasUpdated() {
+		return lastUpdated != 0;
+	}
+
+	public long getLastUpdated() {
+		return lastUpdated;
+	}
+
+	/**
+	 * The local time the last tick was received, as opposed to its exchange timestamp.
+	 */
+	public long getLastReceived() {
+		return lastReceived;
+	}
+
+	public synchronized long getUpdateCount() {
+		return updateCount;
+	}
+
+	public synchronized int getLastMid() {
+		return lastMid;
+	}
+
+	public synchronized int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public synchronized boolean isBuy() {
+		return buy;
+	}
+
+	public synchronized int getTicksLastSecond(long now) {
+		long tag = now / SECOND;
+		int index = (int) (tag % BUCKETS);
+		return secondTags[index] == tag ? secondCounts[index] : 0;
+	}
+
+	public synchronized int getTicksLastMinute(long now) {
+		long tag = now / SECOND;
+		return sum(secondTags, secondCounts, tag - BUCKETS, tag);
+	}
+
+	public synchronized int getTicksLastHour(long now) {
+		long tag = now / MINUTE;
+		return sum(minuteTags, minuteCounts, tag - BUCKETS, tag);
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.robindrew.trading.igindex.feed.igindex.stats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InstrumentStatsRegistry {
+
+	private final Map<String, InstrumentStats> statsMap = new ConcurrentHashMap<>();
+
+	public InstrumentStats getStats(String instrument) {
+		return statsMap.computeIfAbsent(instrument, InstrumentStats::new);
+	}
+
+	public void remove(String instrument) {
+		statsMap.remove(instrument);
+	}
+
+}
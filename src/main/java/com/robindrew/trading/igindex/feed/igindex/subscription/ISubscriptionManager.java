@@ -0,0 +1,35 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+
+public interface ISubscriptionManager {
+
+	Collection<Subscription> getSubscriptionList();
+
+	Subscription getSubscription(String instrument);
+
+	boolean subscribe(IIgIndexInstrument instrument, int decimalPlaces);
+
+	boolean unsubscribe(IIgIndexInstrument instrument);
+
+	int subscribeAll(Map<IIgIndexInstrument, Integer> instruments);
+
+	void unsubscribeAll();
+
+	int resubscribeAll();
+
+	/**
+	 * Re-establish the desired subscriptions for the matching instruments, including any not currently active.
+	 */
+	int resubscribe(Predicate<String> instruments);
+
+	/**
+	 * Subscribe to the matching instruments that are desired but not active, e.g. because subscribing failed.
+	 */
+	int subscribePending(Predicate<String> instruments);
+
+}
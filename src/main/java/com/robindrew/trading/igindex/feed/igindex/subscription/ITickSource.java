@@ -0,0 +1,15 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Where subscribed ticks come from: the live streaming service, or recorded ticks in replay mode.
+ */
+public interface ITickSource {
+
+	void subscribe(IIgIndexInstrument instrument, TickStreamListener listener);
+
+	void unsubscribe(IIgIndexInstrument instrument, TickStreamListener listener);
+
+}
@@ -0,0 +1,59 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import com.robindrew.trading.Instrument;
+import com.robindrew.trading.InstrumentType;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.IgIndexInstrument;
+
+/**
+ * Resolves the {@link IgIndexInstrument} constants by constant name (e.g. SPOT_EUR_USD) or by epic. Any other epic
+ * (e.g. CS.D.NZDUSD.MINI.IP) resolves to a new instrument, so markets without a constant can be captured too.
+ */
+public class InstrumentLookup {
+
+	/** Epics are dot separated, which also stops a mistyped constant name being taken for one. */
+	private static final Pattern EPIC = Pattern.compile("[A-Z0-9_]+(\\.[A-Z0-9_]+)+");
+
+	private final Map<String, IIgIndexInstrument> instrumentMap = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	public InstrumentLookup() {
+		for (Field field : IgIndexInstrument.class.getFields()) {
+			int modifiers = field.getModifiers();
+			if (!Modifier.isStatic(modifiers) || !IIgIndexInstrument.class.isAssignableFrom(field.getType())) {
+				continue;
+			}
+			try {
+				IIgIndexInstrument instrument = (IIgIndexInstrument) field.get(null);
+				instrumentMap.put(field.getName(), instrument);
+				instrumentMap.put(instrument.getName(), instrument);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Unable to read instrument: " + field, e);
+			}
+		}
+	}
+
+	public IIgIndexInstrument get(String nameOrEpic) {
+		String key = nameOrEpic.trim();
+		IIgIndexInstrument instrument = instrumentMap.get(key);
+		if (instrument != null) {
+			return instrument;
+		}
+		String epic = key.toUpperCase(Locale.ROOT);
+		if (!EPIC.matcher(epic).matches()) {
+			throw new IllegalArgumentException("Unknown instrument: '" + nameOrEpic + "'");
+		}
+		return instrumentMap.computeIfAbsent(epic, InstrumentLookup::newInstrument);
+	}
+
+	private static IIgIndexInstrument newInstrument(String epic) {
+		return new IgIndexInstrument(epic, new Instrument(epic, InstrumentType.OTHER));
+	}
+
+}
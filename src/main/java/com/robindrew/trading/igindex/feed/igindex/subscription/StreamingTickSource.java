@@ -0,0 +1,74 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.history.HeapHistoryLimit;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+import com.robindrew.trading.platform.ITradingPlatform;
+import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
+import com.robindrew.trading.platform.streaming.IStreamingService;
+
+/**
+ * Subscribes to live prices through the streaming service of the current platform. Each subscription remembers the
+ * service it was made on, as a reconnect replaces the platform, and is only unsubscribed from that service while it
+ * is still the current one.
+ */
+public class StreamingTickSource implements ITickSource {
+
+	private final Supplier<? extends ITradingPlatform<IIgIndexInstrument>> platform;
+	private final int heapHistoryCapacity;
+	private final Map<String, Streamed> streamedMap = new ConcurrentHashMap<>();
+
+	/**
+	 * @param platform supplies the platform of the current session.
+	 * @param heapHistoryCapacity the number of snapshots each platform price stream may keep on the heap.
+	 */
+	public StreamingTickSource(Supplier<? extends ITradingPlatform<IIgIndexInstrument>> platform, int heapHistoryCapacity) {
+		this.platform = Check.notNull("platform", platform);
+		this.heapHistoryCapacity = heapHistoryCapacity;
+	}
+
+	@Override
+	public void subscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		IStreamingService<IIgIndexInstrument> streaming = platform.get().getStreamingService();
+		streaming.subscribeToPrices(instrument);
+		IInstrumentPriceStream<IIgIndexInstrument> stream = streaming.getPriceStream(instrument);
+		HeapHistoryLimit limit = new HeapHistoryLimit(stream, heapHistoryCapacity);
+		stream.register(limit);
+		stream.register(listener);
+		streamedMap.put(instrument.getName(), new Streamed(streaming, stream, limit));
+	}
+
+	@Override
+	public void unsubscribe(IIgIndexInstrument instrument, TickStreamListener listener) {
+		Streamed streamed = streamedMap.remove(instrument.getName());
+		if (streamed == null) {
+			return;
+		}
+		streamed.stream.unregister(listener);
+		streamed.stream.unregister(streamed.limit);
+
+		// The streaming service of a previous session has already gone
+		if (streamed.streaming == platform.get().getStreamingService()) {
+			streamed.streaming.unsubscribeFromPrices(instrument);
+		}
+	}
+
+	private static class Streamed {
+
+		private final IStreamingService<IIgIndexInstrument> streaming;
+		private final IInstrumentPriceStream<IIgIndexInstrument> stream;
+		private final HeapHistoryLimit limit;
+
+		private Streamed(IStreamingService<IIgIndexInstrument> streaming, IInstrumentPriceStream<IIgIndexInstrument> stream, HeapHistoryLimit limit) {
+			this.streaming = streaming;
+			this.stream = stream;
+			this.limit = limit;
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+public class Subscription {
+
+	private final IIgIndexInstrument instrument;
+	private final int decimalPlaces;
+	private final TickStreamListener listener;
+	private final long subscribed = System.currentTimeMillis();
+
+	public Subscription(IIgIndexInstrument instrument, int decimalPlaces, TickStreamListener listener) {
+		this.instrument = Check.notNull("instrument", instrument);
+		this.decimalPlaces = decimalPlaces;
+		this.listener = Check.notNull("listener", listener);
+	}
+
+	public IIgIndexInstrument getInstrument() {
+		return instrument;
+	}
+
+	/**
+	 * The decimal places prices are shown at.
+	 */
+	public int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public TickStreamListener getListener() {
+		return listener;
+	}
+
+	public long getSubscribed() {
+		return subscribed;
+	}
+
+	@Override
+	public String toString() {
+		return instrument.getName() + ":" + decimalPlaces;
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+
+/**
+ * Parses subscriptions, one per line (or comma separated entry) in the form {@code <instrument>[:<precision>]} where
+ * the instrument is an IgIndexInstrument constant name or epic. Blank lines and lines starting with # are ignored.
+ */
+public class SubscriptionConfig {
+
+	public static final int DEFAULT_PRECISION = 2;
+
+	/** The instruments captured when no subscriptions are configured. */
+	public static final List<String> DEFAULT_INSTRUMENTS = Arrays.asList(
+			// Currencies
+			"SPOT_AUD_USD", "SPOT_EUR_JPY", "SPOT_EUR_USD", "SPOT_GBP_USD", "SPOT_USD_CHF", "SPOT_USD_JPY",
+			// Indices
+			"WEEKDAY_FTSE_100", "WEEKDAY_DOW_JONES",
+			// Commodities
+			"SPOT_XAG_USD", "SPOT_XAU_USD", "SPOT_US_CRUDE", "SPOT_BRENT_CRUDE");
+
+	private final InstrumentLookup lookup;
+
+	public SubscriptionConfig(InstrumentLookup lookup) {
+		this.lookup = lookup;
+	}
+
+	/**
+	 * Load the subscriptions from the file if given, otherwise the list if given, otherwise the defaults.
+	 */
+	public Map<IIgIndexInstrument, Integer> load(String file, String list) throws IOException {
+		if (!file.isEmpty()) {
+			return parse(Files.readAllLines(new File(file).toPath(), StandardCharsets.UTF_8));
+		}
+		if (!list.isEmpty()) {
+			return parse(Arrays.asList(list.split(",")));
+		}
+		return parse(DEFAULT_INSTRUMENTS);
+	}
+
+	public Map<IIgIndexInstrument, Integer> parse(List<String> lines) {
+		Map<IIgIndexInstrument, Integer> map = new LinkedHashMap<>();
+		List<String> errors = new ArrayList<>();
+		for (String line : lines) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				int colon = line.indexOf(':');
+				String name = colon == -1 ? line : line.substring(0, colon);
+				int precision = colon == -1 ? DEFAULT_PRECISION : Integer.parseInt(line.substring(colon + 1).trim());
+				map.put(lookup.get(name), precision);
+			} catch (IllegalArgumentException e) {
+				errors.add(line);
+			}
+		}
+		if (!errors.isEmpty()) {
+			throw new IllegalArgumentException("Invalid subscriptions: " + errors);
+		}
+		return map;
+	}
+
+}
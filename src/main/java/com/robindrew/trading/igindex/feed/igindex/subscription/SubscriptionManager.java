@@ -0,0 +1,315 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+/**
+ * Owns the price subscriptions. Instruments can be added and removed at runtime, and are subscribed in parallel
+ * batches so that large instrument lists do not have to be subscribed one at a time. The desired instruments are
+ * kept apart from the active subscriptions, so an instrument that fails to subscribe (e.g. while logged out) is
+ * still restored by the next resubscribe.
+ */
+public class SubscriptionManager implements ISubscriptionManager, SubscriptionManagerMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(SubscriptionManager.class);
+
+	private final ITickSource source;
+	private final Consumer<Subscription> wiring;
+	private final InstrumentLookup lookup = new InstrumentLookup();
+	private final String configFile;
+	private final String configList;
+	private final int batchSize;
+	private final ExecutorService executor;
+	private final Map<String, Desired> desiredMap = new ConcurrentHashMap<>();
+	private final Map<String, Subscription> subscriptionMap = new ConcurrentHashMap<>();
+	private final Object listLock = new Object();
+	private volatile List<Subscription> subscriptionList = Collections.emptyList();
+
+	/**
+	 * @param wiring registers the feed listeners on the tick listener of each new subscription.
+	 */
+	public SubscriptionManager(ITickSource source, Consumer<Subscription> wiring, String configFile, String configList, int batchSize, int threads) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize=" + batchSize);
+		}
+		this.source = Check.notNull("source", source);
+		this.wiring = Check.notNull("wiring", wiring);
+		this.configFile = Check.notNull("configFile", configFile);
+		this.configList = Check.notNull("configList", configList);
+		this.batchSize = batchSize;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("SubscriptionManager-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Returns the configured subscriptions.
+	 */
+	public Map<IIgIndexInstrument, Integer> loadConfig() throws Exception {
+		return new SubscriptionConfig(lookup).load(configFile, configList);
+	}
+
+	@Override
+	public Collection<Subscription> getSubscriptionList() {
+		return subscriptionList;
+	}
+
+	/**
+	 * Rebuild the sorted snapshot returned by {@link #getSubscriptionList()}, so readers such as the pages do not
+	 * need to copy and sort on every request.
+	 */
+	private void updateList() {
+		synchronized (listLock) {
+			subscriptionList = Collections.unmodifiableList(new ArrayList<>(new TreeMap<>(subscriptionMap).values()));
+		}
+	}
+
+	@Override
+	public Subscription getSubscription(String instrument) {
+		return subscriptionMap.get(instrument);
+	}
+
+	@Override
+	public synchronized boolean subscribe(IIgIndexInstrument instrument, int decimalPlaces) {
+		desiredMap.put(instrument.getName(), new Desired(instrument, decimalPlaces));
+		return doSubscribe(instrument, decimalPlaces);
+	}
+
+	@Override
+	public synchronized boolean unsubscribe(IIgIndexInstrument instrument) {
+		boolean desired = desiredMap.remove(instrument.getName()) != null;
+		return deactivate(instrument) || desired;
+	}
+
+	/**
+	 * Unsubscribe the active subscription for the given instrument, if any, without forgetting it is desired.
+	 */
+	private boolean deactivate(IIgIndexInstrument instrument) {
+		Subscription subscription = subscriptionMap.remove(instrument.getName());
+		if (subscription == null) {
+			return false;
+		}
+		updateList();
+
+		log.info("Unsubscribing from {}", instrument.getName());
+		source.unsubscribe(instrument, subscription.getListener());
+		return true;
+	}
+
+	@Override
+	public int subscribeAll(Map<IIgIndexInstrument, Integer> instruments) {
+		for (Entry<IIgIndexInstrument, Integer> entry : instruments.entrySet()) {
+			desiredMap.put(entry.getKey().getName(), new Desired(entry.getKey(), entry.getValue()));
+		}
+		return doSubscribeAll(instruments);
+	}
+
+	private int doSubscribeAll(Map<IIgIndexInstrument, Integer> instruments) {
+		List<Entry<IIgIndexInstrument, Integer>> entries = new ArrayList<>(instruments.entrySet());
+		int subscribed = 0;
+		for (int from = 0; from < entries.size(); from += batchSize) {
+			List<Entry<IIgIndexInstrument, Integer>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+			log.info("Subscribing batch of {} instruments ({}/{})", batch.size(), from + batch.size(), entries.size());
+
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (Entry<IIgIndexInstrument, Integer> entry : batch) {
+				futures.add(executor.submit(() -> doSubscribe(entry.getKey(), entry.getValue())));
+			}
+			for (Future<Boolean> future : futures) {
+				if (get(future)) {
+					subscribed++;
+				}
+			}
+		}
+		return subscribed;
+	}
+
+	private boolean doSubscribe(IIgIndexInstrument instrument, int decimalPlaces) {
+		// Fan out ticks to the feed listeners
+		TickStreamListener listener = new TickStreamListener(instrument);
+		Subscription subscription = new Subscription(instrument, decimalPlaces, listener);
+
+		// Claim the instrument first, as batches are subscribed concurrently with subscribe() and reload()
+		if (subscriptionMap.putIfAbsent(instrument.getName(), subscription) != null) {
+			return false;
+		}
+
+		log.info("Subscribing to {}", instrument.getName());
+		try {
+			source.subscribe(instrument, listener);
+		} catch (RuntimeException e) {
+			subscriptionMap.remove(instrument.getName(), subscription);
+			throw e;
+		}
+
+		// Listeners are only wired once subscribed, so a failed attempt leaves nothing registered
+		wiring.accept(subscription);
+		updateList();
+		return true;
+	}
+
+	private boolean get(Future<Boolean> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted subscribing", e);
+		} catch (ExecutionException e) {
+			log.warn("Subscription failed", e.getCause());
+			return false;
+		}
+	}
+
+	@Override
+	public synchronized void unsubscribeAll() {
+		desiredMap.clear();
+		deactivateAll(instrument -> true);
+	}
+
+	private void deactivateAll(Predicate<String> instruments) {
+		for (Subscription subscription : new ArrayList<>(subscriptionMap.values())) {
+			if (!instruments.test(subscription.getInstrument().getName())) {
+				continue;
+			}
+			try {
+				deactivate(subscription.getInstrument());
+			} catch (Exception e) {
+				log.warn("Failed to unsubscribe from " + subscription.getInstrument().getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Re-establish every desired subscription in bulk, typically after the streaming connection has been restored.
+	 */
+	@Override
+	public int resubscribeAll() {
+		return resubscribe(instrument -> true);
+	}
+
+	@Override
+	public synchronized int resubscribe(Predicate<String> instruments) {
+		Map<IIgIndexInstrument, Integer> desired = getDesired(instruments);
+		log.info("Resubscribing to {} instruments", desired.size());
+		deactivateAll(instruments);
+		return doSubscribeAll(desired);
+	}
+
+	@Override
+	public synchronized int subscribePending(Predicate<String> instruments) {
+		Map<IIgIndexInstrument, Integer> pending = getDesired(instruments.and(instrument -> !subscriptionMap.containsKey(instrument)));
+		if (pending.isEmpty()) {
+			return 0;
+		}
+		log.info("Subscribing to {} pending instruments", pending.size());
+		return doSubscribeAll(pending);
+	}
+
+	private Map<IIgIndexInstrument, Integer> getDesired(Predicate<String> instruments) {
+		Map<IIgIndexInstrument, Integer> map = new LinkedHashMap<>();
+		for (Desired desired : new TreeMap<>(desiredMap).values()) {
+			if (instruments.test(desired.instrument.getName())) {
+				map.put(desired.instrument, desired.decimalPlaces);
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public List<String> getSubscriptions() {
+		List<String> list = new ArrayList<>();
+		for (Subscription subscription : getSubscriptionList()) {
+			list.add(subscription.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public List<String> getPendingSubscriptions() {
+		List<String> list = new ArrayList<>();
+		for (IIgIndexInstrument instrument : getDesired(instrument -> !subscriptionMap.containsKey(instrument)).keySet()) {
+			list.add(instrument.getName());
+		}
+		return list;
+	}
+
+	@Override
+	public int getSubscriptionCount() {
+		return subscriptionMap.size();
+	}
+
+	@Override
+	public boolean subscribe(String instrument, int precision) {
+		return subscribe(lookup.get(instrument), precision);
+	}
+
+	@Override
+	public boolean unsubscribe(String instrument) {
+		return unsubscribe(lookup.get(instrument));
+	}
+
+	/**
+	 * Re-read the configuration, subscribing to new instruments and unsubscribing from those removed.
+	 */
+	@Override
+	public synchronized String reload() {
+		try {
+			Map<IIgIndexInstrument, Integer> config = loadConfig();
+			Map<String, IIgIndexInstrument> configured = new HashMap<>();
+			for (IIgIndexInstrument instrument : config.keySet()) {
+				configured.put(instrument.getName(), instrument);
+			}
+
+			int removed = 0;
+			for (Desired desired : new ArrayList<>(desiredMap.values())) {
+				if (!configured.containsKey(desired.instrument.getName())) {
+					unsubscribe(desired.instrument);
+					removed++;
+				}
+			}
+			int added = subscribeAll(config);
+			return "Added " + added + ", removed " + removed + ", total " + subscriptionMap.size();
+		} catch (Exception e) {
+			log.warn("Reload failed", e);
+			return "Reload failed: " + e.getMessage();
+		}
+	}
+
+	@Override
+	public void close() {
+		unsubscribeAll();
+		executor.shutdownNow();
+	}
+
+	private static class Desired {
+
+		private final IIgIndexInstrument instrument;
+		private final int decimalPlaces;
+
+		private Desired(IIgIndexInstrument instrument, int decimalPlaces) {
+			this.instrument = instrument;
+			this.decimalPlaces = decimalPlaces;
+		}
+	}
+
+}
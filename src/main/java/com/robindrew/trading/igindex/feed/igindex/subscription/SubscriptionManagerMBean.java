@@ -0,0 +1,21 @@
+package com.robindrew.trading.igindex.feed.igindex.subscription;
+
+import java.util.List;
+
+import com.robindrew.common.mbean.annotated.Name;
+
+public interface SubscriptionManagerMBean {
+
+	List<String> getSubscriptions();
+
+	int getSubscriptionCount();
+
+	List<String> getPendingSubscriptions();
+
+	boolean subscribe(@Name("instrument") String instrument, @Name("precision") int precision);
+
+	boolean unsubscribe(@Name("instrument") String instrument);
+
+	String reload();
+
+}
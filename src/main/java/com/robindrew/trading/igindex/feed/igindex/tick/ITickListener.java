@@ -0,0 +1,7 @@
+package com.robindrew.trading.igindex.feed.igindex.tick;
+
+public interface ITickListener {
+
+	void onTick(Tick tick);
+
+}
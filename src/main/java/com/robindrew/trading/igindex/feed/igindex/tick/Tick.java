@@ -0,0 +1,92 @@
+package com.robindrew.trading.igindex.feed.igindex.tick;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.price.candle.IPriceCandle;
+import com.robindrew.trading.price.candle.streaming.IPriceCandleSnapshot;
+
+/**
+ * An immutable, primitive view of a single streamed price update.
+ */
+public final class Tick {
+
+	public static Tick of(String instrument, IPriceCandleSnapshot snapshot) {
+		IPriceCandle latest = snapshot.getLatest();
+		long timestamp = snapshot.getTimestamp();
+		int bid = latest.getBidClosePrice();
+		int ask = latest.getAskClosePrice();
+		int mid = latest.getMidClosePrice();
+		int decimalPlaces = latest.getDecimalPlaces();
+		boolean buy = snapshot.getDirection().isBuy();
+		return new Tick(instrument, timestamp, bid, ask, mid, decimalPlaces, buy, System.currentTimeMillis(), snapshot);
+	}
+
+	private final String instrument;
+	private final long timestamp;
+	private final int bid;
+	private final int ask;
+	private final int mid;
+	private final int decimalPlaces;
+	private final boolean buy;
+	private final long received;
+	private final IPriceCandleSnapshot snapshot;
+
+	public Tick(String instrument, long timestamp, int bid, int ask, int mid, int decimalPlaces, boolean buy, long received) {
+		this(instrument, timestamp, bid, ask, mid, decimalPlaces, buy, received, null);
+	}
+
+	private Tick(String instrument, long timestamp, int bid, int ask, int mid, int decimalPlaces, boolean buy, long received, IPriceCandleSnapshot snapshot) {
+		this.instrument = Check.notEmpty("instrument", instrument);
+		this.timestamp = timestamp;
+		this.bid = bid;
+		this.ask = ask;
+		this.mid = mid;
+		this.decimalPlaces = decimalPlaces;
+		this.buy = buy;
+		this.received = received;
+		this.snapshot = snapshot;
+	}
+
+	public String getInstrument() {
+		return instrument;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public int getBid() {
+		return bid;
+	}
+
+	public int getAsk() {
+		return ask;
+	}
+
+	public int getMid() {
+		return mid;
+	}
+
+	public int getDecimalPlaces() {
+		return decimalPlaces;
+	}
+
+	public boolean isBuy() {
+		return buy;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * Returns the streamed snapshot this tick was converted from, or null if it was not streamed (e.g. replayed).
+	 */
+	public IPriceCandleSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public String toString() {
+		return instrument + "[" + timestamp + "," + bid + "," + ask + "," + decimalPlaces + "]";
+	}
+}
@@ -0,0 +1,60 @@
+package com.robindrew.trading.igindex.feed.igindex.tick;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.price.candle.streaming.IPriceCandleSnapshot;
+import com.robindrew.trading.price.candle.streaming.IPriceStreamListener;
+
+/**
+ * Registered once on each price stream, converts every snapshot to a {@link Tick} a single time and fans it out to
+ * the feed's own listeners.
+ */
+public class TickStreamListener implements IPriceStreamListener {
+
+	private static final Logger log = LoggerFactory.getLogger(TickStreamListener.class);
+
+	private final IIgIndexInstrument instrument;
+	private final List<ITickListener> listeners = new CopyOnWriteArrayList<>();
+
+	public TickStreamListener(IIgIndexInstrument instrument) {
+		this.instrument = Check.notNull("instrument", instrument);
+	}
+
+	public IIgIndexInstrument getInstrument() {
+		return instrument;
+	}
+
+	@Override
+	public String getName() {
+		return "TickStreamListener[" + instrument.getName() + "]";
+	}
+
+	public void register(ITickListener listener) {
+		listeners.add(Check.notNull("listener", listener));
+	}
+
+	public void unregister(ITickListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void next(IPriceCandleSnapshot snapshot) {
+		publish(Tick.of(instrument.getName(), snapshot));
+	}
+
+	public void publish(Tick tick) {
+		for (ITickListener listener : listeners) {
+			try {
+				listener.onTick(tick);
+			} catch (Exception e) {
+				log.warn("Listener failed for " + tick, e);
+			}
+		}
+	}
+}
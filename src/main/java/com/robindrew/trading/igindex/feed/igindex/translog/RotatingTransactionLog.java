@@ -0,0 +1,332 @@
+package com.robindrew.trading.igindex.feed.igindex.translog;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.log.ITransactionLog;
+
+/**
+ * A transaction log that keeps disk writes off the REST path. Transactions are filtered by the
+ * {@link TransactionLogRules}, queued, and appended in batches by a background thread, one line each. The current
+ * segment is rotated once it reaches the maximum size or age, then compressed to gzip on a separate thread, and
+ * compressed segments older than the retention period are deleted. If the queue is full the transaction is dropped
+ * and counted rather than blocking the caller.
+ */
+public class RotatingTransactionLog implements ITransactionLog, RotatingTransactionLogMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(RotatingTransactionLog.class);
+
+	private static final DateTimeFormatter SEGMENT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String COMPRESSED_SUFFIX = ".log.gz";
+	private static final int BATCH_SIZE = 1024;
+
+	private final File directory;
+	private final String name;
+	private final TransactionLogRules rules;
+	private final long maxSegmentBytes;
+	private final long maxSegmentMillis;
+	private final long retainMillis;
+	private final BlockingQueue<Transaction> queue;
+	private final Thread thread;
+	private final ExecutorService compressor;
+
+	private final AtomicLong loggedCount = new AtomicLong();
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong sampledOutCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong segmentCount = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong bytesCompressed = new AtomicLong();
+
+	private volatile boolean running = true;
+	private volatile boolean rotateRequested = false;
+	private volatile File segment = null;
+	private Writer writer = null;
+	private long segmentBytes = 0;
+	private long segmentStarted = 0;
+
+	public RotatingTransactionLog(File directory, String name, TransactionLogRules rules, int queueCapacity, long maxSegmentBytes, long maxSegmentMillis, long retainMillis) {
+		if (maxSegmentBytes < 1 || maxSegmentMillis < 1) {
+			throw new IllegalArgumentException("maxSegmentBytes=" + maxSegmentBytes + ", maxSegmentMillis=" + maxSegmentMillis);
+		}
+		this.directory = Check.notNull("directory", directory);
+		this.name = Check.notEmpty("name", name);
+		this.rules = Check.notNull("rules", rules);
+		this.maxSegmentBytes = maxSegmentBytes;
+		this.maxSegmentMillis = maxSegmentMillis;
+		this.retainMillis = retainMillis;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+		this.compressor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(name + "-Compressor").setDaemon(true).build());
+	}
+
+	public void start() {
+		directory.mkdirs();
+
+		// Compress any segments left uncompressed by a previous run
+		File[] segments = directory.listFiles((dir, file) -> file.startsWith(name + "-") && file.endsWith(SEGMENT_SUFFIX));
+		if (segments != null) {
+			for (File file : segments) {
+				compressor.execute(() -> compress(file));
+			}
+		}
+		thread.start();
+	}
+
+	@Override
+	public void log(Object transaction) {
+		if (transaction == null) {
+			return;
+		}
+		if (!rules.shouldLog(transaction)) {
+			sampledOutCount.incrementAndGet();
+			return;
+		}
+		loggedCount.incrementAndGet();
+		if (!queue.offer(new Transaction(System.currentTimeMillis(), Thread.currentThread().getName(), transaction))) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	private void run() {
+		List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				Transaction first = queue.poll(1, TimeUnit.SECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, BATCH_SIZE - 1);
+					write(batch);
+					batch.clear();
+				}
+				if (rotateRequested || isSegmentExpired()) {
+					rotateRequested = false;
+					closeSegment();
+				}
+			} catch (InterruptedException e) {
+				running = false;
+			} catch (Exception e) {
+				log.warn("Failed to write transaction log", e);
+				batch.clear();
+				closeSegment();
+			}
+		}
+		closeSegment();
+	}
+
+	private void write(List<Transaction> batch) throws IOException {
+		for (Transaction transaction : batch) {
+			if (writer == null || segmentBytes >= maxSegmentBytes) {
+				closeSegment();
+				openSegment(transaction.getTimestamp());
+			}
+			String line = transaction.toLine();
+			writer.write(line);
+			segmentBytes += line.length();
+			bytesWritten.addAndGet(line.length());
+		}
+		writer.flush();
+		writtenCount.addAndGet(batch.size());
+	}
+
+	private boolean isSegmentExpired() {
+		return writer != null && System.currentTimeMillis() - segmentStarted >= maxSegmentMillis;
+	}
+
+	private void openSegment(long timestamp) throws IOException {
+		// The sequence number keeps segments rotated within the same second apart
+		long sequence = segmentCount.incrementAndGet();
+		File file = new File(directory, name + "-" + SEGMENT_FORMAT.format(Instant.ofEpochMilli(timestamp)) + "-" + sequence + SEGMENT_SUFFIX);
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 65536);
+		segment = file;
+		segmentBytes = 0;
+		segmentStarted = System.currentTimeMillis();
+	}
+
+	private void closeSegment() {
+		if (writer == null) {
+			return;
+		}
+		File file = segment;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			log.warn("Failed to close transaction log segment: " + file, e);
+		}
+		writer = null;
+		segment = null;
+		compressor.execute(() -> compress(file));
+	}
+
+	private void compress(File file) {
+		File compressed = new File(file.getPath() + ".gz");
+		try (InputStream input = new FileInputStream(file); OutputStream output = new GZIPOutputStream(new FileOutputStream(compressed), 65536)) {
+			ByteStreams.copy(input, output);
+		} catch (IOException e) {
+			log.warn("Failed to compress transaction log segment: " + file, e);
+			compressed.delete();
+			return;
+		}
+		bytesCompressed.addAndGet(compressed.length());
+		if (!file.delete()) {
+			log.warn("Failed to delete compressed transaction log segment: {}", file);
+		}
+		deleteExpired();
+	}
+
+	private void deleteExpired() {
+		if (retainMillis <= 0) {
+			return;
+		}
+		long expiry = System.currentTimeMillis() - retainMillis;
+		File[] segments = directory.listFiles((dir, file) -> file.startsWith(name + "-") && file.endsWith(COMPRESSED_SUFFIX));
+		if (segments == null) {
+			return;
+		}
+		for (File file : segments) {
+			if (file.lastModified() < expiry && file.delete()) {
+				log.info("Deleted expired transaction log segment: {}", file);
+			}
+		}
+	}
+
+	@Override
+	public String getDirectory() {
+		return directory.getAbsolutePath();
+	}
+
+	@Override
+	public String getCurrentSegment() {
+		File file = segment;
+		return file == null ? "-" : file.getName();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	@Override
+	public long getLoggedCount() {
+		return loggedCount.get();
+	}
+
+	@Override
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	@Override
+	public long getSampledOutCount() {
+		return sampledOutCount.get();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	@Override
+	public long getSegmentCount() {
+		return segmentCount.get();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	@Override
+	public long getBytesCompressed() {
+		return bytesCompressed.get();
+	}
+
+	@Override
+	public List<String> getRules() {
+		List<String> list = new ArrayList<>();
+		for (TransactionLogRules.Rule rule : rules.getRules()) {
+			list.add(rule.toString());
+		}
+		return list;
+	}
+
+	@Override
+	public String rotate() {
+		rotateRequested = true;
+		return "Rotating " + getCurrentSegment();
+	}
+
+	/**
+	 * Stops accepting transactions, writes those already queued and compresses the final segment.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+			compressor.shutdown();
+			compressor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class Transaction {
+
+		private final long timestamp;
+		private final String thread;
+		private final Object object;
+
+		private Transaction(long timestamp, String thread, Object object) {
+			this.timestamp = timestamp;
+			this.thread = thread;
+			this.object = object;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * The object is only formatted on the writer thread.
+		 */
+		public String toLine() {
+			StringBuilder line = new StringBuilder(256);
+			line.append(Instant.ofEpochMilli(timestamp)).append(' ');
+			line.append('[').append(thread).append("] ");
+			line.append(object.getClass().getSimpleName()).append(": ");
+			line.append(String.valueOf(object).replace('\n', ' ').replace('\r', ' '));
+			line.append('\n');
+			return line.toString();
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.robindrew.trading.igindex.feed.igindex.translog;
+
+import java.util.List;
+
+public interface RotatingTransactionLogMBean {
+
+	String getDirectory();
+
+	String getCurrentSegment();
+
+	int getQueueDepth();
+
+	long getLoggedCount();
+
+	long getWrittenCount();
+
+	long getSampledOutCount();
+
+	long getDroppedCount();
+
+	long getSegmentCount();
+
+	long getBytesWritten();
+
+	long getBytesCompressed();
+
+	List<String> getRules();
+
+	String rotate();
+
+}
@@ -0,0 +1,104 @@
+package com.robindrew.trading.igindex.feed.igindex.translog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Decides which transactions are logged, by the class of the logged object. Rules are a list such as
+ * "getmarkets=0.01;getmarketnavigation=0", each pattern matched case insensitively against the class name, with the
+ * fraction of matching transactions to keep. A fraction of zero excludes them entirely, other fractions keep every Nth
+ * so the sample is evenly spread. Transactions matching no rule are always logged.
+ */
+public class TransactionLogRules {
+
+	public static TransactionLogRules parse(String text) {
+		List<Rule> rules = new ArrayList<>();
+		for (String entry : Splitter.on(';').trimResults().omitEmptyStrings().split(text)) {
+			int index = entry.indexOf('=');
+			if (index < 1) {
+				throw new IllegalArgumentException("Invalid transaction log rule: '" + entry + "'");
+			}
+			String pattern = entry.substring(0, index).trim().toLowerCase(Locale.ROOT);
+			double fraction = Double.parseDouble(entry.substring(index + 1).trim());
+			if (fraction < 0 || fraction > 1) {
+				throw new IllegalArgumentException("Invalid transaction log rule: '" + entry + "', fraction must be between 0 and 1");
+			}
+			rules.add(new Rule(pattern, fraction));
+		}
+		return new TransactionLogRules(rules);
+	}
+
+	private static final Rule ALWAYS = new Rule("*", 1);
+
+	private final List<Rule> rules;
+	private final Map<Class<?>, Rule> classMap = new ConcurrentHashMap<>();
+
+	private TransactionLogRules(List<Rule> rules) {
+		this.rules = Collections.unmodifiableList(rules);
+	}
+
+	public List<Rule> getRules() {
+		return rules;
+	}
+
+	public boolean shouldLog(Object transaction) {
+		return classMap.computeIfAbsent(transaction.getClass(), this::getRule).sample();
+	}
+
+	private Rule getRule(Class<?> type) {
+		String name = type.getName().toLowerCase(Locale.ROOT);
+		for (Rule rule : rules) {
+			if (name.contains(rule.getPattern())) {
+				return rule;
+			}
+		}
+		return ALWAYS;
+	}
+
+	public static class Rule {
+
+		private final String pattern;
+		private final double fraction;
+		private final long interval;
+		private final AtomicLong matched = new AtomicLong();
+
+		private Rule(String pattern, double fraction) {
+			this.pattern = pattern;
+			this.fraction = fraction;
+			this.interval = fraction == 0 ? 0 : Math.max(1, Math.round(1 / fraction));
+		}
+
+		public String getPattern() {
+			return pattern;
+		}
+
+		public double getFraction() {
+			return fraction;
+		}
+
+		public long getMatched() {
+			return matched.get();
+		}
+
+		private boolean sample() {
+			if (interval == 1) {
+				return true;
+			}
+			long count = matched.getAndIncrement();
+			return interval != 0 && count % interval == 0;
+		}
+
+		@Override
+		public String toString() {
+			return pattern + "=" + fraction + " (matched " + matched.get() + ")";
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.robindrew.trading.igindex.feed.jetty;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.common.util.Check;
+
+/**
+ * Runs pages that may block, on REST calls to IG or on disk, on a separate bounded pool. The Jetty thread is released
+ * as soon as the request is handed over, so however slow IG is, the Jetty pool stays free for the in-memory pages such
+ * as /Prices. When the pool and its queue are full the request is rejected with a 503 rather than queued without
+ * limit. The pages themselves bound their REST calls with timeouts.
+ */
+public class AsyncPageExecutor implements AsyncPageExecutorMBean, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(AsyncPageExecutor.class);
+
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	public AsyncPageExecutor(int threads, int queueSize) {
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), new ThreadFactoryBuilder().setNameFormat("AsyncPage-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Wrap the given page so that it is executed on this pool.
+	 */
+	public IHttpExecutor async(IHttpExecutor page) {
+		Check.notNull("page", page);
+		return (request, response) -> execute(page, request, response);
+	}
+
+	private void execute(IHttpExecutor page, IHttpRequest request, IHttpResponse response) {
+		AsyncContext context = request.startAsync();
+		context.setTimeout(0);
+		try {
+			executor.execute(() -> run(page, request, response, context));
+		} catch (RejectedExecutionException e) {
+			rejectedCount.incrementAndGet();
+			response.setStatus(503);
+			response.setHeader("Retry-After", "1");
+			context.complete();
+		}
+	}
+
+	private void run(IHttpExecutor page, IHttpRequest request, IHttpResponse response, AsyncContext context) {
+		try {
+			page.execute(request, response);
+		} catch (Exception e) {
+			failedCount.incrementAndGet();
+			log.warn("Page failed: " + request.getRequestURI(), e);
+			if (!response.isCommitted()) {
+				response.reset();
+				response.setStatus(500);
+			}
+		} finally {
+			context.complete();
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public int getThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	@Override
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	@Override
+	public long getCompletedCount() {
+		return executor.getCompletedTaskCount();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.robindrew.trading.igindex.feed.jetty;
+
+public interface AsyncPageExecutorMBean {
+
+	int getThreads();
+
+	int getActiveCount();
+
+	int getQueueSize();
+
+	long getCompletedCount();
+
+	long getRejectedCount();
+
+	long getFailedCount();
+
+}
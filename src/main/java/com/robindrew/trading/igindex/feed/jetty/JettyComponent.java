@@ -1,9 +1,14 @@
 package com.robindrew.trading.igindex.feed.jetty;
 
+import static com.robindrew.common.dependency.DependencyFactory.getDependency;
+
 import com.google.common.base.Supplier;
 import com.robindrew.common.html.Bootstrap;
 import com.robindrew.common.http.servlet.executor.IHttpExecutor;
 import com.robindrew.common.http.servlet.executor.IVelocityHttpContext;
+import com.robindrew.common.mbean.annotated.AnnotatedMBeanRegistry;
+import com.robindrew.common.properties.map.type.IProperty;
+import com.robindrew.common.properties.map.type.IntegerProperty;
 import com.robindrew.common.service.component.jetty.JettyVelocityComponent;
 import com.robindrew.common.service.component.jetty.handler.MatcherHttpHandler;
 import com.robindrew.common.service.component.jetty.handler.page.BeanConsolePage;
@@ -15,11 +20,21 @@ import com.robindrew.common.service.component.jetty.handler.page.SetBeanAttribut
 import com.robindrew.common.service.component.jetty.handler.page.SystemPage;
 import com.robindrew.common.template.ITemplateLocator;
 import com.robindrew.common.template.velocity.VelocityTemplateLocatorSupplier;
+import com.robindrew.trading.igindex.feed.jetty.page.CandlesPage;
 import com.robindrew.trading.igindex.feed.jetty.page.FeedsPage;
+import com.robindrew.trading.igindex.feed.jetty.page.MetricsPage;
+import com.robindrew.trading.igindex.feed.jetty.page.PriceEventsPage;
 import com.robindrew.trading.igindex.feed.jetty.page.PricesPage;
+import com.robindrew.trading.igindex.feed.jetty.page.TicksPage;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
 
 public class JettyComponent extends JettyVelocityComponent {
 
+	private static final IProperty<Integer> propertyAsyncThreads = new IntegerProperty("jetty.async.threads").defaultValue(8);
+	private static final IProperty<Integer> propertyAsyncQueueSize = new IntegerProperty("jetty.async.queue.size").defaultValue(64);
+
+	private volatile AsyncPageExecutor async;
+
 	@Override
 	protected Supplier<ITemplateLocator> getTemplateLocator() {
 		return new VelocityTemplateLocatorSupplier();
@@ -28,6 +43,13 @@ public class JettyComponent extends JettyVelocityComponent {
 	@Override
 	protected void populate(MatcherHttpHandler handler) {
 
+		// Pages that may block on IG or on disk run on their own pool
+		async = new AsyncPageExecutor(propertyAsyncThreads.get(), propertyAsyncQueueSize.get());
+		new AnnotatedMBeanRegistry().register(async);
+
+		// Feed pages are available once the service has started
+		WarmupGate warmup = new WarmupGate(getDependency(StartupTimings.class));
+
 		// Register standard pages
 		handler.uri("/", newIndexPage(getContext(), "site/common/Index.html"));
 		handler.uri("/System", new SystemPage(getContext(), "site/common/System.html"));
@@ -35,16 +57,33 @@ public class JettyComponent extends JettyVelocityComponent {
 		handler.uri("/BeanView", new BeanViewPage(getContext(), "site/common/BeanView.html"));
 		handler.uri("/GetBeanAttribute", new GetBeanAttributePage(getContext(), "site/common/GetBeanAttribute.html"));
 		handler.uri("/SetBeanAttribute", new SetBeanAttributePage(getContext(), "site/common/SetBeanAttribute.html"));
-		handler.uri("/BeanOperation", new BeanOperationPage(getContext(), "site/common/BeanOperation.html"));
+		handler.uri("/BeanOperation", async.async(new BeanOperationPage(getContext(), "site/common/BeanOperation.html")));
 
 		// Register extra pages
-		handler.uri("/Feeds", new FeedsPage(getContext(), "site/igindex/feed/Feeds.html"));
-		handler.uri("/Prices", new PricesPage(getContext(), "site/igindex/feed/Prices.json"));
+		handler.uri("/Feeds", warmup.gate(async.async(new FeedsPage(getContext(), "site/igindex/feed/Feeds.html"))));
+		handler.uri("/Prices", warmup.gate(new PricesPage()));
+		handler.uri("/PriceEvents", warmup.gate(new PriceEventsPage()));
+		handler.uri("/Metrics", new MetricsPage());
+		handler.uri("/Candles", warmup.gate(new CandlesPage()));
+		handler.uri("/Ticks", warmup.gate(async.async(new TicksPage())));
+	}
+
+	@Override
+	protected void shutdownComponent() throws Exception {
+		try {
+			super.shutdownComponent();
+		} finally {
+			// The server has stopped, so no more pages are handed to the pool
+			if (async != null) {
+				async.close();
+			}
+		}
 	}
 
 	private IHttpExecutor newIndexPage(IVelocityHttpContext context, String templateName) {
 		IndexPage page = new IndexPage(context, templateName);
 		page.addLink("Feeds", "/Feeds", Bootstrap.COLOR_DEFAULT);
+		page.addLink("Metrics", "/Metrics", Bootstrap.COLOR_DEFAULT);
 		return page;
 	}
 
@@ -0,0 +1,50 @@
+package com.robindrew.trading.igindex.feed.jetty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.common.util.Check;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
+
+/**
+ * Answers pages that depend on the feed with 503 Service Unavailable while the service is still starting, naming the
+ * phases still running, so jetty can serve from the start of the IG login rather than after it.
+ */
+public class WarmupGate {
+
+	private static final int RETRY_AFTER_SECONDS = 1;
+
+	private final StartupTimings timings;
+
+	public WarmupGate(StartupTimings timings) {
+		this.timings = Check.notNull("timings", timings);
+	}
+
+	public IHttpExecutor gate(IHttpExecutor page) {
+		Check.notNull("page", page);
+		return (request, response) -> {
+			if (timings.isReady()) {
+				page.execute(request, response);
+			} else {
+				warmingUp(request, response);
+			}
+		};
+	}
+
+	private void warmingUp(IHttpRequest request, IHttpResponse response) {
+		response.setStatus(503);
+		response.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+		response.setHeader("Cache-Control", "no-cache");
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		try {
+			response.getWriter().write("Warming up (" + timings.getState() + "): " + timings.getRunningPhases());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
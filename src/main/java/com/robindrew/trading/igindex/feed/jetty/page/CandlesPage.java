@@ -0,0 +1,79 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import static com.robindrew.common.dependency.DependencyFactory.getDependency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.trading.igindex.feed.igindex.candle.Candle;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleAggregator;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleAggregatorRegistry;
+import com.robindrew.trading.igindex.feed.igindex.candle.CandleResolution;
+
+/**
+ * The current partial candle at each resolution, for one instrument ({@code ?instrument=<epic>}) or all of them.
+ */
+public class CandlesPage implements IHttpExecutor {
+
+	@Override
+	public void execute(IHttpRequest request, IHttpResponse response) {
+		CandleAggregatorRegistry registry = getDependency(CandleAggregatorRegistry.class);
+		String instrument = request.getParameter("instrument");
+
+		StringBuilder json = new StringBuilder();
+		json.append('[');
+		Candle candle = new Candle();
+		for (CandleAggregator aggregator : registry.getAggregators().values()) {
+			if (instrument != null && !instrument.equals(aggregator.getInstrument())) {
+				continue;
+			}
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append("{\"instrument\":\"").append(aggregator.getInstrument()).append("\",\"candles\":{");
+			boolean first = true;
+			for (CandleResolution resolution : CandleResolution.values()) {
+				if (!aggregator.getPartial(resolution, candle)) {
+					continue;
+				}
+				if (!first) {
+					json.append(',');
+				}
+				first = false;
+				json.append('"').append(resolution.getLabel()).append("\":");
+				appendCandle(json, candle);
+			}
+			json.append("}}");
+		}
+		json.append(']');
+
+		response.setStatus(200);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		try {
+			response.getWriter().write(json.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void appendCandle(StringBuilder json, Candle candle) {
+		int decimalPlaces = candle.getDecimalPlaces();
+		json.append("{\"start\":").append(candle.getStart());
+		json.append(",\"ticks\":").append(candle.getTicks());
+		json.append(",\"bidOpen\":").append(FeedPrice.toPlainString(candle.getBidOpen(), decimalPlaces));
+		json.append(",\"bidHigh\":").append(FeedPrice.toPlainString(candle.getBidHigh(), decimalPlaces));
+		json.append(",\"bidLow\":").append(FeedPrice.toPlainString(candle.getBidLow(), decimalPlaces));
+		json.append(",\"bidClose\":").append(FeedPrice.toPlainString(candle.getBidClose(), decimalPlaces));
+		json.append(",\"askOpen\":").append(FeedPrice.toPlainString(candle.getAskOpen(), decimalPlaces));
+		json.append(",\"askHigh\":").append(FeedPrice.toPlainString(candle.getAskHigh(), decimalPlaces));
+		json.append(",\"askLow\":").append(FeedPrice.toPlainString(candle.getAskLow(), decimalPlaces));
+		json.append(",\"askClose\":").append(FeedPrice.toPlainString(candle.getAskClose(), decimalPlaces));
+		json.append('}');
+	}
+
+}
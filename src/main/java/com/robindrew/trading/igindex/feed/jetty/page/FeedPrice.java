@@ -2,17 +2,9 @@ package com.robindrew.trading.igindex.feed.jetty.page;
 
 import static java.lang.System.currentTimeMillis;
 
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-
 import com.robindrew.common.html.Bootstrap;
 import com.robindrew.common.text.Strings;
-import com.robindrew.trading.igindex.IIgIndexInstrument;
-import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
-import com.robindrew.trading.price.candle.IPriceCandle;
-import com.robindrew.trading.price.candle.streaming.IPriceCandleSnapshot;
-import com.robindrew.trading.price.candle.streaming.IStreamingCandlePrice;
-import com.robindrew.trading.price.decimal.Decimals;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
 
 public class FeedPrice implements Comparable<FeedPrice> {
 
@@ -28,6 +20,43 @@ public class FeedPrice implements Comparable<FeedPrice> {
 		return id.toString();
 	}
 
+	public static final String toPlainString(long value, int decimalPlaces) {
+		if (decimalPlaces <= 0) {
+			return String.valueOf(value);
+		}
+		StringBuilder text = new StringBuilder(String.valueOf(Math.abs(value)));
+		while (text.length() <= decimalPlaces) {
+			text.insert(0, '0');
+		}
+		text.insert(text.length() - decimalPlaces, '.');
+		if (value < 0) {
+			text.insert(0, '-');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Formats the value at the given precision, rounding half away from zero if it has more decimal places.
+	 */
+	public static final String toPlainString(long value, int decimalPlaces, int precision) {
+		if (precision < decimalPlaces) {
+			long divisor = pow10(decimalPlaces - precision);
+			long half = value < 0 ? -divisor / 2 : divisor / 2;
+			value = (value + half) / divisor;
+		} else if (precision > decimalPlaces) {
+			value *= pow10(precision - decimalPlaces);
+		}
+		return toPlainString(value, precision);
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		for (int i = 0; i < exponent; i++) {
+			value *= 10;
+		}
+		return value;
+	}
+
 	private final String id;
 	private final String instrument;
 	private final String close;
@@ -37,15 +66,18 @@ public class FeedPrice implements Comparable<FeedPrice> {
 	private final String directionColor;
 	private final String tickVolume;
 
-	public FeedPrice(IInstrumentPriceStream<IIgIndexInstrument> subscription) {
-		IStreamingCandlePrice price = subscription.getPrice();
-		List<IPriceCandleSnapshot> history = price.getSnapshotHistory();
-		IPriceCandleSnapshot snapshot = history.isEmpty() ? null : history.get(history.size() - 1);
+	public FeedPrice(InstrumentStats stats) {
+		this(stats, -1);
+	}
 
-		this.instrument = subscription.getInstrument().getName();
+	/**
+	 * @param precision the decimal places to show the close at, or -1 for those of the captured price.
+	 */
+	public FeedPrice(InstrumentStats stats, int precision) {
+		this.instrument = stats.getInstrument();
 		this.id = toId(this.instrument);
 
-		if (snapshot == null) {
+		if (!stats.hasUpdated()) {
 			this.close = "-";
 			this.direction = "STALE";
 			this.lastUpdated = "-";
@@ -53,35 +85,23 @@ public class FeedPrice implements Comparable<FeedPrice> {
 			this.tickVolume = "-";
 			this.directionColor = Bootstrap.COLOR_WARNING;
 		} else {
-			IPriceCandle latest = snapshot.getLatest();
+			long now = currentTimeMillis();
 
 			// Normalise time to the nearest second to give impression of ticking
-			long millis = currentTimeMillis() - snapshot.getTimestamp();
+			long millis = now - stats.getLastUpdated();
 			millis = (millis / 1000) * 1000;
 
-			this.close = Decimals.toBigDecimal(latest.getMidClosePrice(), latest.getDecimalPlaces()).toPlainString();
-			this.direction = millis >= STALE_THRESHOLD ? "STALE" : snapshot.getDirection().name();
+			boolean buy = stats.isBuy();
+			int decimalPlaces = stats.getDecimalPlaces();
+			this.close = toPlainString(stats.getLastMid(), decimalPlaces, precision < 0 ? decimalPlaces : precision);
+			this.direction = millis >= STALE_THRESHOLD ? "STALE" : (buy ? "BUY" : "SELL");
 			this.lastUpdated = millis >= STALE_THRESHOLD ? Strings.duration(millis) : "-";
-			this.updateCount = String.valueOf(price.getUpdateCount());
-			this.directionColor = snapshot.getDirection().isBuy() ? Bootstrap.COLOR_INFO : Bootstrap.COLOR_DANGER;
-			this.tickVolume = getTickVolume(history);
+			this.updateCount = String.valueOf(stats.getUpdateCount());
+			this.directionColor = buy ? Bootstrap.COLOR_INFO : Bootstrap.COLOR_DANGER;
+			this.tickVolume = String.valueOf(stats.getTicksLastMinute(now));
 		}
 	}
 
-	private String getTickVolume(List<IPriceCandleSnapshot> history) {
-		long since = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1);
-		int count = 0;
-		for (int i = history.size() - 1; i >= 0; i--) {
-			IPriceCandleSnapshot snapshot = history.get(i);
-			if (snapshot.getTimestamp() < since) {
-				break;
-			}
-			count++;
-		}
-
-		return String.valueOf(count);
-	}
-
 	public String getInstrument() {
 		return instrument;
 	}
@@ -2,21 +2,33 @@ package com.robindrew.trading.igindex.feed.jetty.page;
 
 import static com.robindrew.common.dependency.DependencyFactory.getDependency;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 import com.robindrew.common.http.servlet.executor.IVelocityHttpContext;
 import com.robindrew.common.http.servlet.request.IHttpRequest;
 import com.robindrew.common.http.servlet.response.IHttpResponse;
 import com.robindrew.common.service.component.jetty.handler.page.AbstractServicePage;
-import com.robindrew.trading.igindex.IIgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.FeedMode;
+import com.robindrew.trading.igindex.feed.igindex.connection.TimedCaller;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistory;
+import com.robindrew.trading.igindex.feed.igindex.history.SnapshotHistoryRegistry;
+import com.robindrew.trading.igindex.feed.igindex.markets.MarketsCache;
+import com.robindrew.trading.igindex.feed.igindex.shard.Shard;
+import com.robindrew.trading.igindex.feed.igindex.shard.ShardRegistry;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ISubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.Subscription;
 import com.robindrew.trading.igindex.platform.IIgIndexSession;
-import com.robindrew.trading.igindex.platform.rest.IIgIndexRestService;
 import com.robindrew.trading.igindex.platform.rest.executor.getmarkets.response.Markets;
-import com.robindrew.trading.platform.ITradingPlatform;
-import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
-import com.robindrew.trading.platform.streaming.IStreamingService;
 
 public class FeedsPage extends AbstractServicePage {
 
@@ -28,46 +40,80 @@ public class FeedsPage extends AbstractServicePage {
 	protected void execute(IHttpRequest request, IHttpResponse response, Map<String, Object> dataMap) {
 		super.execute(request, response, dataMap);
 
-		IIgIndexSession session = getDependency(IIgIndexSession.class);
-		dataMap.put("user", session.getCredentials().getUsername());
-		dataMap.put("environment", session.getEnvironment());
+		FeedMode mode = getDependency(FeedMode.class);
+		if (mode.equals(FeedMode.REPLAY)) {
+			dataMap.put("user", "replay");
+			dataMap.put("environment", mode);
+		} else {
+			// Every shard is shown in the one view, listing each distinct user
+			Set<String> users = new LinkedHashSet<>();
+			for (Shard shard : getDependency(ShardRegistry.class).getShardList()) {
+				users.add(shard.getSession().getCredentials().getUsername());
+			}
+			dataMap.put("user", String.join(", ", users));
+			dataMap.put("environment", getDependency(IIgIndexSession.class).getEnvironment());
+		}
 
-		ITradingPlatform<IIgIndexInstrument> platform = getDependency(ITradingPlatform.class);
-		IStreamingService<IIgIndexInstrument> service = platform.getStreamingService();
-		dataMap.put("feeds", getFeeds(service.getPriceStreams()));
+		ISubscriptionManager subscriptionManager = getDependency(ISubscriptionManager.class);
+		dataMap.put("feeds", getFeeds(mode, subscriptionManager.getSubscriptionList()));
 	}
 
-	private Set<Feed> getFeeds(Set<IInstrumentPriceStream<IIgIndexInstrument>> subscriptions) {
-		IIgIndexRestService rest = getDependency(IIgIndexRestService.class);
+	private Set<Feed> getFeeds(FeedMode mode, Collection<Subscription> subscriptions) {
+		InstrumentStatsRegistry statsRegistry = getDependency(InstrumentStatsRegistry.class);
+		SnapshotHistoryRegistry historyRegistry = getDependency(SnapshotHistoryRegistry.class);
+
+		// Load all the markets up front, any not already cached are fetched in parallel
+		// There are no market details to show when replaying
+		Map<String, Markets> marketsMap = Collections.emptyMap();
+		if (!mode.equals(FeedMode.REPLAY)) {
+			List<String> epics = new ArrayList<>();
+			for (Subscription subscription : subscriptions) {
+				epics.add(subscription.getInstrument().getName());
+			}
+			long timeout = getDependency(TimedCaller.class).getTimeout();
+			marketsMap = getDependency(MarketsCache.class).getAll(epics, timeout);
+		}
+
+		ShardRegistry shards = mode.equals(FeedMode.REPLAY) ? null : getDependency(ShardRegistry.class);
+
 		Set<Feed> feeds = new TreeSet<>();
-		for (IInstrumentPriceStream<IIgIndexInstrument> subscription : subscriptions) {
+		for (Subscription subscription : subscriptions) {
 			String epic = subscription.getInstrument().getName();
-			Markets markets = rest.getMarkets(epic, false);
-			feeds.add(new Feed(subscription, markets));
+			Markets markets = marketsMap.get(epic);
+			String shard = shards == null ? "-" : shards.getShard(epic);
+			feeds.add(new Feed(subscription, markets, statsRegistry.getStats(epic), historyRegistry.getHistory(epic), shard));
 		}
 		return feeds;
 	}
 
 	public static class Feed implements Comparable<Feed> {
 
-		private final IInstrumentPriceStream<IIgIndexInstrument> subscription;
+		private final Subscription subscription;
 		private final Markets markets;
 		private final FeedPrice price;
+		private final SnapshotHistory history;
+		private final String shard;
 
-		public Feed(IInstrumentPriceStream<IIgIndexInstrument> subscription, Markets markets) {
+		public Feed(Subscription subscription, Markets markets, InstrumentStats stats, SnapshotHistory history, String shard) {
 			this.subscription = subscription;
 			this.markets = markets;
-			this.price = new FeedPrice(subscription);
+			this.price = new FeedPrice(stats, subscription.getDecimalPlaces());
+			this.history = history;
+			this.shard = shard;
 		}
 
 		public String getId() {
 			return FeedPrice.toId(subscription.getInstrument().getName());
 		}
 
-		public IInstrumentPriceStream<IIgIndexInstrument> getSubscription() {
+		public Subscription getSubscription() {
 			return subscription;
 		}
 
+		public String getShard() {
+			return shard;
+		}
+
 		public Markets getMarkets() {
 			return markets;
 		}
@@ -76,6 +122,21 @@ public class FeedsPage extends AbstractServicePage {
 			return price;
 		}
 
+		public int getHistorySize() {
+			return history.size();
+		}
+
+		public int getTickVolume() {
+			return history.countSince(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+		}
+
+		public String getLatestClose() {
+			if (history.isEmpty()) {
+				return "-";
+			}
+			return FeedPrice.toPlainString(history.getLatestMid(), history.getLatestDecimalPlaces(), subscription.getDecimalPlaces());
+		}
+
 		@Override
 		public int compareTo(Feed that) {
 			return this.getPrice().compareTo(that.getPrice());
@@ -0,0 +1,171 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import static com.robindrew.common.dependency.DependencyFactory.getDependency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.trading.igindex.feed.igindex.metrics.FeedMetrics;
+import com.robindrew.trading.igindex.feed.igindex.metrics.InstrumentMetrics;
+import com.robindrew.trading.igindex.feed.igindex.metrics.LatencyHistogram;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickPersistence;
+import com.robindrew.trading.igindex.feed.startup.StartupTimings;
+
+/**
+ * Tick capture metrics as JSON, or in the Prometheus text exposition format when requested with
+ * {@code ?format=prometheus}. Startup timings are available while the service is still warming up, the feed metrics
+ * once it is ready.
+ */
+public class MetricsPage implements IHttpExecutor {
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	@Override
+	public void execute(IHttpRequest request, IHttpResponse response) {
+		StartupTimings timings = getDependency(StartupTimings.class);
+		FeedMetrics metrics = timings.isReady() ? getDependency(FeedMetrics.class) : null;
+
+		String format = request.getParameter("format");
+		response.setStatus(200);
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		try {
+			if ("prometheus".equalsIgnoreCase(format)) {
+				response.setContentType("text/plain; version=0.0.4");
+				response.getWriter().write(toPrometheus(metrics, timings));
+			} else {
+				response.setContentType("application/json");
+				response.getWriter().write(toJson(metrics, timings));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private String toPrometheus(FeedMetrics metrics, StartupTimings timings) {
+		StringBuilder text = new StringBuilder();
+		text.append("# TYPE igindex_feed_startup_phase_millis gauge\n");
+		for (Entry<String, Long> phase : timings.getPhaseMillis().entrySet()) {
+			text.append("igindex_feed_startup_phase_millis{phase=\"").append(phase.getKey()).append("\"} ").append(phase.getValue()).append('\n');
+		}
+		text.append("# TYPE igindex_feed_startup_millis gauge\n");
+		text.append("igindex_feed_startup_millis ").append(timings.getStartupMillis()).append('\n');
+		text.append("# TYPE igindex_feed_time_to_first_tick_millis gauge\n");
+		text.append("igindex_feed_time_to_first_tick_millis ").append(timings.getTimeToFirstTickMillis()).append('\n');
+		if (metrics == null) {
+			return text.toString();
+		}
+
+		Map<String, InstrumentMetrics> instruments = metrics.getInstruments();
+
+		text.append("# TYPE igindex_feed_ticks_total counter\n");
+		for (InstrumentMetrics instrument : instruments.values()) {
+			text.append("igindex_feed_ticks_total{instrument=\"").append(instrument.getInstrument()).append("\"} ").append(instrument.getTickCount()).append('\n');
+		}
+
+		text.append("# TYPE igindex_feed_ticks_per_second gauge\n");
+		for (InstrumentMetrics instrument : instruments.values()) {
+			text.append("igindex_feed_ticks_per_second{instrument=\"").append(instrument.getInstrument()).append("\"} ").append(metrics.getTicksPerSecond(instrument.getInstrument())).append('\n');
+		}
+
+		text.append("# TYPE igindex_feed_latency_millis summary\n");
+		for (InstrumentMetrics instrument : instruments.values()) {
+			appendSummary(text, "igindex_feed_latency_millis", "instrument=\"" + instrument.getInstrument() + "\",", instrument.getLatency());
+		}
+
+		TickPersistence persistence = metrics.getPersistence();
+		text.append("# TYPE igindex_feed_persist_queue_depth gauge\n");
+		text.append("igindex_feed_persist_queue_depth ").append(persistence.getQueueDepth()).append('\n');
+		text.append("# TYPE igindex_feed_persist_written_total counter\n");
+		text.append("igindex_feed_persist_written_total ").append(persistence.getWrittenCount()).append('\n');
+		text.append("# TYPE igindex_feed_persist_dropped_total counter\n");
+		text.append("igindex_feed_persist_dropped_total ").append(persistence.getDroppedCount()).append('\n');
+		text.append("# TYPE igindex_feed_persist_blocked_total counter\n");
+		text.append("igindex_feed_persist_blocked_total ").append(persistence.getBlockedCount()).append('\n');
+		text.append("# TYPE igindex_feed_persist_write_nanos summary\n");
+		appendSummary(text, "igindex_feed_persist_write_nanos", "", persistence.getWriteLatency());
+		text.append("# TYPE igindex_feed_persist_flush_micros summary\n");
+		appendSummary(text, "igindex_feed_persist_flush_micros", "", persistence.getFlushLatency());
+		return text.toString();
+	}
+
+	private void appendSummary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+		for (double quantile : QUANTILES) {
+			text.append(name).append("{").append(labels).append("quantile=\"").append(quantile).append("\"} ");
+			text.append(histogram.getPercentile(quantile * 100)).append('\n');
+		}
+		String suffix = labels.isEmpty() ? " " : "{" + labels.substring(0, labels.length() - 1) + "} ";
+		text.append(name).append("_sum").append(suffix).append(histogram.getSum()).append('\n');
+		text.append(name).append("_count").append(suffix).append(histogram.getCount()).append('\n');
+	}
+
+	private String toJson(FeedMetrics metrics, StartupTimings timings) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"startup\":{\"state\":\"").append(timings.getState()).append('"');
+		json.append(",\"millis\":").append(timings.getStartupMillis());
+		json.append(",\"timeToFirstTick\":").append(timings.getTimeToFirstTickMillis());
+		json.append(",\"phases\":{");
+		boolean firstPhase = true;
+		for (Entry<String, Long> phase : timings.getPhaseMillis().entrySet()) {
+			if (!firstPhase) {
+				json.append(',');
+			}
+			firstPhase = false;
+			json.append('"').append(phase.getKey()).append("\":").append(phase.getValue());
+		}
+		json.append("}}");
+		if (metrics == null) {
+			return json.append('}').toString();
+		}
+
+		json.append(",\"instruments\":[");
+		boolean first = true;
+		for (InstrumentMetrics instrument : metrics.getInstruments().values()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append("{\"instrument\":\"").append(instrument.getInstrument()).append('"');
+			json.append(",\"ticks\":").append(instrument.getTickCount());
+			json.append(",\"ticksPerSecond\":").append(metrics.getTicksPerSecond(instrument.getInstrument()));
+			json.append(",\"ticksLastMinute\":").append(metrics.getTicksLastMinute(instrument.getInstrument()));
+			json.append(",\"latency\":");
+			appendHistogram(json, instrument.getLatency());
+			json.append('}');
+		}
+		json.append("],\"latency\":");
+		appendHistogram(json, metrics.getLatency());
+
+		TickPersistence persistence = metrics.getPersistence();
+		json.append(",\"persistence\":{");
+		json.append("\"queueDepth\":").append(persistence.getQueueDepth());
+		json.append(",\"queueCapacity\":").append(persistence.getQueueCapacity());
+		json.append(",\"written\":").append(persistence.getWrittenCount());
+		json.append(",\"dropped\":").append(persistence.getDroppedCount());
+		json.append(",\"blocked\":").append(persistence.getBlockedCount());
+		json.append(",\"writeLatency\":");
+		appendHistogram(json, persistence.getWriteLatency());
+		json.append(",\"flushLatency\":");
+		appendHistogram(json, persistence.getFlushLatency());
+		json.append("}}");
+		return json.toString();
+	}
+
+	private void appendHistogram(StringBuilder json, LatencyHistogram histogram) {
+		json.append("{\"unit\":\"").append(histogram.getUnit()).append('"');
+		json.append(",\"count\":").append(histogram.getCount());
+		json.append(",\"mean\":").append(histogram.getMean());
+		json.append(",\"p50\":").append(histogram.getPercentile(50));
+		json.append(",\"p90\":").append(histogram.getPercentile(90));
+		json.append(",\"p99\":").append(histogram.getPercentile(99));
+		json.append(",\"p999\":").append(histogram.getPercentile(99.9));
+		json.append(",\"max\":").append(histogram.getMax());
+		json.append('}');
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import static com.robindrew.common.dependency.DependencyFactory.getDependency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.servlet.AsyncContext;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.trading.igindex.feed.igindex.publish.PriceEventPublisher;
+
+/**
+ * Server-Sent Events stream of coalesced price updates, used by the Feeds page in place of polling /Prices.
+ */
+public class PriceEventsPage implements IHttpExecutor {
+
+	@Override
+	public void execute(IHttpRequest request, IHttpResponse response) {
+		PriceEventPublisher publisher = getDependency(PriceEventPublisher.class);
+
+		response.setStatus(200);
+		response.setContentType("text/event-stream");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("Connection", "keep-alive");
+
+		AsyncContext client = request.startAsync();
+		try {
+			publisher.addClient(client);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.robindrew.common.html.Bootstrap;
+import com.robindrew.common.text.Strings;
+import com.robindrew.trading.igindex.feed.igindex.analytics.InstrumentAnalytics;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStats;
+
+/**
+ * Writes the /Prices JSON straight from the instrument stats into a reusable byte buffer, with the same fields as
+ * {@link FeedPrice}, followed by the spread, volatility and tick rate analytics when available. Instrument names and
+ * ids are encoded once and cached, and numbers are written digit by digit, so only the duration shown for a stale
+ * instrument allocates. Not thread safe, intended to be held per thread.
+ */
+public class PricesJsonWriter {
+
+	private static final int STALE_THRESHOLD = 10000;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static final Map<String, byte[]> instrumentCache = new ConcurrentHashMap<>();
+	private static final Map<String, byte[]> idCache = new ConcurrentHashMap<>();
+
+	private byte[] buffer = new byte[16 * 1024];
+	private int length = 0;
+	private boolean first = true;
+
+	private long lastHash = 0;
+	private String lastETag = null;
+
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public void begin() {
+		length = 0;
+		first = true;
+		put('[');
+	}
+
+	public void end() {
+		put(']');
+	}
+
+	public void writePrice(InstrumentStats stats, long now) {
+		writePrice(stats, null, now);
+	}
+
+	public void writePrice(InstrumentStats stats, InstrumentAnalytics analytics, long now) {
+		if (!first) {
+			put(',');
+		}
+		first = false;
+
+		String instrument = stats.getInstrument();
+		put("{\"id\":\"");
+		put(idCache.computeIfAbsent(instrument, name -> ascii(FeedPrice.toId(name))));
+		put("\",\"instrument\":\"");
+		put(instrumentCache.computeIfAbsent(instrument, PricesJsonWriter::escape));
+
+		if (!stats.hasUpdated()) {
+			put("\",\"close\":\"-\",\"direction\":\"STALE\",\"lastUpdated\":\"-\",\"updateCount\":\"-\",\"directionColor\":\"");
+			put(Bootstrap.COLOR_WARNING);
+			put("\",\"tickVolume\":\"-\"}");
+			return;
+		}
+
+		// Normalise time to the nearest second to give impression of ticking
+		long millis = now - stats.getLastUpdated();
+		millis = (millis / 1000) * 1000;
+		boolean stale = millis >= STALE_THRESHOLD;
+		boolean buy = stats.isBuy();
+
+		put("\",\"close\":\"");
+		putDecimal(stats.getLastMid(), stats.getDecimalPlaces());
+		put("\",\"direction\":\"");
+		put(stale ? "STALE" : (buy ? "BUY" : "SELL"));
+		put("\",\"lastUpdated\":\"");
+		if (stale) {
+			put(Strings.duration(millis));
+		} else {
+			put('-');
+		}
+		put("\",\"updateCount\":\"");
+		putLong(stats.getUpdateCount());
+		put("\",\"directionColor\":\"");
+		put(buy ? Bootstrap.COLOR_INFO : Bootstrap.COLOR_DANGER);
+		put("\",\"tickVolume\":\"");
+		putLong(stats.getTicksLastMinute(now));
+		put('"');
+		if (analytics != null && analytics.hasUpdated()) {
+			writeAnalytics(analytics, now);
+		}
+		put('}');
+	}
+
+	private void writeAnalytics(InstrumentAnalytics analytics, long now) {
+		int decimalPlaces = analytics.getDecimalPlaces();
+		put(",\"spread\":\"");
+		putDecimal(analytics.getSpread(), decimalPlaces);
+		put("\",\"spreadAverage\":\"");
+		putDecimal(Math.round(analytics.getAverageSpread(now) * 10), decimalPlaces + 1);
+		put("\",\"volatility1m\":\"");
+		putDecimal(Math.round(analytics.getVolatility1m(now) * 100), 2);
+		put("\",\"volatility5m\":\"");
+		putDecimal(Math.round(analytics.getVolatility5m(now) * 100), 2);
+		put("\",\"volatility1h\":\"");
+		putDecimal(Math.round(analytics.getVolatility1h(now) * 100), 2);
+		put("\",\"tickRateZ\":\"");
+		putDecimal(Math.round(analytics.getTickRateZScore(now) * 100), 2);
+		put('"');
+	}
+
+	/**
+	 * A 64-bit FNV-1a hash of the current content.
+	 */
+	public long hash() {
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < length; i++) {
+			hash ^= buffer[i] & 0xFF;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the quoted ETag for the given hash, reusing the last one while the content is unchanged.
+	 */
+	public String toETag(long hash) {
+		if (lastETag == null || hash != lastHash) {
+			lastHash = hash;
+			lastETag = "\"" + Long.toHexString(hash) + "\"";
+		}
+		return lastETag;
+	}
+
+	private void ensure(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+
+	private void put(char c) {
+		ensure(1);
+		buffer[length++] = (byte) c;
+	}
+
+	private void put(byte[] bytes) {
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	/**
+	 * Put a string known to be plain ASCII that needs no escaping.
+	 */
+	private void put(String text) {
+		int size = text.length();
+		ensure(size);
+		for (int i = 0; i < size; i++) {
+			buffer[length++] = (byte) text.charAt(i);
+		}
+	}
+
+	private void putLong(long value) {
+		ensure(20);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int start = length;
+		do {
+			buffer[length++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+		reverse(start, length - 1);
+	}
+
+	/**
+	 * Put the value with a decimal point inserted the given number of places from the right, as in
+	 * {@link FeedPrice#toPlainString(long, int)}.
+	 */
+	private void putDecimal(long value, int decimalPlaces) {
+		if (decimalPlaces <= 0) {
+			putLong(value);
+			return;
+		}
+		ensure(22 + decimalPlaces);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int start = length;
+		int digits = 0;
+		do {
+			if (digits == decimalPlaces) {
+				buffer[length++] = '.';
+			}
+			buffer[length++] = (byte) ('0' + (value % 10));
+			value /= 10;
+			digits++;
+		} while (value > 0 || digits <= decimalPlaces);
+		reverse(start, length - 1);
+	}
+
+	private void reverse(int from, int to) {
+		while (from < to) {
+			byte swap = buffer[from];
+			buffer[from++] = buffer[to];
+			buffer[to--] = swap;
+		}
+	}
+
+	private static byte[] ascii(String text) {
+		byte[] bytes = new byte[text.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) text.charAt(i);
+		}
+		return bytes;
+	}
+
+	private static byte[] escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (char c : text.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < 0x20 || c > 0x7E) {
+				escaped.append(String.format("\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+		return ascii(escaped.toString());
+	}
+
+}
@@ -2,47 +2,90 @@ package com.robindrew.trading.igindex.feed.jetty.page;
 
 import static com.robindrew.common.dependency.DependencyFactory.getDependency;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.robindrew.common.http.servlet.executor.IVelocityHttpContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
 import com.robindrew.common.http.servlet.request.IHttpRequest;
 import com.robindrew.common.http.servlet.response.IHttpResponse;
-import com.robindrew.common.service.component.jetty.handler.page.AbstractServicePage;
-import com.robindrew.trading.igindex.IIgIndexInstrument;
-import com.robindrew.trading.igindex.platform.IIgIndexTradingPlatform;
-import com.robindrew.trading.platform.streaming.IInstrumentPriceStream;
-import com.robindrew.trading.platform.streaming.IStreamingService;
+import com.robindrew.trading.igindex.feed.igindex.analytics.AnalyticsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.stats.InstrumentStatsRegistry;
+import com.robindrew.trading.igindex.feed.igindex.subscription.ISubscriptionManager;
+import com.robindrew.trading.igindex.feed.igindex.subscription.Subscription;
 
-public class PricesPage extends AbstractServicePage {
+/**
+ * The latest price and derived analytics of every subscribed instrument as compact JSON, rendered by a per-thread
+ * {@link PricesJsonWriter} rather than through a template. The ETag is a hash of the content, so a poll that matches it
+ * gets a 304. Every time dependent value is measured in whole seconds, so without ticks the content is unchanged
+ * within a second.
+ */
+public class PricesPage implements IHttpExecutor {
 
-	public PricesPage(IVelocityHttpContext context, String templateName) {
-		super(context, templateName);
-	}
+	private static final ThreadLocal<PricesJsonWriter> writers = ThreadLocal.withInitial(PricesJsonWriter::new);
 
 	@Override
-	protected void execute(IHttpRequest request, IHttpResponse response, Map<String, Object> dataMap) {
-		super.execute(request, response, dataMap);
+	public void execute(IHttpRequest request, IHttpResponse response) {
+		ISubscriptionManager subscriptionManager = getDependency(ISubscriptionManager.class);
+		InstrumentStatsRegistry statsRegistry = getDependency(InstrumentStatsRegistry.class);
+		AnalyticsRegistry analyticsRegistry = getDependency(AnalyticsRegistry.class);
 
-		IIgIndexTradingPlatform platform = getDependency(IIgIndexTradingPlatform.class);
-		IStreamingService<IIgIndexInstrument> service = platform.getStreamingService();
-		dataMap.put("prices", getPrices(service.getPriceStreams()));
-	}
+		long now = System.currentTimeMillis();
+		PricesJsonWriter writer = writers.get();
+		writer.begin();
+		for (Subscription subscription : subscriptionManager.getSubscriptionList()) {
+			String instrument = subscription.getInstrument().getName();
+			writer.writePrice(statsRegistry.getStats(instrument), analyticsRegistry.getAnalytics(instrument), now);
+		}
+		writer.end();
 
-	private String getPrices(Set<IInstrumentPriceStream<IIgIndexInstrument>> subscriptions) {
-		List<FeedPrice> prices = new ArrayList<>();
-		for (IInstrumentPriceStream<IIgIndexInstrument> subscription : subscriptions) {
-			prices.add(new FeedPrice(subscription));
+		long hash = writer.hash();
+		response.setHeader("ETag", writer.toETag(hash));
+		response.setHeader("Cache-Control", "no-cache");
+		if (matches(request.getHeader("If-None-Match"), hash)) {
+			response.setStatus(304);
+			return;
 		}
 
-		GsonBuilder builder = new GsonBuilder();
-		builder.setPrettyPrinting();
-		Gson gson = builder.create();
-		return gson.toJson(prices);
+		response.setStatus(200);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setContentLength(writer.getLength());
+		try {
+			response.getOutputStream().write(writer.getBuffer(), 0, writer.getLength());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns true if any entity tag in the If-None-Match header is the given hash, parsed in place.
+	 */
+	static boolean matches(String header, long hash) {
+		if (header == null) {
+			return false;
+		}
+		long value = 0;
+		int digits = 0;
+		for (int i = 0; i < header.length(); i++) {
+			char c = header.charAt(i);
+			int digit = Character.digit(c, 16);
+			if (digit >= 0) {
+				value = (value << 4) | digit;
+				digits++;
+				continue;
+			}
+			if (c == '*') {
+				return true;
+			}
+			if (c == ',' || c == '"') {
+				if (digits > 0 && value == hash) {
+					return true;
+				}
+				value = 0;
+				digits = 0;
+			}
+		}
+		return digits > 0 && value == hash;
 	}
 
 }
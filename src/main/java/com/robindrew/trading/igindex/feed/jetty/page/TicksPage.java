@@ -0,0 +1,126 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import static com.robindrew.common.dependency.DependencyFactory.getDependency;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import com.robindrew.common.http.servlet.executor.IHttpExecutor;
+import com.robindrew.common.http.servlet.request.IHttpRequest;
+import com.robindrew.common.http.servlet.response.IHttpResponse;
+import com.robindrew.trading.igindex.feed.igindex.persist.ITickRecordVisitor;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickFileQuery;
+import com.robindrew.trading.igindex.feed.igindex.persist.TickOutputFormat;
+
+/**
+ * Streams the captured ticks for an instrument between two times as CSV lines of
+ * {@code timestamp,bid,ask,decimalPlaces}. Times are epoch millis or ISO-8601 instants, for example:
+ * {@code /Ticks?instrument=CS.D.EURUSD.MINI.IP&from=2018-06-01T14:00:00Z&to=2018-06-01T14:05:00Z}. The response is
+ * written and flushed in chunks, so no range is ever buffered in full. Ticks captured in any format that writes the
+ * line files can be queried, see {@link TickOutputFormat#hasLineFiles()}.
+ */
+public class TicksPage implements IHttpExecutor {
+
+	private static final int CHUNK_SIZE = 32 * 1024;
+
+	public static long parseTime(String time) {
+		if (time.chars().allMatch(Character::isDigit)) {
+			return Long.parseLong(time);
+		}
+		return Instant.parse(time).toEpochMilli();
+	}
+
+	@Override
+	public void execute(IHttpRequest request, IHttpResponse response) {
+		String instrument = request.getParameter("instrument");
+		String from = request.getParameter("from");
+		String to = request.getParameter("to");
+		if (instrument == null || from == null || to == null) {
+			error(response, 400, "Parameters required: instrument, from, to");
+			return;
+		}
+
+		long fromTime;
+		long toTime;
+		try {
+			fromTime = parseTime(from);
+			toTime = parseTime(to);
+		} catch (NumberFormatException | DateTimeParseException e) {
+			error(response, 400, "Invalid time, expected epoch millis or an ISO-8601 instant: " + e.getMessage());
+			return;
+		}
+		if (fromTime > toTime) {
+			error(response, 400, "from is after to");
+			return;
+		}
+
+		TickOutputFormat format = getDependency(TickOutputFormat.class);
+		if (!format.hasLineFiles()) {
+			error(response, 404, "Ticks are captured in the " + format + " format, which can not be queried");
+			return;
+		}
+		TickFileQuery query = getDependency(TickFileQuery.class);
+		if (!query.hasInstrument(instrument)) {
+			error(response, 404, "No ticks for instrument: " + instrument);
+			return;
+		}
+
+		response.setStatus(200);
+		response.setContentType("text/csv");
+		response.setCharacterEncoding("US-ASCII");
+		try {
+			OutputStream output = response.getOutputStream();
+			ChunkWriter writer = new ChunkWriter(output);
+			query.query(instrument, fromTime, toTime, writer);
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void error(IHttpResponse response, int status, String message) {
+		response.setStatus(status);
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		try {
+			response.getWriter().write(message);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static class ChunkWriter implements ITickRecordVisitor {
+
+		private final OutputStream output;
+		private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+
+		private ChunkWriter(OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public boolean visit(long timestamp, int bid, int ask, int decimalPlaces) {
+			chunk.append(timestamp).append(',').append(bid).append(',').append(ask).append(',').append(decimalPlaces).append('\n');
+			if (chunk.length() >= CHUNK_SIZE) {
+				try {
+					flush();
+				} catch (IOException e) {
+					// Client has gone away
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void flush() throws IOException {
+			output.write(chunk.toString().getBytes(US_ASCII));
+			output.flush();
+			chunk.setLength(0);
+		}
+	}
+
+}
@@ -0,0 +1,7 @@
+package com.robindrew.trading.igindex.feed.startup;
+
+public interface IStartupPhase {
+
+	void run() throws Exception;
+
+}
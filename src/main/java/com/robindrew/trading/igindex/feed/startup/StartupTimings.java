@@ -0,0 +1,141 @@
+package com.robindrew.trading.igindex.feed.startup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+/**
+ * Tracks the service through startup: how long each phase took, whether it is ready to serve, and the time from
+ * starting to the first tick. Phases may run concurrently.
+ */
+public class StartupTimings implements StartupTimingsMBean, ITickListener {
+
+	private static final Logger log = LoggerFactory.getLogger(StartupTimings.class);
+
+	public enum State {
+		STARTING, READY, FAILED;
+	}
+
+	private final long started = System.currentTimeMillis();
+	private final Map<String, long[]> phaseMap = new LinkedHashMap<>();
+	private volatile State state = State.STARTING;
+	private volatile long readyAt = 0;
+	private volatile long firstTickAt = 0;
+
+	public synchronized void begin(String phase) {
+		phaseMap.put(phase, new long[] { System.currentTimeMillis(), 0 });
+	}
+
+	public void end(String phase) {
+		long millis;
+		synchronized (this) {
+			long[] times = phaseMap.get(phase);
+			if (times == null) {
+				throw new IllegalStateException("Phase not started: " + phase);
+			}
+			times[1] = System.currentTimeMillis();
+			millis = times[1] - times[0];
+		}
+		log.info("Startup phase {} took {} ms", phase, millis);
+	}
+
+	public void run(String phase, IStartupPhase task) throws Exception {
+		begin(phase);
+		try {
+			task.run();
+		} finally {
+			end(phase);
+		}
+	}
+
+	public <T> T call(String phase, Callable<T> task) throws Exception {
+		begin(phase);
+		try {
+			return task.call();
+		} finally {
+			end(phase);
+		}
+	}
+
+	public void ready() {
+		readyAt = System.currentTimeMillis();
+		state = State.READY;
+		log.info("Startup complete in {} ms", readyAt - started);
+	}
+
+	public void failed() {
+		state = State.FAILED;
+	}
+
+	public boolean isReady() {
+		return state.equals(State.READY);
+	}
+
+	/**
+	 * Returns the phases that have started but not yet finished.
+	 */
+	public synchronized List<String> getRunningPhases() {
+		List<String> list = new ArrayList<>();
+		for (Map.Entry<String, long[]> entry : phaseMap.entrySet()) {
+			if (entry.getValue()[1] == 0) {
+				list.add(entry.getKey());
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the duration in milliseconds of each finished phase, in the order they started.
+	 */
+	public synchronized Map<String, Long> getPhaseMillis() {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (Map.Entry<String, long[]> entry : phaseMap.entrySet()) {
+			long[] times = entry.getValue();
+			if (times[1] != 0) {
+				map.put(entry.getKey(), times[1] - times[0]);
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public void onTick(Tick tick) {
+		if (firstTickAt == 0) {
+			firstTickAt = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public String getState() {
+		return state.name();
+	}
+
+	@Override
+	public synchronized List<String> getPhases() {
+		List<String> list = new ArrayList<>();
+		for (Map.Entry<String, long[]> entry : phaseMap.entrySet()) {
+			long[] times = entry.getValue();
+			list.add(entry.getKey() + " (+" + (times[0] - started) + " ms): " + (times[1] == 0 ? "running" : (times[1] - times[0]) + " ms"));
+		}
+		return list;
+	}
+
+	@Override
+	public long getStartupMillis() {
+		return readyAt == 0 ? -1 : readyAt - started;
+	}
+
+	@Override
+	public long getTimeToFirstTickMillis() {
+		return firstTickAt == 0 ? -1 : firstTickAt - started;
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.robindrew.trading.igindex.feed.startup;
+
+import java.util.List;
+
+public interface StartupTimingsMBean {
+
+	String getState();
+
+	List<String> getPhases();
+
+	long getStartupMillis();
+
+	long getTimeToFirstTickMillis();
+
+}
@@ -0,0 +1,59 @@
+package com.robindrew.trading.igindex.feed.igindex.analytics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RollingWindowTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void aggregatesValuesWithinTheWindow() {
+		RollingWindow window = new RollingWindow(10, 1000);
+		window.add(0, 2);
+		window.add(500, 4);
+		window.add(5500, 6);
+
+		assertEquals(3, window.getCount(5500));
+		assertEquals(12, window.getSum(5500), DELTA);
+		assertEquals(56, window.getSumOfSquares(5500), DELTA);
+		assertEquals(4, window.getMean(5500), DELTA);
+		assertEquals(6, window.getMax(5500), DELTA);
+		assertEquals(1, window.getBucketCount(5500, 0));
+		assertEquals(2, window.getBucketCount(5500, 5));
+	}
+
+	@Test
+	public void expiresBucketsAsTimeMovesOn() {
+		RollingWindow window = new RollingWindow(10, 1000);
+		window.add(0, 2);
+		window.add(5000, 6);
+
+		// The first bucket covers 0-999, so leaves the window at 10000
+		assertEquals(2, window.getCount(9999));
+		assertEquals(1, window.getCount(10000));
+		assertEquals(6, window.getMean(10000), DELTA);
+		assertEquals(0, window.getCount(15000));
+		assertEquals(0, window.getMean(15000), DELTA);
+		assertEquals(0, window.getMax(15000), DELTA);
+	}
+
+	@Test
+	public void recyclesBucketsInPlace() {
+		RollingWindow window = new RollingWindow(10, 1000);
+		window.add(3000, 100);
+		window.add(13000, -1);
+
+		// The same bucket, so the old value must not survive
+		assertEquals(1, window.getCount(13000));
+		assertEquals(-1, window.getMax(13000), DELTA);
+		assertEquals(0, window.getBucketCount(13000, 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTooFewBuckets() {
+		new RollingWindow(1, 1000);
+	}
+
+}
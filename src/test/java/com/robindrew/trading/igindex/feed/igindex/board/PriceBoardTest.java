@@ -0,0 +1,131 @@
+package com.robindrew.trading.igindex.feed.igindex.board;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.robindrew.trading.igindex.feed.igindex.tick.ITickListener;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+
+public class PriceBoardTest {
+
+	@Test
+	public void readsTheLatestPriceOfEachSlot() throws IOException {
+		File file = File.createTempFile("price", ".board");
+		PriceBoardWriter writer = new PriceBoardWriter(file, 4);
+		try {
+			ITickListener eurusd = writer.getSlot("CS.D.EURUSD.MINI.IP");
+			ITickListener gbpusd = writer.getSlot("CS.D.GBPUSD.MINI.IP");
+			eurusd.onTick(tick(1000, 11000));
+			eurusd.onTick(tick(2000, 11005));
+			gbpusd.onTick(tick(3000, 12500));
+
+			PriceBoardReader reader = new PriceBoardReader(file);
+			assertTrue(reader.isOpen());
+			assertEquals(4, reader.getSlotCount());
+			assertEquals(2, reader.getSlotsUsed());
+			assertEquals(1, reader.indexOf("CS.D.GBPUSD.MINI.IP"));
+			assertEquals(-1, reader.indexOf("CS.D.USDJPY.MINI.IP"));
+
+			PriceBoardSlot slot = new PriceBoardSlot();
+			assertTrue(reader.read(0, slot));
+			assertEquals(2000, slot.getTimestamp());
+			assertEquals(11005, slot.getBid());
+			assertEquals(11007, slot.getAsk());
+			assertEquals(2, slot.getUpdateCount());
+			assertEquals(4, slot.getSequence());
+
+			// Never written
+			assertFalse(reader.read(2, slot));
+
+			writer.close();
+			assertFalse(reader.isOpen());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void dropsTicksOnceTheBoardIsFull() throws IOException {
+		File file = File.createTempFile("price", ".board");
+		PriceBoardWriter writer = new PriceBoardWriter(file, 1);
+		try {
+			writer.getSlot("CS.D.EURUSD.MINI.IP").onTick(tick(1000, 11000));
+			writer.getSlot("CS.D.GBPUSD.MINI.IP").onTick(tick(1000, 12500));
+			assertEquals(1, writer.getSlotsUsed());
+			assertEquals(1, writer.getDroppedCount());
+		} finally {
+			writer.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void rejectsABoardThatIsNotReady() throws IOException {
+		File file = File.createTempFile("price", ".board");
+		try {
+			new PriceBoardReader(file);
+			fail("Empty board was read");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Price board not ready"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void readersNeverSeeTornPrices() throws Exception {
+		File file = File.createTempFile("price", ".board");
+		PriceBoardWriter writer = new PriceBoardWriter(file, 1);
+		try {
+			ITickListener slot = writer.getSlot("CS.D.EURUSD.MINI.IP");
+			PriceBoardReader reader = new PriceBoardReader(file);
+			AtomicBoolean writing = new AtomicBoolean(true);
+			AtomicReference<String> failure = new AtomicReference<>();
+			AtomicLong reads = new AtomicLong();
+
+			// Every field of an update is derived from the update count, so a mix of two updates is detectable
+			Thread readerThread = new Thread(() -> {
+				PriceBoardSlot price = new PriceBoardSlot();
+				long lastCount = 0;
+				while (writing.get() && failure.get() == null) {
+					if (!reader.read(0, price)) {
+						continue;
+					}
+					long count = price.getUpdateCount();
+					if (price.getTimestamp() != count || price.getBid() != (int) count || price.getAsk() != (int) count + 2 || price.getSequence() != count * 2 || count < lastCount) {
+						failure.set("Torn read: " + price);
+					}
+					lastCount = count;
+					reads.incrementAndGet();
+				}
+			});
+			readerThread.start();
+			for (int i = 1; failure.get() == null && (i <= 2000000 || reads.get() < 1000); i++) {
+				slot.onTick(tick(i, i));
+			}
+			writing.set(false);
+			readerThread.join();
+
+			assertNull(failure.get());
+		} finally {
+			writer.close();
+			file.delete();
+		}
+	}
+
+	private static Tick tick(long timestamp, int bid) {
+		return new Tick("CS.D.EURUSD.MINI.IP", timestamp, bid, bid + 2, bid + 1, 5, true, timestamp);
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConflationConfigTest {
+
+	@Test
+	public void parsesNone() {
+		assertTrue(ConflationConfig.parse("none").isNone());
+		assertTrue(ConflationConfig.parse("").isNone());
+		assertEquals("none", ConflationConfig.parse(" none ").toString());
+	}
+
+	@Test
+	public void parsesEveryOption() {
+		ConflationConfig config = ConflationConfig.parse("unchanged, interval=100,rate=20");
+		assertTrue(config.isDropUnchanged());
+		assertEquals(100, config.getInterval());
+		assertEquals(20, config.getMaxRate());
+		assertFalse(config.isNone());
+		assertEquals("unchanged,interval=100,rate=20", config.toString());
+		assertEquals(config.toString(), ConflationConfig.parse(config.toString()).toString());
+	}
+
+	@Test
+	public void parsesOverrides() {
+		Map<String, ConflationConfig> overrides = ConflationConfig.parseOverrides("CS.D.GBPUSD.TODAY.IP=unchanged; IX.D.FTSE.DAILY.IP=interval=250");
+		assertEquals(2, overrides.size());
+		assertTrue(overrides.get("CS.D.GBPUSD.TODAY.IP").isDropUnchanged());
+		assertEquals(250, overrides.get("IX.D.FTSE.DAILY.IP").getInterval());
+		assertTrue(ConflationConfig.parseOverrides("").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownOptions() {
+		ConflationConfig.parse("unchanged,latest");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeInterval() {
+		ConflationConfig.parse("interval=-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsOverrideWithoutInstrument() {
+		ConflationConfig.parseOverrides("=unchanged");
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.robindrew.trading.igindex.feed.igindex.conflate;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.robindrew.trading.igindex.IgIndexInstrument;
+import com.robindrew.trading.igindex.feed.igindex.tick.Tick;
+import com.robindrew.trading.igindex.feed.igindex.tick.TickStreamListener;
+
+public class TickConflaterTest {
+
+	private final List<Integer> delivered = new ArrayList<>();
+
+	@Test
+	public void noneDeliversEveryTick() {
+		TickConflater conflater = conflater("none");
+		send(conflater, 100, 100, 101);
+		assertEquals(list(100, 100, 101), delivered);
+		assertEquals(0, conflater.getConflated());
+	}
+
+	@Test
+	public void dropsUnchangedPrices() {
+		TickConflater conflater = conflater("unchanged");
+		send(conflater, 100, 100, 101, 101, 100);
+		assertEquals(list(100, 101, 100), delivered);
+		assertEquals(5, conflater.getReceived());
+		assertEquals(2, conflater.getConflated());
+		assertEquals(3, conflater.getDelivered());
+	}
+
+	@Test
+	public void intervalHoldsBackTheLatestUntilFlushed() {
+		TickConflater conflater = conflater("interval=60000");
+		send(conflater, 100, 101, 102);
+		assertEquals(list(100), delivered);
+
+		// Too soon
+		long now = System.currentTimeMillis();
+		conflater.flush(now);
+		assertEquals(list(100), delivered);
+
+		// Only the latest of the held back ticks is delivered
+		conflater.flush(now + 60000);
+		assertEquals(list(100, 102), delivered);
+		assertEquals(3, conflater.getReceived());
+		assertEquals(1, conflater.getConflated());
+		assertEquals(2, conflater.getDelivered());
+
+		conflater.flush(now + 120000);
+		assertEquals(2, conflater.getDelivered());
+	}
+
+	@Test
+	public void rateLimitsTicksPerSecond() {
+		TickConflater conflater = conflater("rate=2");
+		send(conflater, 100, 101, 102, 103);
+		assertEquals(list(100, 101), delivered);
+
+		conflater.flush(System.currentTimeMillis() + 1000);
+		assertEquals(list(100, 101, 103), delivered);
+	}
+
+	private TickConflater conflater(String spec) {
+		TickStreamListener output = new TickStreamListener(IgIndexInstrument.SPOT_EUR_USD);
+		output.register(tick -> delivered.add(tick.getBid()));
+		return new TickConflater(output, ConflationConfig.parse(spec));
+	}
+
+	private static void send(TickConflater conflater, int... bids) {
+		for (int bid : bids) {
+			conflater.onTick(new Tick(IgIndexInstrument.SPOT_EUR_USD.getName(), System.currentTimeMillis(), bid, bid + 2, bid + 1, 5, true, System.currentTimeMillis()));
+		}
+	}
+
+	private static List<Integer> list(Integer... values) {
+		List<Integer> list = new ArrayList<>();
+		for (Integer value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.robindrew.trading.igindex.feed.igindex.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class SnapshotHistoryTest {
+
+	@Test
+	public void keepsTheMostRecentRecords() {
+		SnapshotHistory history = new SnapshotHistory("TEST", 8);
+		for (int i = 0; i < 20; i++) {
+			add(history, i);
+		}
+
+		// One slot is always reserved for the record being written
+		assertEquals(7, history.size());
+		assertEquals(20, history.getWrittenCount());
+		assertEquals(19, history.getLatestTimestamp());
+
+		List<Long> latest = new ArrayList<>();
+		history.forEachLatest(3, (timestamp, bid, ask, mid, decimalPlaces, buy) -> latest.add(timestamp));
+		assertEquals(list(17, 18, 19), latest);
+
+		List<Long> reverse = new ArrayList<>();
+		history.forEachReverse((timestamp, bid, ask, mid, decimalPlaces, buy) -> reverse.add(timestamp));
+		assertEquals(list(19, 18, 17, 16, 15, 14, 13), reverse);
+	}
+
+	@Test
+	public void countsAndVisitsSinceTime() {
+		SnapshotHistory history = new SnapshotHistory("TEST", 100);
+		for (int i = 0; i < 50; i++) {
+			add(history, i * 10);
+		}
+		assertEquals(5, history.countSince(450));
+		assertEquals(5, history.countSince(441));
+		assertEquals(50, history.countSince(0));
+		assertEquals(0, history.countSince(1000));
+
+		List<Long> since = new ArrayList<>();
+		history.forEachSince(470, (timestamp, bid, ask, mid, decimalPlaces, buy) -> since.add(timestamp));
+		assertEquals(list(470, 480, 490), since);
+	}
+
+	/**
+	 * A single writer overwrites a small ring as fast as it can while readers iterate it: every record a reader is
+	 * given must be one the writer wrote in full.
+	 */
+	@Test
+	public void readersNeverSeeTornRecords() throws InterruptedException {
+		SnapshotHistory history = new SnapshotHistory("TEST", 16);
+		int records = 2000000;
+		AtomicReference<String> failure = new AtomicReference<>();
+		AtomicLong visited = new AtomicLong();
+
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < records; i++) {
+				add(history, i);
+			}
+		});
+		List<Thread> readers = new ArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			readers.add(new Thread(() -> {
+				while (history.getWrittenCount() < records && failure.get() == null) {
+					history.forEachReverse((timestamp, bid, ask, mid, decimalPlaces, buy) -> {
+						visited.incrementAndGet();
+						if (bid != (int) timestamp || ask != bid + 1 || mid != bid * 2 || decimalPlaces != (bid & 7) || buy != ((bid & 1) == 1)) {
+							failure.compareAndSet(null, "Torn record: " + timestamp + "," + bid + "," + ask + "," + mid + "," + decimalPlaces + "," + buy);
+							return false;
+						}
+						return true;
+					});
+				}
+			}));
+		}
+
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		writer.start();
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertNull(failure.get());
+		assertTrue(visited.get() > 0);
+		assertEquals(records - 1, history.getLatestTimestamp());
+	}
+
+	private static void add(SnapshotHistory history, long timestamp) {
+		int value = (int) timestamp;
+		history.add(timestamp, value, value + 1, value * 2, value & 7, (value & 1) == 1);
+	}
+
+	private static List<Long> list(long... values) {
+		List<Long> list = new ArrayList<>();
+		for (long value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.robindrew.trading.igindex.feed.igindex.persist;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TickBlocksTest {
+
+	@Test
+	public void roundTripSpansSeveralBlocks() throws IOException {
+		List<String> ticks = randomTicks(TickBlocks.BLOCK_SIZE * 2 + 123);
+		File file = write(ticks);
+		try {
+			assertEquals(ticks, read(file, Long.MIN_VALUE, Long.MAX_VALUE));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void roundTripExtremeValues() throws IOException {
+		List<String> ticks = new ArrayList<>();
+		ticks.add(tick(0, 0, 0, 0));
+		ticks.add(tick(Long.MAX_VALUE / 2, Integer.MAX_VALUE, Integer.MIN_VALUE, 127));
+		ticks.add(tick(-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0));
+		ticks.add(tick(1514764800000L, 123456, 123458, 2));
+		ticks.add(tick(1514764799999L, 123457, 123457, 2));
+		File file = write(ticks);
+		try {
+			assertEquals(ticks, read(file, Long.MIN_VALUE, Long.MAX_VALUE));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void readFiltersToRange() throws IOException {
+		List<String> ticks = randomTicks(TickBlocks.BLOCK_SIZE * 3);
+		long from = timestamp(ticks.get(TickBlocks.BLOCK_SIZE + 10));
+		long to = timestamp(ticks.get(TickBlocks.BLOCK_SIZE * 2 + 10));
+		List<String> expected = new ArrayList<>();
+		for (String tick : ticks) {
+			if (timestamp(tick) >= from && timestamp(tick) <= to) {
+				expected.add(tick);
+			}
+		}
+
+		File file = write(ticks);
+		try {
+			assertEquals(expected, read(file, from, to));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void readStopsWhenVisitorStops() throws IOException {
+		File file = write(randomTicks(100));
+		try (TickBlockReader reader = new TickBlockReader()) {
+			int[] visited = new int[1];
+			long result = reader.read(file, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, bid, ask, places) -> ++visited[0] < 10);
+			assertEquals(-11, result);
+			assertEquals(10, visited[0]);
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static String tick(long timestamp, long bid, long ask, long decimalPlaces) {
+		return timestamp + "," + bid + "," + ask + "," + decimalPlaces;
+	}
+
+	private static long timestamp(String tick) {
+		return Long.parseLong(tick.substring(0, tick.indexOf(',')));
+	}
+
+	private static List<String> randomTicks(int count) {
+		Random random = new Random(42);
+		List<String> ticks = new ArrayList<>();
+		long timestamp = 1514764800000L;
+		int bid = 1234500;
+		for (int i = 0; i < count; i++) {
+			timestamp += random.nextInt(500);
+			bid += random.nextInt(21) - 10;
+			ticks.add(tick(timestamp, bid, bid + random.nextInt(5), 1));
+		}
+		return ticks;
+	}
+
+	private static File write(List<String> ticks) throws IOException {
+		File file = File.createTempFile("TickBlocksTest", TickBlocks.FILE_SUFFIX);
+		try (TickBlockWriter writer = new TickBlockWriter(file)) {
+			for (String tick : ticks) {
+				String[] fields = tick.split(",");
+				writer.write(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+			}
+		}
+		return file;
+	}
+
+	private static List<String> read(File file, long from, long to) throws IOException {
+		List<String> ticks = new ArrayList<>();
+		try (TickBlockReader reader = new TickBlockReader()) {
+			long count = reader.read(file, from, to, (timestamp, bid, ask, places) -> ticks.add(tick(timestamp, bid, ask, places)));
+			assertEquals(ticks.size(), count);
+		}
+		return ticks;
+	}
+
+}
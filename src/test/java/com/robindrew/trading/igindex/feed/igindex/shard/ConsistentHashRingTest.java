@@ -0,0 +1,80 @@
+package com.robindrew.trading.igindex.feed.igindex.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+	private static final int KEYS = 10000;
+
+	@Test
+	public void mapsEachKeyToTheSameNode() {
+		ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(4), 100);
+		ConsistentHashRing<Integer> other = new ConsistentHashRing<>(nodes(4), 100);
+		for (int i = 0; i < KEYS; i++) {
+			assertEquals(ring.get(key(i)), other.get(key(i)));
+		}
+	}
+
+	@Test
+	public void spreadsKeysEvenly() {
+		ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(nodes(4), 100);
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			counts.merge(ring.get(key(i)), 1, Integer::sum);
+		}
+
+		// An even spread is 25% each
+		assertEquals(4, counts.size());
+		for (int count : counts.values()) {
+			assertTrue("count=" + count, count > KEYS * 0.15 && count < KEYS * 0.35);
+		}
+	}
+
+	@Test
+	public void addingANodeOnlyMovesKeysToIt() {
+		ConsistentHashRing<Integer> before = new ConsistentHashRing<>(nodes(4), 100);
+		ConsistentHashRing<Integer> after = new ConsistentHashRing<>(nodes(5), 100);
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			int from = before.get(key(i));
+			int to = after.get(key(i));
+			if (from != to) {
+				assertEquals(4, to);
+				moved++;
+			}
+		}
+
+		// An even spread moves 20% of the keys
+		assertTrue("moved=" + moved, moved > KEYS * 0.1 && moved < KEYS * 0.3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNoNodes() {
+		new ConsistentHashRing<>(new HashMap<String, Integer>(), 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNoVirtualNodes() {
+		new ConsistentHashRing<>(nodes(2), 0);
+	}
+
+	private static Map<String, Integer> nodes(int count) {
+		Map<String, Integer> nodes = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			nodes.put("shard" + i, i);
+		}
+		return nodes;
+	}
+
+	private static String key(int index) {
+		return "CS.D.INSTRUMENT" + index + ".MINI.IP";
+	}
+
+}
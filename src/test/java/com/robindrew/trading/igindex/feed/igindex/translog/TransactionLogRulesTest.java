@@ -0,0 +1,59 @@
+package com.robindrew.trading.igindex.feed.igindex.translog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TransactionLogRulesTest {
+
+	@Test
+	public void logsTransactionsMatchingNoRule() {
+		TransactionLogRules rules = TransactionLogRules.parse("stringbuilder=0");
+		for (int i = 0; i < 10; i++) {
+			assertTrue(rules.shouldLog("transaction"));
+		}
+	}
+
+	@Test
+	public void excludesTransactionsWithAFractionOfZero() {
+		TransactionLogRules rules = TransactionLogRules.parse("String=0");
+		assertEquals(0, count(rules, "transaction", 100));
+	}
+
+	@Test
+	public void samplesEveryNthTransaction() {
+		TransactionLogRules rules = TransactionLogRules.parse(" integer = 0.25 ; string=0.1");
+		assertEquals(2, rules.getRules().size());
+		assertEquals(25, count(rules, 1, 100));
+		assertEquals(10, count(rules, "transaction", 100));
+		assertEquals(100, rules.getRules().get(0).getMatched());
+	}
+
+	@Test
+	public void appliesTheFirstMatchingRule() {
+		TransactionLogRules rules = TransactionLogRules.parse("lang.string=1;string=0");
+		assertEquals(100, count(rules, "transaction", 100));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsFractionsAboveOne() {
+		TransactionLogRules.parse("string=2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsRulesWithoutPattern() {
+		TransactionLogRules.parse("=0.5");
+	}
+
+	private static int count(TransactionLogRules rules, Object transaction, int times) {
+		int logged = 0;
+		for (int i = 0; i < times; i++) {
+			if (rules.shouldLog(transaction)) {
+				logged++;
+			}
+		}
+		return logged;
+	}
+
+}
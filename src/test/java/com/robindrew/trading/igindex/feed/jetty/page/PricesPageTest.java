@@ -0,0 +1,38 @@
+package com.robindrew.trading.igindex.feed.jetty.page;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PricesPageTest {
+
+	private static final long HASH = 0x1a2b3c4d5e6f7081L;
+
+	@Test
+	public void matchesASingleTag() {
+		assertTrue(PricesPage.matches("\"1a2b3c4d5e6f7081\"", HASH));
+		assertTrue(PricesPage.matches("\"1A2B3C4D5E6F7081\"", HASH));
+		assertFalse(PricesPage.matches("\"1a2b3c4d5e6f7082\"", HASH));
+	}
+
+	@Test
+	public void matchesAnyTagInAList() {
+		assertTrue(PricesPage.matches("\"ff\", \"1a2b3c4d5e6f7081\"", HASH));
+		assertTrue(PricesPage.matches("\"1a2b3c4d5e6f7081\",\"ff\"", HASH));
+		assertFalse(PricesPage.matches("\"ff\", \"ee\"", HASH));
+	}
+
+	@Test
+	public void matchesAWildcard() {
+		assertTrue(PricesPage.matches("*", HASH));
+	}
+
+	@Test
+	public void doesNotMatchMissingOrEmptyTags() {
+		assertFalse(PricesPage.matches(null, HASH));
+		assertFalse(PricesPage.matches("", HASH));
+		assertFalse(PricesPage.matches("\"\"", 0));
+	}
+
+}